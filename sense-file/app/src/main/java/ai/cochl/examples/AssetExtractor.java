@@ -0,0 +1,164 @@
+package ai.cochl.examples;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Copies the bundled assets to a directory the SDK can read from, skipping files that are
+ * already there.
+ * <p>
+ * An asset is considered present when the target file exists, has the asset's size and was
+ * extracted by the same build of the app (tracked with a stamp file, since compressed assets
+ * do not expose their size). Uncompressed assets, which includes WAV files by default, are
+ * copied with {@code FileChannel.transferTo} straight from the APK; the rest through a 64 KB
+ * buffer. Files are written to a temporary name and renamed, so an interrupted launch never
+ * leaves a truncated clip behind.
+ */
+final class AssetExtractor {
+    interface Listener {
+        // Called on the extracting thread for every asset that is ready, copied or not
+        void onFileReady(File file);
+    }
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final AssetManager assetManager;
+    private final File targetDir;
+    private final File stampFile;
+    private final String stamp;
+
+    AssetExtractor(AssetManager assetManager, File targetDir, File stampFile, long appVersionStamp) {
+        this.assetManager = assetManager;
+        this.targetDir = targetDir;
+        this.stampFile = stampFile;
+        this.stamp = Long.toString(appVersionStamp);
+    }
+
+    // Returns the number of assets that had to be copied
+    int extractAll(Listener listener) throws IOException {
+        String[] names = assetManager.list("");
+        if (names == null) {
+            throw new IOException("Failed to get asset file list.");
+        }
+
+        boolean sameBuild = stamp.equals(readStamp());
+        int copied = 0;
+        for (String name : names) {
+            File target = new File(targetDir, name);
+            try {
+                if (!isUpToDate(name, target, sameBuild)) {
+                    copy(name, target);
+                    ++copied;
+                }
+            } catch (FileNotFoundException e) {
+                continue;  // a directory, e.g. the system "images" or "webkit" assets
+            }
+            listener.onFileReady(target);
+        }
+
+        if (!sameBuild) {
+            Files.write(stampFile.toPath(), stamp.getBytes(StandardCharsets.UTF_8));
+        }
+        return copied;
+    }
+
+    private boolean isUpToDate(String name, File target, boolean sameBuild) throws IOException {
+        if (!sameBuild || !target.isFile()) {
+            return false;
+        }
+        long length = assetLength(name);
+        return length < 0 || length == target.length();
+    }
+
+    // Returns -1 for compressed assets, whose size is only known after decompressing them
+    private long assetLength(String name) throws IOException {
+        try (AssetFileDescriptor fd = assetManager.openFd(name)) {
+            return fd.getLength();
+        } catch (FileNotFoundException e) {
+            // Compressed, or not a file at all; open() tells the two apart.
+            assetManager.open(name).close();
+            return -1;
+        }
+    }
+
+    private void copy(String name, File target) throws IOException {
+        File tmp = new File(targetDir, name + ".tmp");
+
+        AssetFileDescriptor fd = null;
+        try {
+            fd = assetManager.openFd(name);
+        } catch (FileNotFoundException ignored) {
+            // compressed asset
+        }
+
+        if (fd != null) {
+            try (FileInputStream in = fd.createInputStream();
+                 FileChannel out = openForWrite(tmp)) {
+                transfer(in.getChannel(), fd.getStartOffset(), fd.getLength(), out);
+            } finally {
+                fd.close();
+            }
+        } else {
+            // Throws FileNotFoundException for directories before anything is created
+            try (InputStream in = assetManager.open(name);
+                 FileChannel out = openForWrite(tmp)) {
+                copy(Channels.newChannel(in), out);
+            }
+        }
+
+        if (!tmp.renameTo(target)) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            throw new IOException("Failed to move " + tmp + " to " + target);
+        }
+    }
+
+    private static FileChannel openForWrite(File file) throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private static void transfer(FileChannel in, long offset, long length, FileChannel out)
+            throws IOException {
+        long done = 0;
+        while (done < length) {
+            long n = in.transferTo(offset + done, length - done, out);
+            if (n <= 0) {
+                throw new IOException("Unexpected end of asset");
+            }
+            done += n;
+        }
+    }
+
+    private static void copy(ReadableByteChannel in, FileChannel out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(COPY_BUFFER_SIZE);
+        while (in.read(buffer) >= 0) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    private String readStamp() {
+        try {
+            return new String(Files.readAllBytes(stampFile.toPath()), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package ai.cochl.examples;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs file prediction over many files at once.
+ * <p>
+ * Files are scored by a fixed number of worker threads fed through a bounded queue; when the
+ * queue is full the submitting thread scores the file itself, so a directory with thousands of
+ * clips never queues thousands of tasks. Results are returned in input order together with the
+ * overall throughput in files per second and audio seconds per second.
+ * <p>
+ * The predictor is called from several threads at once. In the app it serializes the calls into
+ * the SDK, so the workers overlap the cache lookups and header reads with a prediction rather
+ * than predictions with each other; the throughput is that of one prediction at a time.
+ */
+final class BatchPredictor {
+    interface FilePredictor {
+        JSONObject predict(String filePath) throws Exception;
+    }
+
+    interface Listener {
+        // Called from the worker thread that scored the file
+        void onResult(Result result, int completed, int total);
+    }
+
+    static final class Result {
+        final File file;
+        final JSONObject json;    // null if the prediction failed
+        final Exception error;    // null if the prediction succeeded
+        final long elapsedNanos;
+        final double audioSeconds;
+
+        Result(File file, JSONObject json, Exception error, long elapsedNanos, double audioSeconds) {
+            this.file = file;
+            this.json = json;
+            this.error = error;
+            this.elapsedNanos = elapsedNanos;
+            this.audioSeconds = audioSeconds;
+        }
+
+        boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    static final class Summary {
+        final List<Result> results;
+        final int failed;
+        final long wallNanos;
+        final double audioSeconds;
+
+        Summary(List<Result> results, long wallNanos) {
+            int failed = 0;
+            double audioSeconds = 0;
+            for (Result result : results) {
+                if (!result.isSuccess()) {
+                    ++failed;
+                }
+                audioSeconds += result.audioSeconds;
+            }
+            this.results = results;
+            this.failed = failed;
+            this.wallNanos = wallNanos;
+            this.audioSeconds = audioSeconds;
+        }
+
+        double getFilesPerSecond() {
+            return wallNanos == 0 ? 0 : results.size() / (wallNanos / 1e9);
+        }
+
+        // Seconds of audio scored per second of wall-clock time
+        double getAudioSecondsPerSecond() {
+            return wallNanos == 0 ? 0 : audioSeconds / (wallNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%d files (%d failed), %.1f s of audio in %.2f s: %.2f files/s, %.1f audio-s/s",
+                    results.size(), failed, audioSeconds, wallNanos / 1e9,
+                    getFilesPerSecond(), getAudioSecondsPerSecond());
+        }
+    }
+
+    private final FilePredictor predictor;
+    private final int parallelism;
+    private final int queueCapacity;
+
+    BatchPredictor(FilePredictor predictor, int parallelism, int queueCapacity) {
+        if (parallelism <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("parallelism and queueCapacity must be positive");
+        }
+        this.predictor = predictor;
+        this.parallelism = parallelism;
+        this.queueCapacity = queueCapacity;
+    }
+
+    // Regular files ending in .wav, sorted by name
+    static List<File> listWavFiles(File directory) {
+        File[] files = directory.listFiles(f -> f.isFile()
+                && f.getName().toLowerCase(Locale.US).endsWith(".wav"));
+        if (files == null) {
+            return Collections.emptyList();
+        }
+        Arrays.sort(files);
+        return Arrays.asList(files);
+    }
+
+    Summary run(List<File> files, Listener listener) throws InterruptedException {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, parallelism,
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        AtomicInteger completed = new AtomicInteger();
+        int total = files.size();
+
+        long start = System.nanoTime();
+        try {
+            List<Future<Result>> futures = new ArrayList<>(total);
+            for (File file : files) {
+                futures.add(executor.submit(() -> {
+                    Result result = predict(file);
+                    if (listener != null) {
+                        listener.onResult(result, completed.incrementAndGet(), total);
+                    }
+                    return result;
+                }));
+            }
+
+            List<Result> results = new ArrayList<>(total);
+            for (Future<Result> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    // predict() catches everything the predictor throws; only a listener can get
+                    // here
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            return new Summary(results, System.nanoTime() - start);
+        } finally {
+            executor.shutdownNow();
+            awaitWorkers(executor);
+        }
+    }
+
+    // predict must have returned on every worker before the caller may terminate the SDK, also
+    // when the run was interrupted
+    private static void awaitWorkers(ThreadPoolExecutor executor) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Result predict(File file) {
+        double audioSeconds = 0;
+        try {
+            audioSeconds = WavHeader.read(file).getDurationSeconds();
+        } catch (IOException ignored) {
+            // Not a WAV file we can parse; the predictor decides whether it can score it.
+        }
+
+        long start = System.nanoTime();
+        try {
+            JSONObject json = predictor.predict(file.getAbsolutePath());
+            return new Result(file, json, null, System.nanoTime() - start, audioSeconds);
+        } catch (Exception e) {
+            return new Result(file, null, e, System.nanoTime() - start, audioSeconds);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package ai.cochl.examples;
+
+/**
+ * One analysed frame of a prediction: its time range and the scores of its tags.
+ * <p>
+ * Frames are owned and refilled by a {@link ResultDecoder}. Their {@link TagScore} objects are
+ * reused from one prediction to the next, so neither may be kept after the next decode.
+ */
+final class FrameResult {
+    double startTime;
+    double endTime;
+    private TagScore[] tags = new TagScore[0];
+    private int tagCount = 0;
+
+    double getStartTime() {
+        return startTime;
+    }
+
+    double getEndTime() {
+        return endTime;
+    }
+
+    int getTagCount() {
+        return tagCount;
+    }
+
+    TagScore getTag(int index) {
+        if (index < 0 || index >= tagCount) {
+            throw new IndexOutOfBoundsException("Tag " + index + " of " + tagCount);
+        }
+        return tags[index];
+    }
+
+    // Returns the tag with the highest probability, or null if the frame has no tags
+    TagScore getTopTag() {
+        TagScore top = null;
+        for (int i = 0; i < tagCount; ++i) {
+            if (top == null || tags[i].probability > top.probability) {
+                top = tags[i];
+            }
+        }
+        return top;
+    }
+
+    // Appends the frame on one line, e.g. "0.0-1.0 s: Siren 93%, Others 7%"
+    StringBuilder appendTo(StringBuilder out) {
+        out.append(startTime).append('-').append(endTime).append(" s:");
+        for (int i = 0; i < tagCount; ++i) {
+            out.append(i == 0 ? " " : ", ")
+                    .append(tags[i].name).append(' ')
+                    .append(Math.round(tags[i].probability * 100)).append('%');
+        }
+        return out;
+    }
+
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder()).toString();
+    }
+
+    TagScore addTag() {
+        if (tagCount == tags.length) {
+            TagScore[] grown = new TagScore[Math.max(4, tags.length * 2)];
+            System.arraycopy(tags, 0, grown, 0, tags.length);
+            for (int i = tags.length; i < grown.length; ++i) {
+                grown[i] = new TagScore();
+            }
+            tags = grown;
+        }
+        return tags[tagCount++];
+    }
+
+    void clear() {
+        startTime = 0;
+        endTime = 0;
+        tagCount = 0;
+    }
+}
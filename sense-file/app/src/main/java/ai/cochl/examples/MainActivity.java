@@ -4,15 +4,16 @@ import android.Manifest;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
-import android.content.res.AssetManager;
 import android.graphics.Color;
 import android.graphics.drawable.GradientDrawable;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
 import android.provider.Settings;
-import android.text.method.ScrollingMovementMethod;
+import android.util.Log;
 import android.widget.Button;
 import android.widget.TextView;
 import android.widget.Toast;
@@ -24,43 +25,117 @@ import androidx.core.app.ActivityCompat;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.nio.file.Files;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import ai.cochl.sensesdk.CochlException;
 import ai.cochl.sensesdk.Sense;
 
 public class MainActivity extends AppCompatActivity {
+    private static final String TAG = "SenseFile";
+
     private final String projectKey = "Your project key";
 
     private final int SENSE_SDK_REQUEST_CODE = 0;
     private final String[] permissionList = {Manifest.permission.INTERNET};
 
-    private Sense sense = null;
+    // Set once the SDK is initialized and warmed up
+    private volatile Sense sense = null;
+    // Sense is a single instance that is not documented to be thread-safe, so single, batch and
+    // streamed predictions take turns on this lock. Several threads only pay off for the work
+    // around a prediction: reading headers, looking up the result cache and decoding results.
+    private final Object senseLock = new Object();
+
+    // Predictions on silence after init, so the first prediction does not pay for loading the
+    // model. 0 disables the warm-up.
+    private static final int WARM_UP_PREDICTS = 1;
+    private static final int WARM_UP_SAMPLE_RATE = 22050;
+    // Cold start, init, warm-up and first prediction times, logged when the first result is in
+    private final StartupMetrics startupMetrics = new StartupMetrics();
+    private boolean senseInitStarted = false;
+    // Only the first start of the process is a cold start
+    private static boolean processStarted = false;
+    // The SDK is not terminated if a prediction has not returned by then
+    private static final long TERMINATE_TIMEOUT_MS = 30_000;
+    // Terminates the SDK of the last activity, e.g. before a rotation; the next one initializes
+    // it after that
+    private static volatile Thread shutdownThread = null;
+
+    // Predict, batch and streaming jobs that may run at the same time; more are queued. Sense
+    // predicts one file at a time anyway, and a batch run has its own threads.
+    private static final int INFERENCE_THREADS = 2;
+    // Threads of the activity, shut down when it is destroyed
+    private AppExecutors executors;
+
+    // Batch mode scores every WAV file in the files directory on this many threads: one predicts
+    // while the other looks up the cache and reads the next file
+    private static final int BATCH_PARALLELISM = 2;
+    private static final int BATCH_QUEUE_CAPACITY = BATCH_PARALLELISM * 2;
+
+    // Results of clips that were already scored with the same parameters
+    private static final long RESULT_CACHE_MAX_BYTES = 8 * 1024 * 1024;
+    // Lines kept in the event list; older lines are dropped
+    private static final int EVENT_LOG_MAX_LINES = 1000;
+    // Show the detailed result as indented JSON instead of one line per frame
+    private static final boolean VERBOSE_RESULT = false;
+    // Results are described from the batch and streaming threads; each gets its own decoder
+    private static final ThreadLocal<ResultDecoder> resultDecoder =
+            ThreadLocal.withInitial(ResultDecoder::new);
+    private ResultCache resultCache = null;
+    // Every result, of single, batch and streamed predictions, is also journaled to the app's
+    // files directory and can be exported to CSV and JSON Lines
+    private static final boolean JOURNAL_RESULTS = true;
+    private ResultJournal journal = null;
 
     private boolean settingsButtonClicked = false;
-    private ProgressBar progressBar;
-    private TextView event;
+    // Jobs that show the progress overlay: init, predict and batch runs. Changes are always
+    // posted, so the first one, from senseInit in onCreate, arrives once the layout is inflated.
+    private TaskTracker tasks;
+    private ProgressOverlay progressOverlay;
+    // The streamed file, whose progress is shown on the stream button instead
+    private TaskTracker streamTasks;
+    private EventLog eventLog;
     private Adapter adapter;
     private boolean fileSelected = false;
     private Item selectedItem = null;
+    private volatile StreamingFilePredictor streamingPredictor = null;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        startupMetrics.begin(processStarted ? 0
+                : SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime());
+        processStarted = true;
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        executors = new AppExecutors(INFERENCE_THREADS, Process::setThreadPriority, mainHandler::post);
+        tasks = new TaskTracker(executors.getUi(), this::onTasksChanged);
+        if (JOURNAL_RESULTS) {
+            // Written and synced on the io executor, never on an inference thread
+            journal = new ResultJournal(new File(getFilesDir(), "journal"), new ResultJournal.Config(),
+                    executors.getIo(), mainHandler::postDelayed);
+        }
+        // The SDK is initialized while the layout is inflated and the assets are extracted
+        boolean permitted = checkPermissions();
+        if (permitted) {
+            senseInit();
+        }
+
         setContentView(R.layout.activity_main);
         Objects.requireNonNull(getSupportActionBar()).hide();
 
-        event = findViewById(R.id.event);
-        event.setMovementMethod(new ScrollingMovementMethod());
+        eventLog = new EventLog(findViewById(R.id.event), EVENT_LOG_MAX_LINES);
 
         RecyclerView recyclerView = findViewById(R.id.files);
         recyclerView.setLayoutManager(new LinearLayoutManager(this, RecyclerView.VERTICAL, false));
@@ -68,121 +143,371 @@ public class MainActivity extends AppCompatActivity {
         recyclerView.setAdapter(adapter);
 
         Button btnPredict = findViewById(R.id.predict);
+        Button btnPredictAll = findViewById(R.id.predict_all);
+        Button btnStream = findViewById(R.id.stream);
         Button btnClear = findViewById(R.id.clear);
+        Button btnExport = findViewById(R.id.export);
 
         btnPredict.setEnabled(false);
-        btnClear.setOnClickListener(v -> event.setText(""));
-
-        progressBar = new ProgressBar(new Handler(Looper.getMainLooper()), findViewById(R.id.inc_progress_bar));
+        btnStream.setEnabled(false);
+        btnClear.setOnClickListener(v -> eventLog.Clear());
+        btnExport.setEnabled(journal != null);
+        btnExport.setOnClickListener(v -> exportJournal());
+
+        progressOverlay = new ProgressOverlay(findViewById(R.id.inc_progress_bar));
+        streamTasks = new TaskTracker(executors.getUi(), (activeTasks, done, total) -> {
+            if (activeTasks == 0) {
+                btnStream.setText(R.string.stream);
+            } else {
+                btnStream.setText(getString(R.string.cancel_stream,
+                        total > 0 ? (int) (done * 100 / total) : 0));
+            }
+        });
 
         adapter.SetOnItemClickListener((viewHolder, view, position) -> {
             if (!fileSelected) {
                 fileSelected = true;
                 btnPredict.setEnabled(true);
+                btnStream.setEnabled(true);
             }
             selectedItem = adapter.GetItem(position);
         });
         btnPredict.setOnClickListener(v -> {
-            if (!fileSelected) return;
+            // sense is set once the SDK is initialized and warmed up
+            if (!fileSelected || sense == null) return;
 
-            new Thread(() -> {
-                sensePredict(selectedItem.GetFile());
+            File file = selectedItem.GetFile();
+            executors.getInference().execute(() -> {
+                sensePredict(file);
                 fileSelected = false;
                 selectedItem = null;
-                runOnUiThread(() -> btnPredict.setEnabled(false));
-            }).start();
+                executors.getUi().execute(() -> btnPredict.setEnabled(false));
+            });
+        });
+        btnPredictAll.setOnClickListener(v -> {
+            btnPredictAll.setEnabled(false);
+            File directory = getExternalFilesDir(null);
+            executors.getInference().execute(() -> {
+                sensePredictAll(directory);
+                executors.getUi().execute(() -> btnPredictAll.setEnabled(true));
+            });
+        });
+        btnStream.setOnClickListener(v -> {
+            // While a file is being streamed, the button cancels it
+            StreamingFilePredictor running = streamingPredictor;
+            if (running != null) {
+                running.cancel();
+                return;
+            }
+            if (!fileSelected || sense == null) return;
+
+            File file = selectedItem.GetFile();
+            StreamingFilePredictor predictor = new StreamingFilePredictor(this::predictFrame, sense.getHopSize());
+            streamingPredictor = predictor;
+            executors.getInference().execute(() -> {
+                sensePredictStreaming(predictor, file);
+                streamingPredictor = null;
+            });
         });
 
-        copyAssets();
-        addWavFiles();
+        extractAssets();
 
-        if (!checkPermissions()) {
+        if (!permitted) {
             requestPermissions();
-        } else {
-            senseInit();
         }
     }
 
     private void senseInit() {
-        new Thread(() -> {
-            Thread thread = new Thread(progressBar);
-            thread.start();
+        if (senseInitStarted) {
+            return;
+        }
+        senseInitStarted = true;
+        TaskTracker.Task initTask = tasks.begin();
+        new SenseStartup(WARM_UP_PREDICTS, WARM_UP_SAMPLE_RATE, startupMetrics).start(executors.getInference(),
+                this::initSense,
+                (samples, sampleRate) -> Sense.getInstance().predict(samples, sampleRate),
+                new SenseStartup.Listener() {
+                    @Override
+                    public void onReady(float hopSeconds) {
+                        sense = Sense.getInstance();
+                        Log.i(TAG, "Startup: " + startupMetrics.report());
+                        initTask.close();
+                    }
+
+                    @Override
+                    public void onError(RuntimeException e) {
+                        initTask.close();
+                        executors.getUi().execute(() -> {
+                            GetToast(MainActivity.this, e.getMessage()).show();
+                            finish();
+                        });
+                    }
+                });
+    }
+
+    // Returns the hop size in seconds
+    private float initSense() {
+        Thread previous = shutdownThread;
+        if (previous != null) {
+            try {
+                previous.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while the SDK was terminated", e);
+            }
+        }
+        Sense sense = Sense.getInstance();
 
-            sense = Sense.getInstance();
+        Sense.Parameters senseParams = new Sense.Parameters();
+        senseParams.metrics.retentionPeriod = 0;  // days
+        senseParams.metrics.freeDiskSpace = 100;  // MB
+        senseParams.metrics.pushPeriod = 30;      // seconds
 
-            Sense.Parameters senseParams = new Sense.Parameters();
-            senseParams.metrics.retentionPeriod = 0;  // days
-            senseParams.metrics.freeDiskSpace = 100;  // MB
-            senseParams.metrics.pushPeriod = 30;      // seconds
+        senseParams.deviceName = "Android device.";
 
-            senseParams.deviceName = "Android device.";
+        senseParams.logLevel = 0;
 
-            senseParams.logLevel = 0;
+        senseParams.sensitivityControl.enable = true;
+        senseParams.resultAbbreviation.enable = true;
 
-            senseParams.sensitivityControl.enable = true;
-            senseParams.resultAbbreviation.enable = true;
+        sense.init(projectKey, senseParams);  // throws CochlException
 
+        try {
+            resultCache = new ResultCache(new File(getCacheDir(), "predictions"),
+                    RESULT_CACHE_MAX_BYTES);
+        } catch (IOException e) {
+            e.printStackTrace();  // predict without cache
+        }
+        return sense.getHopSize();
+    }
+
+    // Frame-level predict of the streaming mode
+    private JSONObject predictFrame(float[] window, int sampleRate) {
+        JSONObject result;
+        synchronized (senseLock) {
+            long start = System.nanoTime();
+            result = sense.predict(window, sampleRate);
+            recordPredict(start);
+        }
+        return result;
+    }
+
+    private void recordPredict(long startNanos) {
+        if (startupMetrics.recordPredict(startNanos, System.nanoTime())) {
+            Log.i(TAG, "Startup: " + startupMetrics.report());
+        }
+    }
+
+    // Returns the cached result if this clip was already scored with the same parameters
+    private JSONObject predict(File file) throws JSONException {
+        String parameters = resultCacheParameters();
+        if (resultCache != null) {
             try {
-                sense.init(projectKey, senseParams);
-            } catch (CochlException e) {
-                runOnUiThread(() -> {
-                    GetToast(this, e.getMessage()).show();
-                    finish();
-                });
+                String cached = resultCache.get(file, parameters);
+                if (cached != null) {
+                    JSONObject result = new JSONObject(cached);
+                    journal(file.getName(), result);
+                    return result;
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
             }
+        }
 
-            runOnUiThread(() -> progressBar.setStop());
-        }).start();
+        JSONObject result;
+        synchronized (senseLock) {
+            long start = System.nanoTime();
+            result = sense.predict(file.getAbsolutePath());
+            recordPredict(start);
+        }
+        journal(file.getName(), result);
+        if (resultCache != null) {
+            try {
+                resultCache.put(file, parameters, result.toString());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return result;
     }
 
-    private void sensePredict(File file) {
-        Thread thread = new Thread(progressBar);
-        thread.start();
+    // Called from the inference threads; only encodes the frames, the io executor writes them
+    private void journal(String source, JSONObject result) throws JSONException {
+        if (journal == null) {
+            return;
+        }
+        ResultDecoder decoder = resultDecoder.get();
+        decoder.decode(result);
+        journal.append(System.currentTimeMillis(), source, decoder);
+    }
+
+    // Writes the journal to CSV and JSON Lines files next to the clips, on the io executor
+    private void exportJournal() {
+        File directory = getExternalFilesDir("exports");
+        String name = "results-" + System.currentTimeMillis();
+        executors.getIo().execute(() -> {
+            File[] files = {new File(directory, name + ".csv"), new File(directory, name + ".jsonl")};
+            ResultJournal.Format[] formats = {ResultJournal.Format.CSV, ResultJournal.Format.JSONL};
+            try {
+                for (int i = 0; i < files.length; ++i) {
+                    try (Writer writer = new BufferedWriter(new FileWriter(files[i]))) {
+                        journal.export(writer, formats[i]);
+                    }
+                }
+                executors.getUi().execute(() ->
+                        GetToast(this, "Exported to " + directory).show());
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to export the journal", e);
+                executors.getUi().execute(() ->
+                        GetToast(this, "Export failed: " + e.getMessage()).show());
+            }
+        });
+    }
+
+    // Parameters that change the result of a prediction and therefore belong to the cache key
+    private String resultCacheParameters() {
+        Sense.Parameters parameters = sense.getParameters();
+        return "sensitivityControl=" + parameters.sensitivityControl.enable
+                + ",resultAbbreviation=" + parameters.resultAbbreviation.enable;
+    }
 
+    private void sensePredict(File file) {
+        if (sense == null) {
+            return;
+        }
+        TaskTracker.Task task = tasks.begin();
         try {
-            String filePath = file.getAbsolutePath();
-            JSONObject result = sense.predict(filePath);
+            JSONObject result = predict(file);
 
             boolean resultAbbreviation = sense.getParameters().resultAbbreviation.enable;
+            ResultDecoder decoder = resultDecoder.get();
+            decoder.decode(result);
             if (resultAbbreviation) {
-                JSONArray abbreviations = result.getJSONArray("abbreviations");
                 Append("<Result summary>");
-                for (int i = 0; i < abbreviations.length(); ++i) {
-                    Append(abbreviations.getString(i));
-                    // Even if you use the result abbreviation, you can still get precise
-                    // results like below if necessary:
-                    // Append(result.getJSONObject("result").toString(2));
+                for (int i = 0; i < decoder.getAbbreviationCount(); ++i) {
+                    Append(decoder.getAbbreviation(i));
                 }
-            } else {
-                Append(result.getJSONObject("result").toString(2));
+            } else if (!VERBOSE_RESULT) {
+                for (int i = 0; i < decoder.getFrameCount(); ++i) {
+                    Append(decoder.formatFrame(i));
+                }
+            }
+            // Even if you use the result abbreviation, you can still get precise
+            // results like below if necessary
+            if (VERBOSE_RESULT) {
+                Append(ResultDecoder.prettyPrint(result));
             }
         } catch (JSONException e) {
             e.printStackTrace();
         } catch (CochlException e) {
-            runOnUiThread(() -> GetToast(this, e.getMessage()).show());
+            executors.getUi().execute(() -> GetToast(this, e.getMessage()).show());
         } finally {
-            runOnUiThread(() -> progressBar.setStop());
+            task.close();
         }
     }
 
-    private void Append(String msg) {
-        String currentText = (event.getText().toString() + msg + "\n");
+    private void sensePredictStreaming(StreamingFilePredictor predictor, File file) {
+        boolean resultAbbreviation = sense.getParameters().resultAbbreviation.enable;
+        executors.getUi().execute(() -> Append("<Streaming " + file.getName() + ">"));
+
+        try (TaskTracker.Task task = streamTasks.begin()) {
+            boolean completed = predictor.run(file, new StreamingFilePredictor.Listener() {
+                @Override
+                public void onFrame(JSONObject result, double startSeconds) {
+                    try {
+                        journal(file.getName(), result);
+                    } catch (JSONException e) {
+                        e.printStackTrace();
+                    }
+                    String line = String.format(Locale.US, "[%.1f s] %s", startSeconds,
+                            describe(result, resultAbbreviation));
+                    executors.getUi().execute(() -> Append(line));
+                }
+
+                @Override
+                public void onProgress(long framesRead, long totalFrames) {
+                    task.setTotal(totalFrames);
+                    task.setProgress(framesRead);
+                }
+            });
+            executors.getUi().execute(() -> Append(completed ? "<Streaming done>" : "<Streaming cancelled>"));
+        } catch (Exception e) {
+            executors.getUi().execute(() -> GetToast(this, e.getMessage()).show());
+        }
+    }
+
+    private void sensePredictAll(File directory) {
+        if (sense == null) {
+            return;
+        }
+
+        List<File> files = BatchPredictor.listWavFiles(directory);
+        // Progress in bytes, so a long recording counts for more than a short clip
+        TaskTracker.Task task = tasks.begin();
+        long totalBytes = 0;
+        for (File file : files) {
+            totalBytes += file.length();
+        }
+        task.setTotal(totalBytes);
+        boolean resultAbbreviation = sense.getParameters().resultAbbreviation.enable;
+        BatchPredictor batchPredictor = new BatchPredictor(path -> predict(new File(path)),
+                BATCH_PARALLELISM, BATCH_QUEUE_CAPACITY);
+
+        try {
+            executors.getUi().execute(() -> Append("<Batch: " + files.size() + " files, "
+                    + BATCH_PARALLELISM + " threads>"));
+            BatchPredictor.Summary summary = batchPredictor.run(files, (result, completed, total) -> {
+                String line = "[" + completed + "/" + total + "] " + result.file.getName() + ": "
+                        + describe(result, resultAbbreviation);
+                executors.getUi().execute(() -> Append(line));
+                task.addProgress(result.file.length());
+            });
+            executors.getUi().execute(() -> Append("<Batch summary> " + summary));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            task.close();
+        }
+    }
+
+    private String describe(BatchPredictor.Result result, boolean resultAbbreviation) {
+        if (!result.isSuccess()) {
+            return "failed (" + result.error.getMessage() + ")";
+        }
+        return describe(result.json, resultAbbreviation);
+    }
 
-        int maxTextViewStringLength = 8192;
-        if (currentText.length() > maxTextViewStringLength) {
-            int idx = currentText.indexOf('\n', currentText.length() - maxTextViewStringLength);
-            if (idx >= 0) {
-                currentText = currentText.substring(idx + 1);
+    private String describe(JSONObject result, boolean resultAbbreviation) {
+        if (VERBOSE_RESULT) {
+            try {
+                return ResultDecoder.prettyPrint(result);
+            } catch (JSONException e) {
+                return "invalid result (" + e.getMessage() + ")";
+            }
+        }
+
+        ResultDecoder decoder = resultDecoder.get();
+        decoder.decode(result);
+        StringBuilder sb = new StringBuilder();
+        if (resultAbbreviation) {
+            for (int i = 0; i < decoder.getAbbreviationCount(); ++i) {
+                sb.append(i == 0 ? "" : ", ").append(decoder.getAbbreviation(i));
+            }
+        } else {
+            for (int i = 0; i < decoder.getFrameCount(); ++i) {
+                sb.append(i == 0 ? "" : "\n");
+                decoder.getFrame(i).appendTo(sb);
             }
         }
+        return sb.toString();
+    }
 
-        event.setText(currentText);
+    private void onTasksChanged(int activeTasks, long done, long total) {
+        progressOverlay.onTasksChanged(activeTasks, done, total);
+    }
 
-        event.post(() -> {
-            final int scrollAmount =
-                    event.getLayout().getLineTop(event.getLineCount()) - event.getHeight();
-            event.scrollTo(0, Math.max(scrollAmount, 0));
-        });
+    private void Append(String msg) {
+        eventLog.Append(msg);
     }
 
     private Toast GetToast(Context context, String msg) {
@@ -271,58 +596,45 @@ public class MainActivity extends AppCompatActivity {
         alertDialog.show();
     }
 
-    private void copyAssets() {
-        AssetManager assetManager = getAssets();
-        String[] files = null;
-        try {
-            files = assetManager.list("");
-        } catch (IOException ignored) {
-        }
-        if (files == null) {
-            GetToast(this, "Failed to get asset file list.").show();
-            finish();
-        }
+    // Extracts the bundled clips off the main thread and lists each one as soon as it is ready.
+    // Clips already extracted by this build of the app are not copied again.
+    private void extractAssets() {
+        executors.getIo().execute(() -> {
+            File parent = Objects.requireNonNull(getExternalFilesDir(null));
+            Set<String> listed = new HashSet<>();
 
-        for (String filename : Objects.requireNonNull(files)) {
-            InputStream in = null;
-            OutputStream out = null;
             try {
-                in = assetManager.open(filename);
-                File outFile = new File(this.getExternalFilesDir(null), filename);
-                out = Files.newOutputStream(outFile.toPath());
-                copyFile(in, out);
-            } catch (IOException ignored) {
-            } finally {
-                if (in != null) {
-                    try {
-                        in.close();
-                    } catch (IOException ignored) {
-                    }
-                }
-                if (out != null) {
-                    try {
-                        out.close();
-                    } catch (IOException ignored) {
-                    }
-                }
+                long appVersionStamp = getPackageManager()
+                        .getPackageInfo(getPackageName(), 0).lastUpdateTime;
+                AssetExtractor extractor = new AssetExtractor(getAssets(), parent,
+                        new File(getNoBackupFilesDir(), "assets.stamp"), appVersionStamp);
+                extractor.extractAll(file -> {
+                    listed.add(file.getName());
+                    addWavFile(file);
+                });
+            } catch (IOException | PackageManager.NameNotFoundException e) {
+                executors.getUi().execute(() -> {
+                    GetToast(this, "Failed to extract asset files.").show();
+                    finish();
+                });
+                return;
             }
-        }
-    }
 
-    private void copyFile(InputStream in, OutputStream out) throws IOException {
-        byte[] buffer = new byte[1024];
-        int read;
-        while ((read = in.read(buffer)) != -1) {
-            out.write(buffer, 0, read);
-        }
+            // Clips that were added to the directory by other means, but not the exports
+            for (File file : Objects.requireNonNull(parent.listFiles())) {
+                if (file.isFile() && !listed.contains(file.getName())
+                        && !file.getName().endsWith(".tmp")) {
+                    addWavFile(file);
+                }
+            }
+        });
     }
 
-    private void addWavFiles() {
-        File parent = this.getExternalFilesDir(null);
-        for (String filename : Objects.requireNonNull(Objects.requireNonNull(parent).list())) {
-            adapter.AddItem(new Item(filename, new File(parent, filename)));
-        }
-        this.runOnUiThread(adapter::notifyDataSetChanged);
+    private void addWavFile(File file) {
+        executors.getUi().execute(() -> {
+            adapter.AddItem(new Item(file.getName(), file));
+            adapter.notifyItemInserted(adapter.getItemCount() - 1);
+        });
     }
 
     @Override
@@ -343,10 +655,33 @@ public class MainActivity extends AppCompatActivity {
 
     @Override
     protected void onDestroy() {
-        if (sense != null) {
-            sense.terminate();
-            sense = null;
+        StreamingFilePredictor running = streamingPredictor;
+        if (running != null) {
+            running.cancel();
         }
+        Log.i(TAG, executors.report());
+        // The SDK must not be terminated while it is being initialized or predicts, and a
+        // prediction of a long file cannot be interrupted, so the main thread does not wait for it.
+        // The journal is closed once the inference threads no longer append, and writes its last
+        // frames on the shutdown thread, as the io executor is gone by then.
+        ResultJournal closing = journal;
+        shutdownThread = executors.shutdownInBackground(TERMINATE_TIMEOUT_MS, TimeUnit.MILLISECONDS,
+                terminated -> {
+                    if (closing != null) {
+                        try {
+                            closing.close();
+                            Log.i(TAG, closing.toString());
+                        } catch (IOException e) {
+                            Log.w(TAG, "Failed to close the journal", e);
+                        }
+                    }
+                    if (!terminated) {
+                        Log.w(TAG, "A prediction is still running, not terminating the SDK");
+                    } else if (sense != null) {
+                        sense.terminate();
+                        sense = null;
+                    }
+                });
         super.onDestroy();
     }
 }
\ No newline at end of file
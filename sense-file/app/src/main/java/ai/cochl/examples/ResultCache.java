@@ -0,0 +1,227 @@
+package ai.cochl.examples;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Disk-backed cache of prediction results.
+ * <p>
+ * Entries are keyed by the SHA-256 of the audio content together with the parameters that
+ * change the result (e.g. sensitivity control and result abbreviation), so a renamed copy of a
+ * clip is still a hit while a changed setting is not. The content hash of a file is remembered
+ * for as long as its size and modification time are unchanged, which makes a repeated lookup a
+ * {@code stat} plus a small read.
+ * <p>
+ * Each entry is a file in the cache directory. The total size is capped; the least recently
+ * used entries are evicted first, and the order survives restarts through the entries'
+ * modification times.
+ */
+final class ResultCache {
+    private static final String SUFFIX = ".json";
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+    private final File directory;
+    private final long maxBytes;
+
+    // Entry key -> entry size in bytes, in access order
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes = 0;
+
+    private final Map<String, ContentHash> contentHashes = new ConcurrentHashMap<>();
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    private static final class ContentHash {
+        final long size;
+        final long lastModified;
+        final String hash;
+
+        ContentHash(long size, long lastModified, String hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+
+    ResultCache(File directory, long maxBytes) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create " + directory);
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        load();
+    }
+
+    // Returns the cached result text, or null on a miss
+    String get(File audioFile, String parameters) throws IOException {
+        return getEntry(keyOf(audioFile, parameters));
+    }
+
+    void put(File audioFile, String parameters, String result) throws IOException {
+        putEntry(keyOf(audioFile, parameters), result);
+    }
+
+    private synchronized String getEntry(String key) {
+        if (entries.get(key) == null) {
+            ++misses;
+            return null;
+        }
+
+        File entry = entryFile(key);
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(entry.toPath());
+        } catch (IOException e) {
+            // Removed behind our back; treat as a miss
+            totalBytes -= entries.remove(key);
+            ++misses;
+            return null;
+        }
+        //noinspection ResultOfMethodCallIgnored
+        entry.setLastModified(System.currentTimeMillis());
+        ++hits;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private synchronized void putEntry(String key, String result) throws IOException {
+        byte[] bytes = result.getBytes(StandardCharsets.UTF_8);
+
+        File entry = entryFile(key);
+        File tmp = new File(directory, key + ".tmp");
+        Files.write(tmp.toPath(), bytes);
+        Files.move(tmp.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+
+        Long previous = entries.put(key, (long) bytes.length);
+        totalBytes += bytes.length - (previous != null ? previous : 0);
+        evict();
+    }
+
+    synchronized void clear() {
+        for (String key : entries.keySet()) {
+            //noinspection ResultOfMethodCallIgnored
+            entryFile(key).delete();
+        }
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    synchronized long getEvictions() {
+        return evictions;
+    }
+
+    String keyOf(File audioFile, String parameters) throws IOException {
+        String content = contentHashOf(audioFile);
+        return sha256Hex((content + "\n" + parameters).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String contentHashOf(File file) throws IOException {
+        String path = file.getCanonicalPath();
+        long size = file.length();
+        long lastModified = file.lastModified();
+
+        ContentHash known = contentHashes.get(path);
+        if (known != null && known.size == size && known.lastModified == lastModified) {
+            return known.hash;
+        }
+
+        MessageDigest digest = newDigest();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(HASH_BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        String hash = toHex(digest.digest());
+        contentHashes.put(path, new ContentHash(size, lastModified, hash));
+        return hash;
+    }
+
+    private void load() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (files == null) {
+            return;
+        }
+        // Least recently used first, so the access order matches the previous run
+        List<File> sorted = new ArrayList<>(Arrays.asList(files));
+        sorted.sort(Comparator.comparingLong(File::lastModified));
+        for (File file : sorted) {
+            String name = file.getName();
+            entries.put(name.substring(0, name.length() - SUFFIX.length()), file.length());
+            totalBytes += file.length();
+        }
+        evict();
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            //noinspection ResultOfMethodCallIgnored
+            entryFile(eldest.getKey()).delete();
+            totalBytes -= eldest.getValue();
+            it.remove();
+            ++evictions;
+        }
+    }
+
+    private File entryFile(String key) {
+        return new File(directory, key + SUFFIX);
+    }
+
+    private static String sha256Hex(byte[] bytes) {
+        return toHex(newDigest().digest(bytes));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);  // every Java platform provides SHA-256
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,157 @@
+package ai.cochl.examples;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Iterator;
+
+/**
+ * Decodes the {@code JSONObject} returned by {@code Sense.predict} into typed
+ * {@link FrameResult frames}.
+ * <p>
+ * The JSON is walked once with the {@code opt} accessors, which neither throw nor copy, and the
+ * values are written into frames and tags pooled by the decoder. Once the pools have grown to
+ * the largest result seen, decoding allocates nothing of its own. The decoded result stays valid
+ * until the next call to {@link #decode}, and the JSON is never modified, so it can still be
+ * logged or cached afterwards.
+ * <p>
+ * A decoder is not thread-safe; use one per thread.
+ */
+final class ResultDecoder {
+    static final String KEY_ABBREVIATIONS = "abbreviations";
+    static final String KEY_RESULT = "result";
+    static final String KEY_FRAME_RESULT = "frame_result";
+    static final String KEY_TAGS = "tags";
+    static final String KEY_NAME = "name";
+    static final String KEY_PROBABILITY = "probability";
+    static final String KEY_START_TIME = "start_time";
+    static final String KEY_END_TIME = "end_time";
+
+    private FrameResult[] frames = new FrameResult[0];
+    private int frameCount = 0;
+    private String[] abbreviations = new String[0];
+    private int abbreviationCount = 0;
+    private final StringBuilder line = new StringBuilder();
+
+    // Missing or malformed parts of the result are decoded as empty
+    void decode(JSONObject json) {
+        frameCount = 0;
+        abbreviationCount = 0;
+
+        JSONArray jsonAbbreviations = json.optJSONArray(KEY_ABBREVIATIONS);
+        if (jsonAbbreviations != null) {
+            for (int i = 0; i < jsonAbbreviations.length(); ++i) {
+                String abbreviation = jsonAbbreviations.optString(i, null);
+                if (abbreviation != null) {
+                    addAbbreviation(abbreviation);
+                }
+            }
+        }
+
+        JSONObject body = json.optJSONObject(KEY_RESULT);
+        if (body == null) {
+            body = json;
+        }
+        JSONArray jsonFrames = body.optJSONArray(KEY_FRAME_RESULT);
+        if (jsonFrames != null) {
+            for (int i = 0; i < jsonFrames.length(); ++i) {
+                JSONObject jsonFrame = jsonFrames.optJSONObject(i);
+                if (jsonFrame != null) {
+                    decodeFrame(jsonFrame, addFrame());
+                }
+            }
+        } else if (body.has(KEY_TAGS)) {
+            decodeFrame(body, addFrame());
+        }
+    }
+
+    int getFrameCount() {
+        return frameCount;
+    }
+
+    FrameResult getFrame(int index) {
+        if (index < 0 || index >= frameCount) {
+            throw new IndexOutOfBoundsException("Frame " + index + " of " + frameCount);
+        }
+        return frames[index];
+    }
+
+    int getAbbreviationCount() {
+        return abbreviationCount;
+    }
+
+    String getAbbreviation(int index) {
+        if (index < 0 || index >= abbreviationCount) {
+            throw new IndexOutOfBoundsException("Abbreviation " + index + " of " + abbreviationCount);
+        }
+        return abbreviations[index];
+    }
+
+    // One line per frame, built in a reused buffer
+    String formatFrame(int index) {
+        line.setLength(0);
+        return getFrame(index).appendTo(line).toString();
+    }
+
+    // Verbose output: the detailed result as indented JSON, without the abbreviations
+    static String prettyPrint(JSONObject json) throws JSONException {
+        JSONObject body = json.optJSONObject(KEY_RESULT);
+        if (body != null) {
+            return body.toString(2);
+        }
+        if (!json.has(KEY_ABBREVIATIONS)) {
+            return json.toString(2);
+        }
+        JSONObject copy = new JSONObject();
+        for (Iterator<String> keys = json.keys(); keys.hasNext(); ) {
+            String key = keys.next();
+            if (!KEY_ABBREVIATIONS.equals(key)) {
+                copy.put(key, json.get(key));
+            }
+        }
+        return copy.toString(2);
+    }
+
+    private static void decodeFrame(JSONObject jsonFrame, FrameResult frame) {
+        frame.startTime = jsonFrame.optDouble(KEY_START_TIME, 0);
+        frame.endTime = jsonFrame.optDouble(KEY_END_TIME, 0);
+
+        JSONArray jsonTags = jsonFrame.optJSONArray(KEY_TAGS);
+        if (jsonTags == null) {
+            return;
+        }
+        for (int i = 0; i < jsonTags.length(); ++i) {
+            JSONObject jsonTag = jsonTags.optJSONObject(i);
+            if (jsonTag == null) {
+                continue;
+            }
+            TagScore tag = frame.addTag();
+            tag.name = jsonTag.optString(KEY_NAME, "");
+            tag.probability = (float) jsonTag.optDouble(KEY_PROBABILITY, 0);
+        }
+    }
+
+    private FrameResult addFrame() {
+        if (frameCount == frames.length) {
+            FrameResult[] grown = new FrameResult[Math.max(1, frames.length * 2)];
+            System.arraycopy(frames, 0, grown, 0, frames.length);
+            for (int i = frames.length; i < grown.length; ++i) {
+                grown[i] = new FrameResult();
+            }
+            frames = grown;
+        }
+        FrameResult frame = frames[frameCount++];
+        frame.clear();
+        return frame;
+    }
+
+    private void addAbbreviation(String abbreviation) {
+        if (abbreviationCount == abbreviations.length) {
+            String[] grown = new String[Math.max(4, abbreviations.length * 2)];
+            System.arraycopy(abbreviations, 0, grown, 0, abbreviations.length);
+            abbreviations = grown;
+        }
+        abbreviations[abbreviationCount++] = abbreviation;
+    }
+}
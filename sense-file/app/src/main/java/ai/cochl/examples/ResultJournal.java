@@ -0,0 +1,614 @@
+package ai.cochl.examples;
+
+import org.json.JSONObject;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Persistent, append-only journal of the frame results, kept in a directory of segment files.
+ * <p>
+ * Every frame is one record: the wall-clock time, the source (a file name or a channel), the time
+ * range of the frame in the audio and the score of each tag. Tag and source names are written
+ * once per segment and referred to by a small id afterwards, times are delta coded, and all
+ * numbers are varints, so a frame with a handful of tags takes some 20 bytes. Scores are kept in
+ * thousandths and times in milliseconds.
+ * <p>
+ * {@link #append} only encodes the frame into a buffer in memory and never touches the file, so
+ * it is safe on the audio and inference threads. The buffer is written and synced by a flush on
+ * the given writer executor, scheduled once {@code flushBytes} have piled up or, through the
+ * given timer, {@code flushIntervalMillis} after the first frame that is not on disk yet, so the
+ * last frames before a pause are written too. While a flush is stuck, appends keep going into
+ * the buffer up to {@code maxPendingBytes}; frames beyond that are dropped and counted rather
+ * than blocking the caller. Once the writer rejects work, e.g. after it was shut down, frames
+ * stay in the buffer until {@link #close()}.
+ * <p>
+ * A flush that fails, e.g. because the storage is full, loses the frames of that flush and is
+ * counted. The next frame then starts a new segment, so the journal keeps trying to write.
+ * <p>
+ * A new segment is started once the current one reaches {@code segmentBytes}, and every segment
+ * is self-contained. When a segment is started, the oldest ones are deleted until the journal
+ * fits in {@code maxBytes} and holds nothing older than {@code maxAgeMillis}. Each run of the
+ * app starts a new segment, so a record cut short by a crash only ends the segment it is in.
+ * <p>
+ * {@link #export} streams the whole journal to CSV, one line per tag, or to JSON Lines, one
+ * object per frame, without loading it into memory.
+ */
+final class ResultJournal implements Closeable {
+    enum Format {
+        CSV,
+        JSONL
+    }
+
+    // Runs a task once after a delay, e.g. Handler.postDelayed in the app
+    interface Timer {
+        void schedule(Runnable task, long delayMillis);
+    }
+
+    static final class Config {
+        long segmentBytes = 1024 * 1024;
+        // About 3 days of a stream with a few tags per hop, at most
+        long maxBytes = 64L * 1024 * 1024;
+        long maxAgeMillis = 7L * 24 * 60 * 60 * 1000;
+        int flushBytes = 32 * 1024;
+        long flushIntervalMillis = 10_000;
+        int maxPendingBytes = 1024 * 1024;
+    }
+
+    private static final byte[] MAGIC = {'S', 'R', 'J', '1'};
+    private static final int RECORD_NAME = 1;
+    private static final int RECORD_FRAME = 2;
+    private static final String SEGMENT_PREFIX = "results-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final File directory;
+    private final Config config;
+    private final Executor writer;
+    private final Timer timer;
+    private final Runnable onTimer = this::onTimer;
+
+    // Encoder state, guarded by this
+    private byte[] pending = new byte[4096];
+    private int pendingLength = 0;
+    // Offsets in pending at which a new segment begins
+    private int[] segmentStarts = new int[4];
+    private int segmentStartCount = 0;
+    private byte[] spare = new byte[4096];
+    private final Map<String, Integer> ids = new HashMap<>();
+    private int[] tagIds = new int[8];
+    private long segmentLength = 0;
+    private boolean segmentStarted = false;
+    private long lastTimeMillis = 0;
+    private boolean flushScheduled = false;
+    private boolean timerScheduled = false;
+    private long appended = 0;
+    private long dropped = 0;
+    private boolean closed = false;
+
+    // File state, guarded by fileLock
+    private final Object fileLock = new Object();
+    private int segmentIndex = -1;
+    private File segmentFile = null;
+    private FileOutputStream segmentStream = null;
+    private OutputStream segmentOut = null;
+    private long written = 0;
+    private long failedFlushes = 0;
+
+    ResultJournal(File directory, Config config, Executor writer, Timer timer) {
+        if (config.segmentBytes <= 0 || config.maxBytes < config.segmentBytes) {
+            throw new IllegalArgumentException("maxBytes must hold at least one segment");
+        }
+        this.directory = directory;
+        this.config = config;
+        this.writer = writer;
+        this.timer = timer;
+    }
+
+    /**
+     * Adds every frame of the decoded result. Returns false if the frames were dropped because
+     * the journal is closed or its buffer is full.
+     */
+    boolean append(long timeMillis, String source, ResultDecoder decoder) {
+        boolean added = true;
+        for (int i = 0; i < decoder.getFrameCount(); ++i) {
+            added &= append(timeMillis, source, decoder.getFrame(i));
+        }
+        return added;
+    }
+
+    // Same as above, for a single frame
+    boolean append(long timeMillis, String source, FrameResult frame) {
+        boolean flushDue;
+        boolean timerDue;
+        synchronized (this) {
+            if (closed || pendingLength >= config.maxPendingBytes) {
+                ++dropped;
+                return false;
+            }
+            encode(timeMillis, source, frame);
+            flushDue = !flushScheduled && pendingLength >= config.flushBytes;
+            flushScheduled |= flushDue;
+            timerDue = !flushDue && !flushScheduled && !timerScheduled;
+            timerScheduled |= timerDue;
+        }
+        // Outside the lock: an executor may run the flush right away
+        if (flushDue) {
+            scheduleFlush();
+        } else if (timerDue) {
+            timer.schedule(onTimer, config.flushIntervalMillis);
+        }
+        return true;
+    }
+
+    /**
+     * Writes what has been appended so far and syncs it to storage. Called on the writer
+     * executor, or by whoever wants the journal on disk right now, e.g. before an export.
+     */
+    void flush() throws IOException {
+        synchronized (fileLock) {
+            byte[] chunk;
+            int length;
+            int[] starts;
+            synchronized (this) {
+                flushScheduled = false;
+                chunk = pending;
+                length = pendingLength;
+                starts = Arrays.copyOf(segmentStarts, segmentStartCount);
+                pending = spare;
+                pendingLength = 0;
+                segmentStartCount = 0;
+            }
+
+            try {
+                int offset = 0;
+                for (int i = 0; i <= starts.length; ++i) {
+                    int end = i < starts.length ? starts[i] : length;
+                    if (end > offset) {
+                        if (segmentOut == null) {
+                            throw new IllegalStateException("Records before the first segment");
+                        }
+                        segmentOut.write(chunk, offset, end - offset);
+                        written += end - offset;
+                        offset = end;
+                    }
+                    if (i < starts.length) {
+                        openNextSegment();
+                    }
+                }
+                if (segmentOut != null) {
+                    segmentOut.flush();
+                    segmentStream.getFD().sync();
+                }
+            } catch (IOException | RuntimeException e) {
+                restartSegment();
+                throw e;
+            } finally {
+                synchronized (this) {
+                    spare = chunk;
+                }
+            }
+        }
+    }
+
+    /**
+     * Streams the whole journal, oldest first, to {@code out}. Frames appended meanwhile may or
+     * may not be included. Called on a background thread; the journal stays open for appends.
+     */
+    void export(Writer out, Format format) throws IOException {
+        flush();
+        List<File> segments;
+        synchronized (fileLock) {
+            segments = listSegments();
+        }
+
+        if (format == Format.CSV) {
+            out.write("time_ms,source,start_s,end_s,tag,score\n");
+        }
+        StringBuilder line = new StringBuilder();
+        for (File segment : segments) {
+            InputStream in;
+            try {
+                in = new FileInputStream(segment);
+            } catch (FileNotFoundException e) {
+                continue;  // deleted by the retention meanwhile
+            }
+            try (DataInputStream data = new DataInputStream(new BufferedInputStream(in))) {
+                exportSegment(data, out, format, line);
+            }
+        }
+        out.flush();
+    }
+
+    synchronized long getAppendedCount() {
+        return appended;
+    }
+
+    synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    long getWrittenBytes() {
+        synchronized (fileLock) {
+            return written;
+        }
+    }
+
+    // Flushes and closes the current segment; later appends are dropped
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        synchronized (fileLock) {
+            try {
+                flush();
+            } finally {
+                if (segmentOut != null) {
+                    segmentOut.close();
+                    segmentOut = null;
+                    segmentStream = null;
+                }
+            }
+        }
+    }
+
+    long getFailedFlushCount() {
+        synchronized (fileLock) {
+            return failedFlushes;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "journal: %d frames, %d dropped, %d KB written, %d failed flushes",
+                getAppendedCount(), getDroppedCount(), getWrittenBytes() / 1024,
+                getFailedFlushCount());
+    }
+
+    private void onTimer() {
+        boolean flushDue;
+        synchronized (this) {
+            timerScheduled = false;
+            flushDue = !closed && !flushScheduled && pendingLength > 0;
+            flushScheduled |= flushDue;
+        }
+        if (flushDue) {
+            scheduleFlush();
+        }
+    }
+
+    private void scheduleFlush() {
+        try {
+            writer.execute(this::flushQuietly);
+        } catch (RejectedExecutionException e) {
+            // Shut down: the frames wait for close(), which the owner calls after the writer
+            synchronized (this) {
+                flushScheduled = false;
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException | RuntimeException e) {
+            // Counted in failedFlushes; the next frame starts a new segment
+            e.printStackTrace();
+        }
+    }
+
+    // After a failed flush, called with fileLock held. The frames of the failed flush are lost,
+    // and so are those appended since to the same segment: their names were in the lost part.
+    // The next frame starts a new segment, which opens a new file.
+    private void restartSegment() {
+        ++failedFlushes;
+        if (segmentOut != null) {
+            try {
+                segmentOut.close();
+            } catch (IOException ignored) {
+                // The segment is abandoned anyway
+            }
+            segmentOut = null;
+            segmentStream = null;
+        }
+        synchronized (this) {
+            int keep = segmentStartCount > 0 ? segmentStarts[0] : pendingLength;
+            System.arraycopy(pending, keep, pending, 0, pendingLength - keep);
+            pendingLength -= keep;
+            for (int i = 0; i < segmentStartCount; ++i) {
+                segmentStarts[i] -= keep;
+            }
+            if (segmentStartCount == 0) {
+                segmentStarted = false;
+            }
+        }
+    }
+
+    // Encoder, called with the lock held
+
+    private void encode(long timeMillis, String source, FrameResult frame) {
+        if (!segmentStarted || segmentLength >= config.segmentBytes) {
+            beginSegment();
+        }
+
+        // Names first; they are records of their own
+        int sourceId = id(source);
+        int tagCount = frame.getTagCount();
+        if (tagIds.length < tagCount) {
+            tagIds = new int[tagCount];
+        }
+        for (int i = 0; i < tagCount; ++i) {
+            tagIds[i] = id(frame.getTag(i).name);
+        }
+
+        int start = pendingLength;
+        long startMillis = Math.round(frame.startTime * 1000);
+        writeByte(RECORD_FRAME);
+        writeVarLong(zigZag(timeMillis - lastTimeMillis));
+        writeVarLong(sourceId);
+        writeVarLong(Math.max(0, startMillis));
+        writeVarLong(Math.max(0, Math.round(frame.endTime * 1000) - startMillis));
+        writeVarLong(tagCount);
+        for (int i = 0; i < tagCount; ++i) {
+            writeVarLong(tagIds[i]);
+            writeVarLong(Math.round(Math.min(1f, Math.max(0f, frame.getTag(i).probability)) * 1000));
+        }
+        lastTimeMillis = timeMillis;
+        segmentLength += pendingLength - start;
+        ++appended;
+    }
+
+    private void beginSegment() {
+        if (segmentStartCount == segmentStarts.length) {
+            segmentStarts = Arrays.copyOf(segmentStarts, segmentStarts.length * 2);
+        }
+        segmentStarts[segmentStartCount++] = pendingLength;
+        ids.clear();
+        lastTimeMillis = 0;
+        for (byte b : MAGIC) {
+            writeByte(b);
+        }
+        segmentLength = MAGIC.length;
+        segmentStarted = true;
+    }
+
+    private int id(String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = ids.size();
+            ids.put(name, id);
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            int start = pendingLength;
+            writeByte(RECORD_NAME);
+            writeVarLong(id);
+            writeVarLong(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, pending, pendingLength, bytes.length);
+            pendingLength += bytes.length;
+            segmentLength += pendingLength - start;
+        }
+        return id;
+    }
+
+    private void writeByte(int b) {
+        ensureCapacity(1);
+        pending[pendingLength++] = (byte) b;
+    }
+
+    private void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            pending[pendingLength++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        pending[pendingLength++] = (byte) value;
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (pendingLength + bytes > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingLength + bytes));
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // Files, called with fileLock held
+
+    private void openNextSegment() throws IOException {
+        if (segmentOut != null) {
+            OutputStream previous = segmentOut;
+            segmentOut = null;
+            segmentStream = null;
+            previous.close();
+        }
+        if (segmentIndex < 0) {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Cannot create " + directory);
+            }
+            for (File segment : listSegments()) {
+                segmentIndex = Math.max(segmentIndex, indexOf(segment));
+            }
+        }
+        ++segmentIndex;
+        segmentFile = new File(directory, String.format(Locale.US, "%s%08d%s",
+                SEGMENT_PREFIX, segmentIndex, SEGMENT_SUFFIX));
+        segmentStream = new FileOutputStream(segmentFile);
+        segmentOut = new BufferedOutputStream(segmentStream, 16 * 1024);
+        applyRetention();
+    }
+
+    // Deletes the oldest segments until the rest fit the size and age limits
+    private void applyRetention() {
+        List<File> segments = listSegments();
+        long total = 0;
+        for (File segment : segments) {
+            total += segment.length();
+        }
+        long oldest = System.currentTimeMillis() - config.maxAgeMillis;
+        for (File segment : segments) {
+            if (segment.equals(segmentFile)) {
+                break;
+            }
+            if (total + config.segmentBytes <= config.maxBytes && segment.lastModified() >= oldest) {
+                break;
+            }
+            long length = segment.length();
+            if (segment.delete()) {
+                total -= length;
+            }
+        }
+    }
+
+    // Oldest first
+    private List<File> listSegments() {
+        File[] files = directory.listFiles((dir, name) ->
+                name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        List<File> segments = new ArrayList<>();
+        if (files != null) {
+            segments.addAll(Arrays.asList(files));
+        }
+        segments.sort((a, b) -> Integer.compare(indexOf(a), indexOf(b)));
+        return segments;
+    }
+
+    private static int indexOf(File segment) {
+        String name = segment.getName();
+        try {
+            return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(),
+                    name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Decoding
+
+    private static void exportSegment(DataInputStream in, Writer out, Format format,
+                                      StringBuilder line) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        try {
+            in.readFully(magic);
+        } catch (EOFException e) {
+            return;
+        }
+        if (!Arrays.equals(magic, MAGIC)) {
+            return;
+        }
+
+        List<String> names = new ArrayList<>();
+        long timeMillis = 0;
+        try {
+            int type;
+            while ((type = in.read()) != -1) {
+                if (type == RECORD_NAME) {
+                    int id = (int) readVarLong(in);
+                    byte[] bytes = new byte[(int) readVarLong(in)];
+                    in.readFully(bytes);
+                    while (names.size() <= id) {
+                        names.add(null);
+                    }
+                    names.set(id, new String(bytes, StandardCharsets.UTF_8));
+                } else if (type == RECORD_FRAME) {
+                    timeMillis += unZigZag(readVarLong(in));
+                    String source = names.get((int) readVarLong(in));
+                    long startMillis = readVarLong(in);
+                    long endMillis = startMillis + readVarLong(in);
+                    int tagCount = (int) readVarLong(in);
+
+                    line.setLength(0);
+                    if (format == Format.JSONL) {
+                        line.append("{\"time_ms\":").append(timeMillis)
+                                .append(",\"source\":").append(JSONObject.quote(source))
+                                .append(",\"start_s\":").append(startMillis / 1000.0)
+                                .append(",\"end_s\":").append(endMillis / 1000.0)
+                                .append(",\"tags\":[");
+                    }
+                    for (int i = 0; i < tagCount; ++i) {
+                        String tag = names.get((int) readVarLong(in));
+                        double score = readVarLong(in) / 1000.0;
+                        if (format == Format.JSONL) {
+                            line.append(i == 0 ? "" : ",").append("{\"name\":")
+                                    .append(JSONObject.quote(tag)).append(",\"score\":")
+                                    .append(score).append('}');
+                        } else {
+                            line.append(timeMillis).append(',');
+                            appendCsv(line, source);
+                            line.append(',').append(startMillis / 1000.0)
+                                    .append(',').append(endMillis / 1000.0).append(',');
+                            appendCsv(line, tag);
+                            line.append(',').append(score).append('\n');
+                        }
+                    }
+                    if (format == Format.JSONL) {
+                        line.append("]}\n");
+                    } else if (tagCount == 0) {
+                        line.append(timeMillis).append(',');
+                        appendCsv(line, source);
+                        line.append(',').append(startMillis / 1000.0)
+                                .append(',').append(endMillis / 1000.0).append(",,\n");
+                    }
+                    out.append(line);
+                } else {
+                    return;  // not a record; the rest of the segment cannot be read
+                }
+            }
+        } catch (EOFException | IndexOutOfBoundsException e) {
+            // A record cut short, by a crash or by a flush that is still going on
+        }
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static void appendCsv(StringBuilder out, String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            out.append(value);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            out.append(c == '"' ? "\"\"" : String.valueOf(c));
+        }
+        out.append('"');
+    }
+}
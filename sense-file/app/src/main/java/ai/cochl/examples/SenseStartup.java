@@ -0,0 +1,71 @@
+package ai.cochl.examples;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Initializes the Sense SDK on an executor and warms it up before the first real prediction.
+ * <p>
+ * The first {@code predict} after {@code init} pays for loading and preparing the model. The
+ * startup therefore ends with {@code warmUpPredicts} predictions on a silent two-hop window, the
+ * window the apps predict on, so the first detection costs no more than any later one. Everything
+ * runs on the given executor while the caller goes on with its own work, e.g. inflating the UI
+ * or extracting assets. The steps are timed into {@link StartupMetrics}.
+ */
+final class SenseStartup {
+    interface Init {
+        // sense.init, returning sense.getHopSize() in seconds
+        float init();
+    }
+
+    interface WarmUp {
+        void predict(float[] samples, int sampleRate);
+    }
+
+    // Called on the executor thread
+    interface Listener {
+        void onReady(float hopSeconds);
+
+        void onError(RuntimeException e);
+    }
+
+    private static final int HOPS_PER_WINDOW = 2;
+
+    private final int warmUpPredicts;
+    private final int sampleRate;
+    private final StartupMetrics metrics;
+
+    SenseStartup(int warmUpPredicts, int sampleRate, StartupMetrics metrics) {
+        if (warmUpPredicts < 0) {
+            throw new IllegalArgumentException("warmUpPredicts must not be negative");
+        }
+        this.warmUpPredicts = warmUpPredicts;
+        this.sampleRate = sampleRate;
+        this.metrics = metrics;
+    }
+
+    Future<?> start(ExecutorService executor, Init init, WarmUp warmUp, Listener listener) {
+        return executor.submit(() -> {
+            float hopSeconds;
+            try {
+                long start = System.nanoTime();
+                hopSeconds = init.init();
+                long initialized = System.nanoTime();
+                metrics.recordInit(initialized - start);
+
+                if (warmUpPredicts > 0) {
+                    float[] silence = new float[(int) (sampleRate * hopSeconds) * HOPS_PER_WINDOW];
+                    for (int i = 0; i < warmUpPredicts; ++i) {
+                        warmUp.predict(silence, sampleRate);
+                    }
+                    metrics.recordWarmUp(System.nanoTime() - initialized);
+                }
+                metrics.markReady();
+            } catch (RuntimeException e) {
+                listener.onError(e);
+                return;
+            }
+            listener.onReady(hopSeconds);
+        });
+    }
+}
@@ -0,0 +1,175 @@
+package ai.cochl.examples;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-length window over the most recent audio hops.
+ * <p>
+ * Hops are written into a ring, so appending never shifts the samples that are already in the
+ * window. A contiguous copy is only assembled when {@code view()} is called, i.e. right before
+ * the window is handed to {@code Sense.predict}, which takes a single array. Until the window has
+ * been filled, the samples that have not been written yet read as silence, which matches the
+ * zero-padded first frame of the previous copy-shift implementation.
+ * <p>
+ * When every hop is predicted, this copies as much as the copy-shift did, whatever the window
+ * size: {@code view()} copies the whole window unless the ring happens to be in order, which for
+ * the 2-hop window of the apps is every other hop. The saving is for the hops that are appended
+ * but not predicted, e.g. the windows an energy gate finds quiet or the hops coalesced while
+ * inference catches up, which only pay for writing the hop.
+ */
+public abstract class SlidingAudioWindow {
+    protected final int hopSize;
+    protected final int windowSize;
+
+    // Next slot of the ring to be written. Once the window is full it is also the oldest sample.
+    protected int writeIndex = 0;
+    protected int size = 0;
+    protected boolean viewValid = false;
+
+    SlidingAudioWindow(int hopSize, int hopsPerWindow) {
+        if (hopSize <= 0 || hopsPerWindow <= 0) {
+            throw new IllegalArgumentException("hopSize and hopsPerWindow must be positive");
+        }
+        this.hopSize = hopSize;
+        this.windowSize = hopSize * hopsPerWindow;
+    }
+
+    public int getHopSize() {
+        return hopSize;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    // Number of valid samples currently held, at most getWindowSize()
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == windowSize;
+    }
+
+    public void reset() {
+        writeIndex = 0;
+        size = 0;
+        viewValid = false;
+        clear();
+    }
+
+    protected abstract void clear();
+
+    // Number of leading samples of an oversized hop that would be overwritten by the same call
+    // anyway and therefore do not need to be written.
+    protected int skipOverflow(int length) {
+        return Math.max(0, length - windowSize);
+    }
+
+    protected void advance(int length) {
+        writeIndex = (writeIndex + length) % windowSize;
+        size = Math.min(windowSize, size + length);
+        viewValid = false;
+    }
+
+    public static final class OfFloat extends SlidingAudioWindow {
+        private final float[] ring;
+        private final float[] linear;
+
+        public OfFloat(int hopSize, int hopsPerWindow) {
+            super(hopSize, hopsPerWindow);
+            ring = new float[windowSize];
+            linear = new float[windowSize];
+        }
+
+        public void append(float[] hop) {
+            append(hop, 0, hop.length);
+        }
+
+        public void append(float[] hop, int offset, int length) {
+            int skip = skipOverflow(length);
+            offset += skip;
+            length -= skip;
+
+            int head = Math.min(length, windowSize - writeIndex);
+            System.arraycopy(hop, offset, ring, writeIndex, head);
+            if (head < length) {
+                System.arraycopy(hop, offset + head, ring, 0, length - head);
+            }
+            advance(length);
+        }
+
+        /**
+         * Returns the window with the oldest sample first. The returned array is owned by the
+         * window and is only valid until the next {@code append} or {@code reset}.
+         */
+        public float[] view() {
+            if (writeIndex == 0) {
+                // The ring is already in order, e.g. every other hop for a 2x-hop window.
+                return ring;
+            }
+            if (!viewValid) {
+                int tail = windowSize - writeIndex;
+                System.arraycopy(ring, writeIndex, linear, 0, tail);
+                System.arraycopy(ring, 0, linear, tail, writeIndex);
+                viewValid = true;
+            }
+            return linear;
+        }
+
+        @Override
+        protected void clear() {
+            Arrays.fill(ring, 0f);
+        }
+    }
+
+    public static final class OfShort extends SlidingAudioWindow {
+        private final short[] ring;
+        private final short[] linear;
+
+        public OfShort(int hopSize, int hopsPerWindow) {
+            super(hopSize, hopsPerWindow);
+            ring = new short[windowSize];
+            linear = new short[windowSize];
+        }
+
+        public void append(short[] hop) {
+            append(hop, 0, hop.length);
+        }
+
+        public void append(short[] hop, int offset, int length) {
+            int skip = skipOverflow(length);
+            offset += skip;
+            length -= skip;
+
+            int head = Math.min(length, windowSize - writeIndex);
+            System.arraycopy(hop, offset, ring, writeIndex, head);
+            if (head < length) {
+                System.arraycopy(hop, offset + head, ring, 0, length - head);
+            }
+            advance(length);
+        }
+
+        /**
+         * Returns the window with the oldest sample first. The returned array is owned by the
+         * window and is only valid until the next {@code append} or {@code reset}.
+         */
+        public short[] view() {
+            if (writeIndex == 0) {
+                return ring;
+            }
+            if (!viewValid) {
+                int tail = windowSize - writeIndex;
+                System.arraycopy(ring, writeIndex, linear, 0, tail);
+                System.arraycopy(ring, 0, linear, tail, writeIndex);
+                viewValid = true;
+            }
+            return linear;
+        }
+
+        @Override
+        protected void clear() {
+            Arrays.fill(ring, (short) 0);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package ai.cochl.examples;
+
+import java.util.Locale;
+
+/**
+ * How long it takes from a cold start of the app until the Sense SDK gives its first result.
+ * <p>
+ * Recorded are the time from process start until startup began, how long {@code sense.init}
+ * and the warm-up prediction took, and how long the first real prediction took afterwards. With
+ * a warm-up, the first real prediction should cost about as much as any later one; without it,
+ * it pays for the lazy loading of the model. Fields are written by the startup and inference
+ * threads and may be read from any thread.
+ */
+final class StartupMetrics {
+    private static final long UNSET = -1;
+
+    private volatile long beginNanos = UNSET;
+    private volatile long processStartMillis = UNSET;
+    private volatile long initNanos = UNSET;
+    private volatile long warmUpNanos = UNSET;
+    private volatile long readyNanos = UNSET;
+    private volatile long firstPredictNanos = UNSET;
+    private volatile long firstPredictEndNanos = UNSET;
+
+    // sinceProcessStartMillis is how long the process had been running when startup began, or 0
+    // if that is not known.
+    void begin(long sinceProcessStartMillis) {
+        processStartMillis = sinceProcessStartMillis;
+        beginNanos = System.nanoTime();
+    }
+
+    void recordInit(long nanos) {
+        initNanos = nanos;
+    }
+
+    void recordWarmUp(long nanos) {
+        warmUpNanos = nanos;
+    }
+
+    void markReady() {
+        readyNanos = System.nanoTime();
+    }
+
+    // Only the first prediction after startup is recorded, for which this returns true; later
+    // calls cost a volatile read.
+    boolean recordPredict(long startNanos, long endNanos) {
+        if (firstPredictNanos == UNSET && readyNanos != UNSET) {
+            synchronized (this) {
+                if (firstPredictNanos == UNSET) {
+                    firstPredictEndNanos = endNanos;
+                    firstPredictNanos = endNanos - startNanos;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    boolean isReady() {
+        return readyNanos != UNSET;
+    }
+
+    // Process start until the SDK was initialized and warmed up
+    long getColdStartMillis() {
+        return readyNanos == UNSET ? UNSET : processStartMillis + toMillis(readyNanos - beginNanos);
+    }
+
+    long getInitMillis() {
+        return toMillis(initNanos);
+    }
+
+    long getWarmUpMillis() {
+        return toMillis(warmUpNanos);
+    }
+
+    long getFirstPredictMillis() {
+        return toMillis(firstPredictNanos);
+    }
+
+    // Process start until the first real result
+    long getTimeToFirstResultMillis() {
+        return firstPredictEndNanos == UNSET
+                ? UNSET : processStartMillis + toMillis(firstPredictEndNanos - beginNanos);
+    }
+
+    String report() {
+        return String.format(Locale.US,
+                "cold start %s (init %s, warm-up predict %s), first predict %s, first result %s after process start",
+                format(getColdStartMillis()), format(getInitMillis()), format(getWarmUpMillis()),
+                format(getFirstPredictMillis()), format(getTimeToFirstResultMillis()));
+    }
+
+    private static long toMillis(long nanos) {
+        return nanos == UNSET ? UNSET : nanos / 1_000_000;
+    }
+
+    private static String format(long millis) {
+        return millis == UNSET ? "-" : millis + " ms";
+    }
+}
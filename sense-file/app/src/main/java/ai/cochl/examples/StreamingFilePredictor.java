@@ -0,0 +1,90 @@
+package ai.cochl.examples;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Predicts a file hop by hop through the frame API instead of all at once.
+ * <p>
+ * The file is decoded one hop at a time into the same two-hop {@link SlidingAudioWindow} that
+ * the stream sample uses, and every window is passed to the frame-level predict. Results and
+ * progress are reported as soon as each window has been scored, the run can be cancelled
+ * between hops, and the memory used is a few hops regardless of the length of the recording.
+ */
+final class StreamingFilePredictor {
+    interface FramePredictor {
+        JSONObject predict(float[] window, int sampleRate) throws Exception;
+    }
+
+    interface Listener {
+        // startSeconds is the position in the file of the first sample of the window
+        void onFrame(JSONObject result, double startSeconds);
+
+        // Called whenever another percent of the file has been read
+        void onProgress(long framesRead, long totalFrames);
+    }
+
+    private static final int HOPS_PER_WINDOW = 2;
+
+    private final FramePredictor predictor;
+    private final double hopSeconds;
+    private volatile boolean cancelled = false;
+
+    StreamingFilePredictor(FramePredictor predictor, double hopSeconds) {
+        this.predictor = predictor;
+        this.hopSeconds = hopSeconds;
+    }
+
+    // May be called from any thread; run() returns after the hop being scored
+    void cancel() {
+        cancelled = true;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Scores the whole file, or until cancelled. Returns false if the run was cancelled.
+     */
+    boolean run(File file, Listener listener) throws Exception {
+        try (WavHopReader reader = openReader(file)) {
+            int sampleRate = reader.getHeader().sampleRate;
+            int hopFrames = reader.getHopFrames();
+            float[] hop = new float[hopFrames];
+            SlidingAudioWindow.OfFloat window = new SlidingAudioWindow.OfFloat(hopFrames, HOPS_PER_WINDOW);
+
+            int lastPercent = -1;
+            int read;
+            while (!cancelled && (read = reader.read(hop)) > 0) {
+                if (read < hopFrames) {
+                    // Pad the last hop with silence to keep the hop cadence
+                    Arrays.fill(hop, read, hopFrames, 0f);
+                }
+                window.append(hop);
+
+                if (window.isFull()) {
+                    long windowEnd = (reader.getFramesRead() - read) + hopFrames;
+                    double startSeconds = (double) (windowEnd - window.getWindowSize()) / sampleRate;
+                    listener.onFrame(predictor.predict(window.view(), sampleRate), startSeconds);
+                }
+
+                int percent = reader.getProgressPercent();
+                if (percent != lastPercent) {
+                    lastPercent = percent;
+                    listener.onProgress(reader.getFramesRead(), reader.getFrameCount());
+                }
+            }
+        }
+        return !cancelled;
+    }
+
+    private WavHopReader openReader(File file) throws IOException {
+        WavHeader header = WavHeader.read(file);
+        int hopFrames = (int) Math.max(1, Math.round(header.sampleRate * hopSeconds));
+        return new WavHopReader(file, hopFrames);
+    }
+}
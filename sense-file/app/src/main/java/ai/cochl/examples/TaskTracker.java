@@ -0,0 +1,123 @@
+package ai.cochl.examples;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Tracks the background jobs that the progress indicator stands for.
+ * <p>
+ * Every job holds a {@link Task} from {@link #begin()} until it closes it. The indicator is shown
+ * while at least one task is open, so jobs that overlap, e.g. a batch run started while a clip is
+ * being predicted, share it and it is hidden right when the last of them ends. A task may report
+ * how much of its work is done, in whatever unit it counts, e.g. bytes or frames; the indicator
+ * shows the sum over all tasks that know their total.
+ * <p>
+ * No thread is involved. Changes are handed to the {@link Listener} through the given executor,
+ * usually a post to the UI thread, which must run them one at a time and in order. Changes that
+ * arrive while one is still pending are merged into it, so a task may report progress as often
+ * as it likes. While no task is open nothing runs at all. Tasks may be opened, updated and
+ * closed from any thread.
+ */
+final class TaskTracker {
+    interface Listener {
+        // activeTasks is 0 once the last task has been closed. total is 0 while none of the open
+        // tasks knows how much work it has.
+        void onTasksChanged(int activeTasks, long done, long total);
+    }
+
+    final class Task implements AutoCloseable {
+        private long done = 0;
+        private long total = 0;
+        private boolean closed = false;
+
+        private Task() {
+        }
+
+        // Work to do in all, 0 if not known
+        void setTotal(long total) {
+            synchronized (TaskTracker.this) {
+                this.total = total;
+            }
+            changed();
+        }
+
+        void setProgress(long done) {
+            synchronized (TaskTracker.this) {
+                this.done = done;
+            }
+            changed();
+        }
+
+        void addProgress(long delta) {
+            synchronized (TaskTracker.this) {
+                done += delta;
+            }
+            changed();
+        }
+
+        // Closing a task twice has no effect
+        @Override
+        public void close() {
+            synchronized (TaskTracker.this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                tasks.remove(this);
+            }
+            changed();
+        }
+    }
+
+    private final Executor dispatcher;
+    private final Listener listener;
+    private final List<Task> tasks = new ArrayList<>();
+    private boolean dispatchPending = false;
+
+    TaskTracker(Executor dispatcher, Listener listener) {
+        this.dispatcher = dispatcher;
+        this.listener = listener;
+    }
+
+    Task begin() {
+        Task task = new Task();
+        synchronized (this) {
+            tasks.add(task);
+        }
+        changed();
+        return task;
+    }
+
+    synchronized int getActiveCount() {
+        return tasks.size();
+    }
+
+    // Called without the lock, so an executor that runs the update right away works as well
+    private void changed() {
+        synchronized (this) {
+            if (dispatchPending) {
+                return;
+            }
+            dispatchPending = true;
+        }
+        dispatcher.execute(this::dispatch);
+    }
+
+    private void dispatch() {
+        int active;
+        long done = 0;
+        long total = 0;
+        synchronized (this) {
+            dispatchPending = false;
+            active = tasks.size();
+            for (Task task : tasks) {
+                if (task.total > 0) {
+                    done += Math.min(task.done, task.total);
+                    total += task.total;
+                }
+            }
+        }
+        listener.onTasksChanged(active, done, total);
+    }
+}
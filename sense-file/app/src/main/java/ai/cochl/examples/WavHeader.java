@@ -0,0 +1,137 @@
+package ai.cochl.examples;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Format and data location of a RIFF/WAVE file.
+ * <p>
+ * Only the chunk headers are read; unknown chunks such as {@code JUNK} or {@code LIST} are
+ * skipped, so the payload is never loaded.
+ */
+final class WavHeader {
+    static final int FORMAT_PCM = 1;
+    static final int FORMAT_IEEE_FLOAT = 3;
+    static final int FORMAT_EXTENSIBLE = 0xFFFE;
+
+    final int format;
+    final int channels;
+    final int sampleRate;
+    final int bitsPerSample;
+    final int blockAlign;
+    // Byte offset and length of the sample data in the file
+    final long dataOffset;
+    final long dataSize;
+
+    private WavHeader(int format, int channels, int sampleRate, int bitsPerSample, int blockAlign,
+                      long dataOffset, long dataSize) {
+        this.format = format;
+        this.channels = channels;
+        this.sampleRate = sampleRate;
+        this.bitsPerSample = bitsPerSample;
+        this.blockAlign = blockAlign;
+        this.dataOffset = dataOffset;
+        this.dataSize = dataSize;
+    }
+
+    static WavHeader read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return read(channel);
+        }
+    }
+
+    static WavHeader read(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        ByteBuffer chunk = ByteBuffer.allocate(24).order(ByteOrder.LITTLE_ENDIAN);
+
+        readFully(channel, chunk, 0, 12);
+        if (chunk.getInt(0) != fourCC("RIFF") || chunk.getInt(8) != fourCC("WAVE")) {
+            throw new IOException("Not a RIFF/WAVE file");
+        }
+
+        int format = -1;
+        int channels = 0;
+        int sampleRate = 0;
+        int bitsPerSample = 0;
+        int blockAlign = 0;
+
+        long position = 12;
+        while (position + 8 <= fileSize) {
+            readFully(channel, chunk, position, 8);
+            int id = chunk.getInt(0);
+            long size = chunk.getInt(4) & 0xFFFFFFFFL;
+            long body = position + 8;
+
+            if (id == fourCC("fmt ")) {
+                if (size < 16) {
+                    throw new IOException("Truncated fmt chunk");
+                }
+                readFully(channel, chunk, body, (int) Math.min(size, 24));
+                format = chunk.getShort(0) & 0xFFFF;
+                channels = chunk.getShort(2) & 0xFFFF;
+                sampleRate = chunk.getInt(4);
+                blockAlign = chunk.getShort(12) & 0xFFFF;
+                bitsPerSample = chunk.getShort(14) & 0xFFFF;
+                if (format == FORMAT_EXTENSIBLE && size >= 26) {
+                    // The actual format is the first two bytes of the sub-format GUID
+                    readFully(channel, chunk, body + 24, 2);
+                    format = chunk.getShort(0) & 0xFFFF;
+                }
+            } else if (id == fourCC("data")) {
+                if (format < 0) {
+                    throw new IOException("data chunk before fmt chunk");
+                }
+                // Streaming writers may leave the size unset; clamp it to the file.
+                long dataSize = Math.min(size, fileSize - body);
+                return new WavHeader(format, channels, sampleRate, bitsPerSample, blockAlign,
+                        body, dataSize);
+            }
+
+            // Chunks are word aligned
+            position = body + size + (size & 1);
+        }
+        throw new IOException("No data chunk");
+    }
+
+    int getBytesPerSample() {
+        return bitsPerSample / 8;
+    }
+
+    // Number of sample frames, i.e. samples per channel
+    long getFrameCount() {
+        return blockAlign == 0 ? 0 : dataSize / blockAlign;
+    }
+
+    double getDurationSeconds() {
+        return sampleRate == 0 ? 0 : (double) getFrameCount() / sampleRate;
+    }
+
+    @Override
+    public String toString() {
+        return "WavHeader{format=" + format
+                + ", channels=" + channels
+                + ", sampleRate=" + sampleRate
+                + ", bitsPerSample=" + bitsPerSample
+                + ", dataOffset=" + dataOffset
+                + ", dataSize=" + dataSize
+                + "}";
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position, int length)
+            throws IOException {
+        buffer.clear().limit(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+    }
+
+    private static int fourCC(String id) {
+        return (id.charAt(0)) | (id.charAt(1) << 8) | (id.charAt(2) << 16) | (id.charAt(3) << 24);
+    }
+}
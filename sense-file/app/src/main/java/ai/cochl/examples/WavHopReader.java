@@ -0,0 +1,63 @@
+package ai.cochl.examples;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Reads a WAV file one hop at a time, as mono float samples in [-1, 1].
+ * <p>
+ * Samples are decoded straight from a {@link MappedWavReader} mapping, so nothing but the hop
+ * itself is held on the Java heap, however long the recording is. Multi-channel files are
+ * downmixed by averaging the channels.
+ */
+final class WavHopReader implements Closeable {
+    private final MappedWavReader reader;
+    private final int hopFrames;
+
+    private long framesRead = 0;
+
+    WavHopReader(File file, int hopFrames) throws IOException {
+        if (hopFrames <= 0) {
+            throw new IllegalArgumentException("hopFrames must be positive");
+        }
+        this.reader = MappedWavReader.open(file);
+        this.hopFrames = hopFrames;
+    }
+
+    WavHeader getHeader() {
+        return reader.getHeader();
+    }
+
+    int getHopFrames() {
+        return hopFrames;
+    }
+
+    long getFramesRead() {
+        return framesRead;
+    }
+
+    long getFrameCount() {
+        return reader.getFrameCount();
+    }
+
+    int getProgressPercent() {
+        long total = reader.getFrameCount();
+        return total == 0 ? 100 : (int) (framesRead * 100 / total);
+    }
+
+    /**
+     * Reads up to one hop into {@code hop}, which must hold at least {@code getHopFrames()}
+     * samples. Returns the number of frames read, 0 at the end of the data.
+     */
+    int read(float[] hop) throws IOException {
+        int frames = reader.readMono(framesRead, hop, hopFrames);
+        framesRead += frames;
+        return frames;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,58 @@
+package ai.cochl.examples;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.*;
+
+public class BatchPredictorTest {
+    private static final File ASSETS = new File("src/main/assets");
+
+    @Test
+    public void listWavFiles_findsBundledAssets() {
+        List<File> files = BatchPredictor.listWavFiles(ASSETS);
+        assertEquals(9, files.size());
+        assertEquals("babycry.wav", files.get(0).getName());
+    }
+
+    @Test
+    public void run_returnsResultsInInputOrder_andUsesAllWorkers() throws InterruptedException {
+        List<File> files = new ArrayList<>(BatchPredictor.listWavFiles(ASSETS));
+        files.add(new File(ASSETS, "missing.wav"));
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        BatchPredictor predictor = new BatchPredictor(path -> {
+            threads.add(Thread.currentThread().getName());
+            if (path.endsWith("missing.wav")) {
+                throw new IllegalStateException("no such file");
+            }
+            Thread.sleep(20);
+            return new JSONObject();
+        }, 4, 2);
+
+        List<Integer> progress = new ArrayList<>();
+        BatchPredictor.Summary summary = predictor.run(files, (result, completed, total) -> {
+            synchronized (progress) {
+                progress.add(completed);
+            }
+        });
+
+        assertEquals(files.size(), summary.results.size());
+        for (int i = 0; i < files.size(); ++i) {
+            assertEquals(files.get(i), summary.results.get(i).file);
+        }
+        assertEquals(1, summary.failed);
+        assertFalse(summary.results.get(files.size() - 1).isSuccess());
+        assertEquals(files.size(), progress.size());
+        assertTrue(threads.size() > 1);
+        assertTrue(summary.audioSeconds > 60);
+        assertTrue(summary.getFilesPerSecond() > 0);
+        assertTrue(summary.getAudioSecondsPerSecond() > 0);
+    }
+}
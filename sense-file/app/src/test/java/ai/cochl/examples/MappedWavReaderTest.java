@@ -0,0 +1,101 @@
+package ai.cochl.examples;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class MappedWavReaderTest {
+    private static final File ASSETS = new File("src/main/assets");
+
+    private static File writeWav(int format, int channels, int sampleRate, int bits, byte[] data)
+            throws IOException {
+        int blockAlign = channels * bits / 8;
+        ByteBuffer wav = ByteBuffer.allocate(44 + data.length).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes()).putInt(36 + data.length).put("WAVE".getBytes());
+        wav.put("fmt ".getBytes()).putInt(16).putShort((short) format).putShort((short) channels)
+                .putInt(sampleRate).putInt(sampleRate * blockAlign).putShort((short) blockAlign)
+                .putShort((short) bits);
+        wav.put("data".getBytes()).putInt(data.length).put(data);
+
+        File file = File.createTempFile("mapped", ".wav");
+        file.deleteOnExit();
+        Files.write(file.toPath(), wav.array());
+        return file;
+    }
+
+    @Test
+    public void pcm16View_isZeroCopyIntoTheFile() throws IOException {
+        try (MappedWavReader reader = MappedWavReader.open(new File(ASSETS, "siren.wav"))) {
+            ShortBuffer samples = reader.viewPcm16(0, 4);
+            assertEquals(4, samples.remaining());
+            assertEquals(0, samples.get(0));
+            assertEquals(-1, samples.get(1));
+            assertEquals(2, samples.get(2));
+            assertEquals(-2, samples.get(3));
+            assertTrue(reader.view(0, 4).isDirect());
+        }
+    }
+
+    @Test
+    public void readMono_matchesAcrossSegmentBoundaries() throws IOException {
+        File siren = new File(ASSETS, "siren.wav");
+        try (MappedWavReader whole = MappedWavReader.open(siren);
+             MappedWavReader segmented = MappedWavReader.open(siren, 10_000)) {
+            float[] expected = new float[4410];
+            float[] actual = new float[4410];
+            for (long start = 0; start < whole.getFrameCount(); start += 4410) {
+                int n = whole.readMono(start, expected, 4410);
+                assertEquals(n, segmented.readMono(start, actual, 4410));
+                assertArrayEquals(expected, actual, 0f);
+            }
+        }
+    }
+
+    @Test
+    public void floatStereo_isViewedAndDownmixed() throws IOException {
+        ByteBuffer data = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        data.putFloat(0.5f).putFloat(-0.5f).putFloat(1f).putFloat(0f);
+        File file = writeWav(WavHeader.FORMAT_IEEE_FLOAT, 2, 48000, 32, data.array());
+
+        try (MappedWavReader reader = MappedWavReader.open(file)) {
+            assertEquals(2, reader.getFrameCount());
+            FloatBuffer view = reader.viewFloat(1, 1);
+            assertEquals(1f, view.get(0), 0f);
+            assertEquals(0f, view.get(1), 0f);
+
+            float[] mono = new float[2];
+            assertEquals(2, reader.readMono(0, mono, 2));
+            assertArrayEquals(new float[]{0f, 0.5f}, mono, 0f);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsMoreThanTwoChannels() throws IOException {
+        MappedWavReader.open(writeWav(WavHeader.FORMAT_PCM, 4, 22050, 16, new byte[32])).close();
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsImplausibleSampleRate() throws IOException {
+        MappedWavReader.open(writeWav(WavHeader.FORMAT_PCM, 1, 100, 16, new byte[32])).close();
+    }
+
+    @Test(expected = IOException.class)
+    public void rejects8BitPcm() throws IOException {
+        MappedWavReader.open(writeWav(WavHeader.FORMAT_PCM, 1, 22050, 8, new byte[32])).close();
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void view_pastTheEnd_throws() throws IOException {
+        try (MappedWavReader reader = MappedWavReader.open(new File(ASSETS, "dogbark.wav"))) {
+            reader.view(reader.getFrameCount() - 1, 2);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package ai.cochl.examples;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class ResultCacheTest {
+    private static final File ASSETS = new File("src/main/assets");
+    private static final String PARAMETERS = "sensitivityControl=true,resultAbbreviation=true";
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("result-cache").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        directory.delete();
+    }
+
+    @Test
+    public void hit_afterPut_andMiss_forOtherParameters() throws IOException {
+        ResultCache cache = new ResultCache(directory, 1024 * 1024);
+        File siren = new File(ASSETS, "siren.wav");
+
+        assertNull(cache.get(siren, PARAMETERS));
+        cache.put(siren, PARAMETERS, "{\"abbreviations\":[\"Siren\"]}");
+
+        assertEquals("{\"abbreviations\":[\"Siren\"]}", cache.get(siren, PARAMETERS));
+        assertNull(cache.get(siren, "sensitivityControl=false,resultAbbreviation=true"));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void key_dependsOnContent_notOnPath() throws IOException {
+        ResultCache cache = new ResultCache(directory, 1024 * 1024);
+        File siren = new File(ASSETS, "siren.wav");
+        File copy = new File(directory, "copy.wav.bin");
+        Files.copy(siren.toPath(), copy.toPath());
+
+        assertEquals(cache.keyOf(siren, PARAMETERS), cache.keyOf(copy, PARAMETERS));
+        assertNotEquals(cache.keyOf(siren, PARAMETERS),
+                cache.keyOf(new File(ASSETS, "cough.wav"), PARAMETERS));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed_whenOverCap() throws IOException {
+        ResultCache cache = new ResultCache(directory, 20);
+        File a = new File(ASSETS, "siren.wav");
+        File b = new File(ASSETS, "cough.wav");
+        File c = new File(ASSETS, "whistle.wav");
+
+        cache.put(a, PARAMETERS, "aaaaaaaa");
+        cache.put(b, PARAMETERS, "bbbbbbbb");
+        assertNotNull(cache.get(a, PARAMETERS));  // a is now more recent than b
+        cache.put(c, PARAMETERS, "cccccccc");
+
+        assertEquals(1, cache.getEvictions());
+        assertNull(cache.get(b, PARAMETERS));
+        assertNotNull(cache.get(a, PARAMETERS));
+        assertNotNull(cache.get(c, PARAMETERS));
+        assertTrue(cache.getTotalBytes() <= 20);
+    }
+
+    @Test
+    public void entries_surviveRestart() throws IOException {
+        File siren = new File(ASSETS, "siren.wav");
+        new ResultCache(directory, 1024).put(siren, PARAMETERS, "{}");
+
+        ResultCache reopened = new ResultCache(directory, 1024);
+        assertEquals(1, reopened.getEntryCount());
+        assertEquals("{}", reopened.get(siren, PARAMETERS));
+    }
+}
@@ -0,0 +1,289 @@
+package ai.cochl.examples;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.*;
+
+public class ResultJournalTest {
+    private static final String RESULT = "{"
+            + "\"result\":{\"frame_result\":["
+            + "{\"tags\":[{\"name\":\"Siren\",\"probability\":0.93},"
+            + "{\"name\":\"Car_horn\",\"probability\":0.41}],\"start_time\":0.0,\"end_time\":1.0},"
+            + "{\"tags\":[{\"name\":\"Others\",\"probability\":0.0}],\"start_time\":0.5,\"end_time\":1.5}"
+            + "]}}";
+    private static final long TIME = 1_700_000_000_000L;
+
+    private File directory;
+    private final List<Runnable> flushes = new ArrayList<>();
+    private final List<Runnable> timers = new ArrayList<>();
+    private final ResultJournal.Timer timer = (task, delayMillis) -> timers.add(task);
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("result-journal").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        directory.delete();
+    }
+
+    private static ResultDecoder decode(String json) {
+        ResultDecoder decoder = new ResultDecoder();
+        decoder.decode(new JSONObject(json));
+        return decoder;
+    }
+
+    // One frame with one tag, at the given second of the stream
+    private static ResultDecoder frame(int second, String tag) {
+        return decode("{\"result\":{\"frame_result\":[{\"tags\":[{\"name\":\"" + tag
+                + "\",\"probability\":0.5}],\"start_time\":" + second
+                + ",\"end_time\":" + (second + 1) + "}]}}");
+    }
+
+    private ResultJournal newJournal(ResultJournal.Config config) {
+        return new ResultJournal(directory, config, flushes::add, timer);
+    }
+
+    private String export(ResultJournal journal, ResultJournal.Format format) throws IOException {
+        StringWriter out = new StringWriter();
+        journal.export(out, format);
+        return out.toString();
+    }
+
+    private int segmentCount() {
+        File[] files = directory.listFiles();
+        return files == null ? 0 : files.length;
+    }
+
+    @Test
+    public void export_csvHasOneLinePerTag() throws IOException {
+        ResultJournal journal = newJournal(new ResultJournal.Config());
+        assertTrue(journal.append(TIME, "siren.wav", decode(RESULT)));
+
+        assertEquals("time_ms,source,start_s,end_s,tag,score\n"
+                        + "1700000000000,siren.wav,0.0,1.0,Siren,0.93\n"
+                        + "1700000000000,siren.wav,0.0,1.0,Car_horn,0.41\n"
+                        + "1700000000000,siren.wav,0.5,1.5,Others,0.0\n",
+                export(journal, ResultJournal.Format.CSV));
+        journal.close();
+    }
+
+    @Test
+    public void export_jsonlHasOneObjectPerFrame() throws IOException {
+        ResultJournal journal = newJournal(new ResultJournal.Config());
+        journal.append(TIME, "mic, left", decode(RESULT));
+        journal.append(TIME + 500, "mic, left", decode(RESULT));
+
+        String[] lines = export(journal, ResultJournal.Format.JSONL).split("\n");
+        assertEquals(4, lines.length);
+        JSONObject first = new JSONObject(lines[0]);
+        assertEquals(TIME, first.getLong("time_ms"));
+        assertEquals("mic, left", first.getString("source"));
+        assertEquals(1.0, first.getDouble("end_s"), 0);
+        JSONArray tags = first.getJSONArray("tags");
+        assertEquals(2, tags.length());
+        assertEquals("Car_horn", tags.getJSONObject(1).getString("name"));
+        assertEquals(0.41, tags.getJSONObject(1).getDouble("score"), 1e-9);
+        assertEquals(TIME + 500, new JSONObject(lines[3]).getLong("time_ms"));
+        journal.close();
+    }
+
+    @Test
+    public void csv_quotesNamesWithCommas() throws IOException {
+        ResultJournal journal = newJournal(new ResultJournal.Config());
+        journal.append(TIME, "a \"b\", c", frame(0, "Siren"));
+        assertTrue(export(journal, ResultJournal.Format.CSV)
+                .endsWith("1700000000000,\"a \"\"b\"\", c\",0.0,1.0,Siren,0.5\n"));
+        journal.close();
+    }
+
+    @Test
+    public void append_leavesWritingToTheWriter() throws IOException {
+        ResultJournal.Config config = new ResultJournal.Config();
+        config.flushBytes = 200;
+        ResultJournal journal = newJournal(config);
+
+        int frames = 0;
+        while (flushes.isEmpty()) {
+            journal.append(TIME + frames * 500L, "mic", frame(frames, "Siren"));
+            ++frames;
+        }
+        // Nothing is written by append itself, and a single flush is scheduled
+        assertEquals(0, segmentCount());
+        journal.append(TIME, "mic", frame(0, "Siren"));
+        assertEquals(1, flushes.size());
+
+        flushes.get(0).run();
+        assertEquals(1, segmentCount());
+        assertTrue(journal.getWrittenBytes() > 0);
+        // A frame with one tag takes a few bytes once the names are known
+        assertTrue(journal.getWrittenBytes() / (frames + 1) < 20);
+        journal.close();
+    }
+
+    @Test
+    public void rotation_keepsNewestSegmentsWithinMaxBytes() throws IOException {
+        ResultJournal.Config config = new ResultJournal.Config();
+        config.segmentBytes = 256;
+        config.maxBytes = 1024;
+        ResultJournal journal = newJournal(config);
+
+        for (int i = 0; i < 1000; ++i) {
+            journal.append(TIME + i * 500L, "mic", frame(i, "Tag" + (i % 5)));
+            if (i % 50 == 0) {
+                journal.flush();
+            }
+        }
+        journal.flush();
+
+        long total = 0;
+        for (File file : directory.listFiles()) {
+            total += file.length();
+        }
+        assertTrue(segmentCount() > 1);
+        assertTrue("journal takes " + total + " bytes", total <= config.maxBytes + config.segmentBytes);
+
+        // Every segment decodes on its own, and the newest frames are still there
+        String[] lines = export(journal, ResultJournal.Format.CSV).split("\n");
+        assertTrue(lines.length > 10);
+        assertTrue(lines.length < 1000);
+        assertTrue(lines[lines.length - 1].startsWith((TIME + 999 * 500L) + ",mic,999.0,1000.0,Tag4,"));
+        journal.close();
+    }
+
+    @Test
+    public void newJournal_continuesAfterCutOffRecord() throws IOException {
+        ResultJournal journal = newJournal(new ResultJournal.Config());
+        journal.append(TIME, "mic", frame(0, "Siren"));
+        journal.append(TIME + 500, "mic", frame(1, "Siren"));
+        journal.close();
+
+        // A crash while the last record was written
+        File segment = directory.listFiles()[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.setLength(file.length() - 2);
+        }
+
+        ResultJournal reopened = newJournal(new ResultJournal.Config());
+        reopened.append(TIME + 1000, "mic", frame(2, "Dog_bark"));
+        String csv = export(reopened, ResultJournal.Format.CSV);
+
+        assertEquals(2, segmentCount());
+        assertEquals("time_ms,source,start_s,end_s,tag,score\n"
+                + "1700000000000,mic,0.0,1.0,Siren,0.5\n"
+                + "1700000001000,mic,2.0,3.0,Dog_bark,0.5\n", csv);
+        reopened.close();
+    }
+
+    @Test
+    public void fullBuffer_dropsFramesInsteadOfBlocking() throws IOException {
+        ResultJournal.Config config = new ResultJournal.Config();
+        config.maxPendingBytes = 100;
+        // The writer never gets to run
+        ResultJournal journal = new ResultJournal(directory, config, command -> {
+        }, timer);
+
+        int added = 0;
+        for (int i = 0; i < 100; ++i) {
+            if (journal.append(TIME, "mic", frame(i, "Siren"))) {
+                ++added;
+            }
+        }
+        assertTrue(added < 100);
+        assertEquals(100 - added, journal.getDroppedCount());
+        assertEquals(added, journal.getAppendedCount());
+
+        journal.close();
+        assertFalse(journal.append(TIME, "mic", frame(0, "Siren")));
+    }
+
+    @Test
+    public void timer_flushesTheLastFramesOfAQuietStream() throws IOException {
+        ResultJournal journal = newJournal(new ResultJournal.Config());
+        journal.append(TIME, "mic", frame(0, "Siren"));
+        journal.append(TIME + 500, "mic", frame(1, "Siren"));
+        // One timer for the frames that are not on disk yet, and no flush below flushBytes
+        assertEquals(1, timers.size());
+        assertTrue(flushes.isEmpty());
+
+        timers.remove(0).run();
+        assertEquals(1, flushes.size());
+        flushes.remove(0).run();
+        assertEquals(1, segmentCount());
+        assertTrue(journal.getWrittenBytes() > 0);
+
+        // Armed again by the next frame
+        journal.append(TIME + 1000, "mic", frame(2, "Siren"));
+        assertEquals(1, timers.size());
+        journal.close();
+        timers.remove(0).run();
+        assertTrue(flushes.isEmpty());
+    }
+
+    @Test
+    public void rejectingWriter_keepsFramesForClose() throws IOException {
+        ResultJournal.Config config = new ResultJournal.Config();
+        config.flushBytes = 10;
+        ResultJournal journal = new ResultJournal(directory, config, command -> {
+            throw new RejectedExecutionException("shut down");
+        }, timer);
+
+        for (int i = 0; i < 5; ++i) {
+            assertTrue(journal.append(TIME + i * 500L, "mic", frame(i, "Siren")));
+        }
+        journal.close();
+
+        ResultJournal reopened = newJournal(new ResultJournal.Config());
+        assertEquals(6, export(reopened, ResultJournal.Format.CSV).split("\n").length);
+        reopened.close();
+    }
+
+    @Test
+    public void failedFlush_startsOverWithANewSegment() throws IOException {
+        // The journal directory cannot be created while a file is in its way
+        File blocked = new File(directory, "journal");
+        assertTrue(blocked.createNewFile());
+        ResultJournal journal = new ResultJournal(blocked, new ResultJournal.Config(),
+                flushes::add, timer);
+        journal.append(TIME, "mic", frame(0, "Siren"));
+        try {
+            journal.flush();
+            fail();
+        } catch (IOException expected) {
+            // the frame is lost
+        }
+        assertEquals(1, journal.getFailedFlushCount());
+
+        assertTrue(blocked.delete());
+        journal.append(TIME + 500, "mic", frame(1, "Dog_bark"));
+        assertEquals("time_ms,source,start_s,end_s,tag,score\n"
+                + "1700000000500,mic,1.0,2.0,Dog_bark,0.5\n", export(journal, ResultJournal.Format.CSV));
+        journal.close();
+        for (File file : Objects.requireNonNull(blocked.listFiles())) {
+            assertTrue(file.delete());
+        }
+    }
+}
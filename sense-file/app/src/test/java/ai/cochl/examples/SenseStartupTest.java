@@ -0,0 +1,142 @@
+package ai.cochl.examples;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class SenseStartupTest {
+    private static final int SAMPLE_RATE = 22050;
+
+    // Records what the startup did, in order
+    private static final class Recorder implements SenseStartup.Listener {
+        final List<String> calls = new ArrayList<>();
+        final List<float[]> windows = new ArrayList<>();
+        final AtomicReference<RuntimeException> error = new AtomicReference<>();
+        float hopSeconds = -1;
+
+        float init() {
+            calls.add("init");
+            return 0.5f;
+        }
+
+        void predict(float[] samples, int sampleRate) {
+            assertEquals(SAMPLE_RATE, sampleRate);
+            calls.add("predict");
+            windows.add(samples);
+        }
+
+        @Override
+        public void onReady(float hopSeconds) {
+            calls.add("ready");
+            this.hopSeconds = hopSeconds;
+        }
+
+        @Override
+        public void onError(RuntimeException e) {
+            calls.add("error");
+            error.set(e);
+        }
+    }
+
+    private static ExecutorService executor() {
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "startup-test");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Test
+    public void warmsUpOnSilentWindowAfterInit() throws Exception {
+        StartupMetrics metrics = new StartupMetrics();
+        metrics.begin(0);
+        Recorder recorder = new Recorder();
+        ExecutorService executor = executor();
+
+        new SenseStartup(2, SAMPLE_RATE, metrics)
+                .start(executor, recorder::init, recorder::predict, recorder)
+                .get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals(Arrays.asList("init", "predict", "predict", "ready"), recorder.calls);
+        assertEquals(0.5f, recorder.hopSeconds, 0f);
+        // Two hops of silence
+        float[] window = recorder.windows.get(0);
+        assertEquals(SAMPLE_RATE, window.length);
+        for (float sample : window) {
+            assertEquals(0f, sample, 0f);
+        }
+        assertTrue(metrics.isReady());
+        assertTrue(metrics.getInitMillis() >= 0);
+        assertTrue(metrics.getWarmUpMillis() >= 0);
+        assertTrue(metrics.getColdStartMillis() >= 0);
+    }
+
+    @Test
+    public void noWarmUp_readyAfterInit() throws Exception {
+        StartupMetrics metrics = new StartupMetrics();
+        metrics.begin(0);
+        Recorder recorder = new Recorder();
+        ExecutorService executor = executor();
+
+        new SenseStartup(0, SAMPLE_RATE, metrics)
+                .start(executor, recorder::init, recorder::predict, recorder)
+                .get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals(Arrays.asList("init", "ready"), recorder.calls);
+        assertEquals(-1, metrics.getWarmUpMillis());
+        assertTrue(metrics.isReady());
+    }
+
+    @Test
+    public void initError_reportedInsteadOfReady() throws Exception {
+        StartupMetrics metrics = new StartupMetrics();
+        metrics.begin(0);
+        Recorder recorder = new Recorder();
+        ExecutorService executor = executor();
+
+        new SenseStartup(1, SAMPLE_RATE, metrics).start(executor, () -> {
+            throw new IllegalStateException("invalid project key");
+        }, recorder::predict, recorder).get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals(Arrays.asList("error"), recorder.calls);
+        assertEquals("invalid project key", recorder.error.get().getMessage());
+        assertFalse(metrics.isReady());
+        assertEquals(-1, metrics.getColdStartMillis());
+    }
+
+    @Test
+    public void onlyFirstPredictAfterStartupIsRecorded() {
+        StartupMetrics metrics = new StartupMetrics();
+        metrics.begin(1000);
+        // Predictions before the startup is done are the warm-up
+        assertFalse(metrics.recordPredict(0, TimeUnit.MILLISECONDS.toNanos(500)));
+        assertEquals(-1, metrics.getFirstPredictMillis());
+
+        metrics.markReady();
+        long now = System.nanoTime();
+        assertTrue(metrics.recordPredict(now - TimeUnit.MILLISECONDS.toNanos(40), now));
+        assertFalse(metrics.recordPredict(now, now + TimeUnit.MILLISECONDS.toNanos(300)));
+
+        assertEquals(40, metrics.getFirstPredictMillis());
+        // Includes the time from process start until startup began
+        assertTrue(metrics.getColdStartMillis() >= 1000);
+        assertTrue(metrics.getTimeToFirstResultMillis() >= metrics.getColdStartMillis());
+        assertTrue(metrics.report().contains("first predict 40 ms"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeWarmUpCount_rejected() {
+        new SenseStartup(-1, SAMPLE_RATE, new StartupMetrics());
+    }
+}
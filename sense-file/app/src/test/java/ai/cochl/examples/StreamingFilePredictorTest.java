@@ -0,0 +1,67 @@
+package ai.cochl.examples;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StreamingFilePredictorTest {
+    private static final File SIREN = new File("src/main/assets/siren.wav");
+
+    private static class Recorder implements StreamingFilePredictor.Listener {
+        final List<Double> frames = new ArrayList<>();
+        final List<Long> progress = new ArrayList<>();
+        long totalFrames = -1;
+
+        @Override
+        public void onFrame(JSONObject result, double startSeconds) {
+            frames.add(startSeconds);
+        }
+
+        @Override
+        public void onProgress(long framesRead, long totalFrames) {
+            progress.add(framesRead);
+            this.totalFrames = totalFrames;
+        }
+    }
+
+    @Test
+    public void scoresEveryWindow_andReportsProgress() throws Exception {
+        List<Integer> windowSizes = new ArrayList<>();
+        StreamingFilePredictor predictor = new StreamingFilePredictor((window, sampleRate) -> {
+            assertEquals(22050, sampleRate);
+            windowSizes.add(window.length);
+            return new JSONObject();
+        }, 0.5);
+        Recorder recorder = new Recorder();
+
+        assertTrue(predictor.run(SIREN, recorder));
+
+        // 221760 frames in hops of 11025 -> 21 hops, the first one only fills the window
+        assertEquals(20, recorder.frames.size());
+        assertEquals(0.0, recorder.frames.get(0), 1e-9);
+        assertEquals(0.5, recorder.frames.get(1), 1e-9);
+        for (int size : windowSizes) {
+            assertEquals(22050, size);
+        }
+        assertEquals(221760, recorder.totalFrames);
+        assertEquals(221760, (long) recorder.progress.get(recorder.progress.size() - 1));
+    }
+
+    @Test
+    public void cancel_stopsBeforeTheEnd() throws Exception {
+        Recorder recorder = new Recorder();
+        StreamingFilePredictor[] self = new StreamingFilePredictor[1];
+        self[0] = new StreamingFilePredictor((window, sampleRate) -> {
+            self[0].cancel();
+            return new JSONObject();
+        }, 0.5);
+
+        assertFalse(self[0].run(SIREN, recorder));
+        assertEquals(1, recorder.frames.size());
+    }
+}
@@ -0,0 +1,185 @@
+package ai.cochl.examples;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TaskTrackerTest {
+    // Runs the posted updates when told to, like a UI thread that is busy until then
+    private static final class ManualExecutor implements Executor {
+        final Queue<Runnable> pending = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            pending.add(command);
+        }
+
+        void runAll() {
+            Runnable command;
+            while ((command = pending.poll()) != null) {
+                command.run();
+            }
+        }
+    }
+
+    private static final class Recorder implements TaskTracker.Listener {
+        final List<long[]> changes = new ArrayList<>();
+
+        @Override
+        public void onTasksChanged(int activeTasks, long done, long total) {
+            changes.add(new long[]{activeTasks, done, total});
+        }
+
+        long[] last() {
+            return changes.get(changes.size() - 1);
+        }
+    }
+
+    @Test
+    public void shownWhileAnyTaskIsOpen() {
+        ManualExecutor executor = new ManualExecutor();
+        Recorder recorder = new Recorder();
+        TaskTracker tracker = new TaskTracker(executor, recorder);
+
+        TaskTracker.Task first = tracker.begin();
+        TaskTracker.Task second = tracker.begin();
+        executor.runAll();
+        assertEquals(2, recorder.last()[0]);
+
+        first.close();
+        executor.runAll();
+        assertEquals(1, recorder.last()[0]);
+
+        second.close();
+        executor.runAll();
+        assertEquals(0, recorder.last()[0]);
+        assertEquals(0, tracker.getActiveCount());
+    }
+
+    @Test
+    public void updatesWhilePending_areMergedIntoOne() {
+        ManualExecutor executor = new ManualExecutor();
+        Recorder recorder = new Recorder();
+        TaskTracker tracker = new TaskTracker(executor, recorder);
+
+        TaskTracker.Task task = tracker.begin();
+        task.setTotal(1000);
+        for (int i = 1; i <= 100; ++i) {
+            task.setProgress(i * 10);
+        }
+        assertEquals(1, executor.pending.size());
+        executor.runAll();
+
+        assertEquals(1, recorder.changes.size());
+        assertArrayEquals(new long[]{1, 1000, 1000}, recorder.last());
+    }
+
+    @Test
+    public void progressIsSummedOverTasksThatKnowTheirTotal() {
+        ManualExecutor executor = new ManualExecutor();
+        Recorder recorder = new Recorder();
+        TaskTracker tracker = new TaskTracker(executor, recorder);
+
+        TaskTracker.Task bytes = tracker.begin();
+        bytes.setTotal(300);
+        bytes.addProgress(100);
+        TaskTracker.Task frames = tracker.begin();
+        frames.setTotal(100);
+        frames.setProgress(50);
+        TaskTracker.Task unknown = tracker.begin();
+        unknown.addProgress(12345);
+        executor.runAll();
+        assertArrayEquals(new long[]{3, 150, 400}, recorder.last());
+
+        bytes.close();
+        executor.runAll();
+        assertArrayEquals(new long[]{2, 50, 100}, recorder.last());
+
+        frames.close();
+        executor.runAll();
+        // Only a task without a total is left
+        assertArrayEquals(new long[]{1, 0, 0}, recorder.last());
+    }
+
+    @Test
+    public void closingTwice_countsOnce() {
+        ManualExecutor executor = new ManualExecutor();
+        Recorder recorder = new Recorder();
+        TaskTracker tracker = new TaskTracker(executor, recorder);
+
+        TaskTracker.Task first = tracker.begin();
+        tracker.begin();
+        first.close();
+        first.close();
+        executor.runAll();
+        assertEquals(1, recorder.last()[0]);
+    }
+
+    @Test
+    public void idle_postsNothing() {
+        ManualExecutor executor = new ManualExecutor();
+        Recorder recorder = new Recorder();
+        TaskTracker tracker = new TaskTracker(executor, recorder);
+        assertTrue(executor.pending.isEmpty());
+
+        tracker.begin().close();
+        executor.runAll();
+        assertEquals(1, recorder.changes.size());
+        assertTrue(executor.pending.isEmpty());
+    }
+
+    @Test
+    public void inlineExecutor_reportsEveryChange() {
+        Recorder recorder = new Recorder();
+        TaskTracker tracker = new TaskTracker(Runnable::run, recorder);
+
+        try (TaskTracker.Task task = tracker.begin()) {
+            task.setTotal(10);
+            task.setProgress(5);
+            assertArrayEquals(new long[]{1, 5, 10}, recorder.last());
+        }
+        assertArrayEquals(new long[]{0, 0, 0}, recorder.last());
+        assertEquals(4, recorder.changes.size());
+    }
+
+    @Test
+    public void concurrentTasks_endWithNoneActive() throws Exception {
+        Recorder recorder = new Recorder();
+        ExecutorService uiThread = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "ui");
+            thread.setDaemon(true);
+            return thread;
+        });
+        TaskTracker tracker = new TaskTracker(uiThread, recorder);
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; ++t) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; ++i) {
+                    try (TaskTracker.Task task = tracker.begin()) {
+                        task.setTotal(2);
+                        task.addProgress(1);
+                    }
+                }
+            });
+            threads[t].setDaemon(true);
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        uiThread.shutdown();
+        assertTrue(uiThread.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(0, tracker.getActiveCount());
+        assertEquals(0, recorder.last()[0]);
+    }
+}
@@ -0,0 +1,47 @@
+package ai.cochl.examples;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class WavHeaderTest {
+    private static final File ASSETS = new File("src/main/assets");
+
+    @Test
+    public void readsMonoPcm16() throws IOException {
+        WavHeader header = WavHeader.read(new File(ASSETS, "siren.wav"));
+
+        assertEquals(WavHeader.FORMAT_PCM, header.format);
+        assertEquals(1, header.channels);
+        assertEquals(22050, header.sampleRate);
+        assertEquals(16, header.bitsPerSample);
+        assertEquals(44, header.dataOffset);
+        assertEquals(443520, header.dataSize);
+        assertEquals(221760, header.getFrameCount());
+        assertEquals(10.06, header.getDurationSeconds(), 0.01);
+    }
+
+    @Test
+    public void skipsJunkChunk_inStereoPcm24File() throws IOException {
+        WavHeader header = WavHeader.read(new File(ASSETS, "dogbark.wav"));
+
+        assertEquals(WavHeader.FORMAT_PCM, header.format);
+        assertEquals(2, header.channels);
+        assertEquals(22050, header.sampleRate);
+        assertEquals(24, header.bitsPerSample);
+        assertEquals(0x50, header.dataOffset);
+        assertEquals(221206, header.getFrameCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsNonWavFile() throws IOException {
+        File file = File.createTempFile("not-a-wav", ".wav");
+        file.deleteOnExit();
+        Files.write(file.toPath(), new byte[64]);
+        WavHeader.read(file);
+    }
+}
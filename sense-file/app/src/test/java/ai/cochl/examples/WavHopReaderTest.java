@@ -0,0 +1,50 @@
+package ai.cochl.examples;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class WavHopReaderTest {
+    private static final File ASSETS = new File("src/main/assets");
+
+    @Test
+    public void decodesPcm16_toFloat() throws IOException {
+        try (WavHopReader reader = new WavHopReader(new File(ASSETS, "siren.wav"), 4)) {
+            float[] hop = new float[4];
+            assertEquals(4, reader.read(hop));
+            // First samples of siren.wav: 0, -1, 2, -2
+            assertArrayEquals(new float[]{0, -1 / 32768f, 2 / 32768f, -2 / 32768f}, hop, 0f);
+        }
+    }
+
+    @Test
+    public void readsWholeFile_inHops() throws IOException {
+        try (WavHopReader reader = new WavHopReader(new File(ASSETS, "siren.wav"), 11025)) {
+            float[] hop = new float[11025];
+            long frames = 0;
+            int hops = 0;
+            int read;
+            while ((read = reader.read(hop)) > 0) {
+                frames += read;
+                ++hops;
+            }
+            assertEquals(reader.getHeader().getFrameCount(), frames);
+            assertEquals(21, hops);
+            assertEquals(100, reader.getProgressPercent());
+        }
+    }
+
+    @Test
+    public void downmixesStereoPcm24() throws IOException {
+        try (WavHopReader reader = new WavHopReader(new File(ASSETS, "dogbark.wav"), 1024)) {
+            float[] hop = new float[1024];
+            assertEquals(1024, reader.read(hop));
+            for (float sample : hop) {
+                assertTrue(sample >= -1f && sample <= 1f);
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package ai.cochl.examples;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends the lines of one frame to the event log: the string concatenation trimmed to 8192
+ * characters that the tutorials used, against the {@link LineRingBuffer} behind the event list.
+ * Only the data structure is measured; the view itself needs a device.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class EventLogBenchmark {
+    @Param({"1", "8"})
+    public int linesPerFrame;
+
+    private static final int MAX_TEXT_LENGTH = 8192;
+    private static final int MAX_LINES = 1000;
+
+    private String[] lines;
+    private String text;
+    private LineRingBuffer ring;
+
+    @Setup
+    public void setUp() {
+        lines = new String[linesPerFrame];
+        for (int i = 0; i < linesPerFrame; ++i) {
+            lines[i] = "Tag_" + i + " was detected from 12.5 s to 13.5 s";
+        }
+
+        // Start from a full log, the steady state of a running stream
+        text = "";
+        ring = new LineRingBuffer(MAX_LINES);
+        for (int i = 0; i < MAX_LINES; ++i) {
+            text = legacyAppend(text, lines[i % linesPerFrame]);
+            ring.append(lines[i % linesPerFrame]);
+        }
+    }
+
+    @Benchmark
+    public void legacyConcat(Blackhole bh) {
+        for (String line : lines) {
+            text = legacyAppend(text, line);
+        }
+        bh.consume(text);
+    }
+
+    @Benchmark
+    public void ringBuffer(Blackhole bh) {
+        int evicted = 0;
+        for (String line : lines) {
+            evicted += ring.append(line);
+        }
+        bh.consume(evicted);
+    }
+
+    private static String legacyAppend(String text, String msg) {
+        String currentText = text + msg + "\n";
+        if (currentText.length() > MAX_TEXT_LENGTH) {
+            int idx = currentText.indexOf('\n', currentText.length() - MAX_TEXT_LENGTH);
+            if (idx >= 0) {
+                currentText = currentText.substring(idx + 1);
+            }
+        }
+        return currentText;
+    }
+}
@@ -0,0 +1,53 @@
+package ai.cochl.examples;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Stand-in for {@code Sense} in benchmarks.
+ * <p>
+ * Answers every prediction with the same result after a busy-waited latency, which keeps a core
+ * busy like the native inference does. With a latency of 0 the benchmarks measure the tutorial
+ * code alone.
+ */
+final class FakeSense implements StreamingFilePredictor.FramePredictor {
+    private final long latencyNanos;
+    private final JSONObject result;
+
+    FakeSense(long latencyMicros, JSONObject result) {
+        this.latencyNanos = latencyMicros * 1000;
+        this.result = result;
+    }
+
+    // A result shaped like the SDK's: one frame with the given number of tags, and one
+    // abbreviation per tag when abbreviations are enabled
+    static JSONObject result(int tags, boolean abbreviations) {
+        JSONArray tagArray = new JSONArray();
+        JSONArray abbreviationArray = new JSONArray();
+        for (int i = 0; i < tags; ++i) {
+            String name = "Tag_" + i;
+            tagArray.put(new JSONObject().put("name", name).put("probability", 1.0 / (i + 1)));
+            abbreviationArray.put(name + " was detected from 0.0 s to 1.0 s");
+        }
+
+        JSONObject frame = new JSONObject()
+                .put("tags", tagArray)
+                .put("start_time", 0.0)
+                .put("end_time", 1.0);
+        JSONObject json = new JSONObject()
+                .put("result", new JSONObject().put("frame_result", new JSONArray().put(frame)));
+        if (abbreviations) {
+            json.put("abbreviations", abbreviationArray);
+        }
+        return json;
+    }
+
+    @Override
+    public JSONObject predict(float[] window, int sampleRate) {
+        long deadline = System.nanoTime() + latencyNanos;
+        while (System.nanoTime() - deadline < 0) {
+            // busy wait, like a CPU-bound inference
+        }
+        return result;
+    }
+}
@@ -0,0 +1,61 @@
+package ai.cochl.examples;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams a sample sound through {@link StreamingFilePredictor} with {@link FakeSense} in place of
+ * the SDK, decoding every result like the app does. The time per operation is the time to
+ * process the whole file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StreamingPredictBenchmark {
+    @Param({"0", "1000", "5000"})
+    public long predictLatencyMicros;
+
+    @Param({"0.5", "1.0"})
+    public double hopSeconds;
+
+    private File file;
+    private FakeSense sense;
+    private ResultDecoder decoder;
+
+    @Setup
+    public void setUp() {
+        file = new File(System.getProperty("assets.dir", "../app/src/main/assets"), "glassbreak.wav");
+        sense = new FakeSense(predictLatencyMicros, FakeSense.result(3, true));
+        decoder = new ResultDecoder();
+    }
+
+    @Benchmark
+    public void streamFile(Blackhole bh) throws Exception {
+        StreamingFilePredictor predictor = new StreamingFilePredictor(sense, hopSeconds);
+        predictor.run(file, new StreamingFilePredictor.Listener() {
+            @Override
+            public void onFrame(JSONObject result, double startSeconds) {
+                decoder.decode(result);
+                for (int i = 0; i < decoder.getAbbreviationCount(); ++i) {
+                    bh.consume(decoder.getAbbreviation(i));
+                }
+            }
+
+            @Override
+            public void onProgress(long framesRead, long totalFrames) {
+                bh.consume(framesRead);
+            }
+        });
+    }
+}
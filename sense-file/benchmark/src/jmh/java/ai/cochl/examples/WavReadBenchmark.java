@@ -0,0 +1,50 @@
+package ai.cochl.examples;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes a whole sample sound hop by hop into mono floats, as file streaming does. The assets
+ * cover the formats the readers handle: 16-bit mono, 24-bit stereo and 16-bit stereo.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class WavReadBenchmark {
+    @Param({"glassbreak.wav", "dogbark.wav", "toiletflush.wav"})
+    public String asset;
+
+    // 0.5 s at 22050 Hz
+    @Param({"11025"})
+    public int hopFrames;
+
+    private File file;
+    private float[] hop;
+
+    @Setup
+    public void setUp() {
+        file = new File(System.getProperty("assets.dir", "../app/src/main/assets"), asset);
+        hop = new float[hopFrames];
+    }
+
+    @Benchmark
+    public long readFile(Blackhole bh) throws IOException {
+        try (WavHopReader reader = new WavHopReader(file, hopFrames)) {
+            while (reader.read(hop) > 0) {
+                bh.consume(hop);
+            }
+            return reader.getFramesRead();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package ai.cochl.examples;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**
+ * The threads of the app, one executor per kind of work.
+ * <p>
+ * {@link #getCapture()} reads the microphone at audio priority, so a busy device does not let the
+ * recording buffer overflow. {@link #getInference()} runs init and the predictions,
+ * {@link #getIo()} extracts assets and reads and writes files in the background, and
+ * {@link #getUi()} posts to the UI thread. Thread priorities are the nice values of
+ * {@code android.os.Process}; they are set through the given {@code setThreadPriority},
+ * {@code Process::setThreadPriority} in the app, so that this class also runs in JVM tests.
+ * <p>
+ * The owner, an activity or a service, shuts the executors down when it is destroyed: running
+ * tasks are interrupted, queued ones dropped, and nothing is posted to the UI thread anymore.
+ * A prediction cannot be interrupted, so {@link #shutdownInBackground} waits for the running
+ * tasks on a thread of its own rather than on the UI thread, and tells the owner whether they
+ * returned in time, e.g. before the SDK is terminated. {@link #report()} gives the queue and
+ * utilization of every executor.
+ */
+final class AppExecutors {
+    interface TerminationListener {
+        // On the thread of shutdownInBackground; terminated is false if the timeout expired
+        void onTermination(boolean terminated);
+    }
+
+    // android.os.Process.THREAD_PRIORITY_URGENT_AUDIO
+    static final int PRIORITY_URGENT_AUDIO = -19;
+    // android.os.Process.THREAD_PRIORITY_DEFAULT
+    static final int PRIORITY_DEFAULT = 0;
+    // android.os.Process.THREAD_PRIORITY_BACKGROUND
+    static final int PRIORITY_BACKGROUND = 10;
+
+    // Idle threads end after this long
+    private static final long KEEP_ALIVE_MS = 30_000;
+    private static final int IO_THREADS = 2;
+
+    // Posts to the UI thread and counts what it posts
+    static final class UiExecutor implements Executor {
+        private final Executor mainThread;
+        private final AtomicLong posted = new AtomicLong();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicInteger maxPending = new AtomicInteger();
+        private final AtomicLong busyNanos = new AtomicLong();
+        private volatile boolean shutdown = false;
+
+        private UiExecutor(Executor mainThread) {
+            this.mainThread = mainThread;
+        }
+
+        // Dropped after shutdown
+        @Override
+        public void execute(Runnable command) {
+            if (shutdown) {
+                return;
+            }
+            posted.incrementAndGet();
+            int queued = pending.incrementAndGet();
+            int max;
+            while (queued > (max = maxPending.get()) && !maxPending.compareAndSet(max, queued)) {
+                // retry
+            }
+            mainThread.execute(() -> {
+                pending.decrementAndGet();
+                if (shutdown) {
+                    return;
+                }
+                long start = System.nanoTime();
+                try {
+                    command.run();
+                } finally {
+                    busyNanos.addAndGet(System.nanoTime() - start);
+                }
+            });
+        }
+
+        long getPostedCount() {
+            return posted.get();
+        }
+
+        int getPendingCount() {
+            return pending.get();
+        }
+
+        @Override
+        public String toString() {
+            long count = posted.get();
+            return "ui: " + count + " posted, " + pending.get() + " pending (max "
+                    + maxPending.get() + "), "
+                    + (count > 0 ? busyNanos.get() / count / 1000 : 0) + " us per task";
+        }
+    }
+
+    private final TrackedExecutor capture;
+    private final TrackedExecutor inference;
+    private final TrackedExecutor io;
+    private final UiExecutor ui;
+
+    AppExecutors(int inferenceThreads, IntConsumer setThreadPriority, Executor mainThread) {
+        capture = new TrackedExecutor("sense-capture", 1, KEEP_ALIVE_MS,
+                () -> setThreadPriority.accept(PRIORITY_URGENT_AUDIO));
+        inference = new TrackedExecutor("sense-inference", inferenceThreads, KEEP_ALIVE_MS,
+                () -> setThreadPriority.accept(PRIORITY_DEFAULT));
+        io = new TrackedExecutor("sense-io", IO_THREADS, KEEP_ALIVE_MS,
+                () -> setThreadPriority.accept(PRIORITY_BACKGROUND));
+        ui = new UiExecutor(mainThread);
+    }
+
+    TrackedExecutor getCapture() {
+        return capture;
+    }
+
+    TrackedExecutor getInference() {
+        return inference;
+    }
+
+    TrackedExecutor getIo() {
+        return io;
+    }
+
+    UiExecutor getUi() {
+        return ui;
+    }
+
+    void shutdown() {
+        ui.shutdown = true;
+        capture.shutdownNow();
+        inference.shutdownNow();
+        io.shutdownNow();
+    }
+
+    // Waits for the tasks that were running at shutdown to return
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long start = System.nanoTime();
+        long total = unit.toNanos(timeout);
+        for (TrackedExecutor executor : new TrackedExecutor[]{capture, inference, io}) {
+            long left = Math.max(0, total - (System.nanoTime() - start));
+            if (!executor.awaitTermination(left, TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Shuts down and returns the started thread that awaits the termination, at most timeout,
+    // and then calls the listener
+    Thread shutdownInBackground(long timeout, TimeUnit unit, TerminationListener listener) {
+        shutdown();
+        Thread thread = new Thread(() -> {
+            boolean terminated;
+            try {
+                terminated = awaitTermination(timeout, unit);
+            } catch (InterruptedException e) {
+                terminated = false;
+            }
+            listener.onTermination(terminated);
+        }, "sense-shutdown");
+        thread.start();
+        return thread;
+    }
+
+    boolean isShutdown() {
+        return ui.shutdown;
+    }
+
+    String report() {
+        return capture + "\n" + inference + "\n" + io + "\n" + ui;
+    }
+}
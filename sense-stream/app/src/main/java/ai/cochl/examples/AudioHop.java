@@ -0,0 +1,48 @@
+package ai.cochl.examples;
+
+/**
+ * A pre-allocated hop buffer handed from the capture thread to the inference thread.
+ * <p>
+ * Exactly one of {@code floats} and {@code shorts} is allocated, depending on the recorder
+ * encoding. Hops are owned by an {@link AudioHopPool}: whoever holds a hop after
+ * {@code acquire} must give it back with {@code release} once the samples have been consumed.
+ */
+final class AudioHop {
+    final float[] floats;
+    final short[] shorts;
+
+    // Number of valid samples, at most capacity()
+    int length;
+
+    // LatencyMetrics.now() when the samples were read
+    long captureNanos;
+
+    // Set while the hop sits in its pool's free list. Visibility between the capture and
+    // inference threads is provided by the queues the hop travels through.
+    boolean pooled = true;
+
+    private final AudioHopPool owner;
+
+    AudioHop(AudioHopPool owner, int capacity, boolean floatSamples) {
+        this.owner = owner;
+        this.floats = floatSamples ? new float[capacity] : null;
+        this.shorts = floatSamples ? null : new short[capacity];
+    }
+
+    boolean isFloat() {
+        return floats != null;
+    }
+
+    int capacity() {
+        return floats != null ? floats.length : shorts.length;
+    }
+
+    AudioHopPool getOwner() {
+        return owner;
+    }
+
+    // Gives the hop back to its pool; it must not be touched afterwards.
+    void release() {
+        owner.release(this);
+    }
+}
@@ -0,0 +1,98 @@
+package ai.cochl.examples;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed-size pool of {@link AudioHop} buffers shared by the capture and inference threads.
+ * <p>
+ * All hops are allocated up front, and the free list is an array-backed queue, so acquiring
+ * and releasing hops does not allocate. When every hop is in flight, {@code acquire} blocks
+ * until one is released; how often and how long that happens is tracked so an undersized pool
+ * (or an inference stage that cannot keep up) shows up in the stats.
+ */
+final class AudioHopPool {
+    private final BlockingQueue<AudioHop> free;
+    private final int size;
+
+    private final AtomicLong acquireCount = new AtomicLong();
+    private final AtomicLong waitCount = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+
+    private AudioHopPool(int size, int hopSize, boolean floatSamples) {
+        if (size <= 0 || hopSize <= 0) {
+            throw new IllegalArgumentException("size and hopSize must be positive");
+        }
+        this.size = size;
+        this.free = new ArrayBlockingQueue<>(size);
+        for (int i = 0; i < size; ++i) {
+            free.add(new AudioHop(this, hopSize, floatSamples));
+        }
+    }
+
+    static AudioHopPool ofFloat(int size, int hopSize) {
+        return new AudioHopPool(size, hopSize, true);
+    }
+
+    static AudioHopPool ofShort(int size, int hopSize) {
+        return new AudioHopPool(size, hopSize, false);
+    }
+
+    AudioHop acquire() throws InterruptedException {
+        acquireCount.incrementAndGet();
+
+        AudioHop hop = free.poll();
+        if (hop == null) {
+            waitCount.incrementAndGet();
+            long start = System.nanoTime();
+            hop = free.take();
+            waitNanos.addAndGet(System.nanoTime() - start);
+        }
+        hop.pooled = false;
+        hop.length = 0;
+        return hop;
+    }
+
+    void release(AudioHop hop) {
+        if (hop.getOwner() != this) {
+            throw new IllegalArgumentException("Hop does not belong to this pool");
+        }
+        if (hop.pooled) {
+            throw new IllegalStateException("Hop released more than once");
+        }
+        hop.pooled = true;
+        free.add(hop);
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    int getAvailable() {
+        return free.size();
+    }
+
+    long getAcquireCount() {
+        return acquireCount.get();
+    }
+
+    // Number of acquire calls that found the pool empty and had to wait for a release
+    long getWaitCount() {
+        return waitCount.get();
+    }
+
+    long getWaitNanos() {
+        return waitNanos.get();
+    }
+
+    @Override
+    public String toString() {
+        return "AudioHopPool{size=" + size
+                + ", available=" + getAvailable()
+                + ", acquired=" + getAcquireCount()
+                + ", waits=" + getWaitCount()
+                + ", waitMs=" + getWaitNanos() / 1_000_000
+                + "}";
+    }
+}
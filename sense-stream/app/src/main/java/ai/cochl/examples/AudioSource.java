@@ -0,0 +1,40 @@
+package ai.cochl.examples;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Audio fed to the stream pipeline.
+ * <p>
+ * A source delivers its samples either as floats in [-1, 1] or as 16-bit PCM, as told by
+ * {@link #isFloat()}; only the matching {@code read} method needs to be efficient. Sources with
+ * more than one channel interleave them, and lengths count samples, not frames. Reads block
+ * like {@code AudioRecord.READ_BLOCKING}: a live or real-time source returns once the samples
+ * have been "captured", a replay at maximum speed returns immediately.
+ * <p>
+ * Besides the microphone, sources can replay a WAV file or generate a signal, so the whole
+ * pipeline can run in JVM tests and benchmarks without a device.
+ */
+interface AudioSource extends Closeable {
+    enum Pacing {
+        // Deliver samples no faster than a microphone would
+        REAL_TIME,
+        // Deliver samples as fast as they are read, e.g. to measure throughput
+        MAX_SPEED
+    }
+
+    int getSampleRate();
+
+    default int getChannelCount() {
+        return 1;
+    }
+
+    boolean isFloat();
+
+    void start() throws IOException;
+
+    // Returns the number of samples read, at most length, or -1 once the source has ended
+    int read(float[] buffer, int offset, int length) throws IOException;
+
+    int read(short[] buffer, int offset, int length) throws IOException;
+}
@@ -0,0 +1,134 @@
+package ai.cochl.examples;
+
+import java.io.IOException;
+
+/**
+ * Capture stage of the stream pipeline.
+ * <p>
+ * Reads the {@link AudioSource} one hop at a time into a buffer from the pool and hands it over
+ * to the inference thread through the {@link HopQueue}; the inference thread releases it once
+ * the samples are in its window. No buffer is shared between the two threads and nothing is
+ * allocated per hop. The last hop of a finite source may be partial.
+ * <p>
+ * The loop runs until the source ends, fails, or the thread is interrupted. The source is
+ * closed in every case. A source that keeps returning no samples is given
+ * {@code MAX_EMPTY_READS} tries, a few milliseconds apart, and is then treated as ended, so a
+ * stalled source neither spins the capture thread nor keeps it from being stopped.
+ */
+final class CaptureLoop implements Runnable {
+    static final int MAX_EMPTY_READS = 50;
+    private static final long EMPTY_READ_BACKOFF_MS = 10;
+
+    interface Listener {
+        // The source has no more samples
+        void onEnd();
+
+        void onError(String reason);
+    }
+
+    private final AudioSource source;
+    private final int hopSize;
+    private final HopQueue hopQueue;
+    private final AudioHopPool pool;
+    private final Listener listener;
+
+    CaptureLoop(AudioSource source, int hopSize, int poolSize, HopQueue hopQueue,
+                Listener listener) {
+        if (hopSize <= 0) {
+            throw new IllegalArgumentException("hopSize must be positive");
+        }
+        this.source = source;
+        this.hopSize = hopSize;
+        this.hopQueue = hopQueue;
+        this.listener = listener;
+        this.pool = source.isFloat()
+                ? AudioHopPool.ofFloat(poolSize, hopSize)
+                : AudioHopPool.ofShort(poolSize, hopSize);
+    }
+
+    AudioHopPool getPool() {
+        return pool;
+    }
+
+    @Override
+    public void run() {
+        try {
+            source.start();
+            while (!Thread.currentThread().isInterrupted()) {
+                AudioHop hop = pool.acquire();
+
+                int length;
+                try {
+                    length = fill(hop);
+                } catch (IOException e) {
+                    hop.release();
+                    throw e;
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    hop.release();
+                    return;
+                }
+                if (length <= 0) {
+                    hop.release();
+                    listener.onEnd();
+                    return;
+                }
+                hop.length = length;
+                hop.captureNanos = LatencyMetrics.now();
+
+                try {
+                    hopQueue.put(hop);
+                } catch (InterruptedException e) {
+                    // Only the BLOCK policy waits, and it has not taken the hop in that case
+                    hop.release();
+                    throw e;
+                }
+                if (length < hopSize) {
+                    listener.onEnd();
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            if (!Thread.currentThread().isInterrupted()) {
+                listener.onError(e.toString());
+            }
+        } finally {
+            try {
+                source.close();
+            } catch (IOException e) {
+                listener.onError(e.toString());
+            }
+        }
+    }
+
+    // Reads a whole hop unless the source ends or stalls first; returns 0 if it had already ended
+    private int fill(AudioHop hop) throws IOException {
+        int length = 0;
+        int emptyReads = 0;
+        while (length < hopSize) {
+            int read = hop.isFloat()
+                    ? source.read(hop.floats, length, hopSize - length)
+                    : source.read(hop.shorts, length, hopSize - length);
+            if (read < 0) {
+                break;
+            }
+            if (read == 0) {
+                if (++emptyReads > MAX_EMPTY_READS) {
+                    break;
+                }
+                try {
+                    Thread.sleep(EMPTY_READ_BACKOFF_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                continue;
+            }
+            emptyReads = 0;
+            length += read;
+        }
+        return length;
+    }
+}
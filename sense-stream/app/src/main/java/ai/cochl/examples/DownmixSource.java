@@ -0,0 +1,159 @@
+package ai.cochl.examples;
+
+import java.io.IOException;
+
+/**
+ * Mixes a multi-channel {@link AudioSource} down to mono by averaging its channels.
+ * <p>
+ * Stereo, the common case of two-mic boards, has its own loop without an inner channel loop,
+ * which the JIT can unroll and vectorize. Samples are delivered as floats; the interleaved input
+ * is read into a buffer that grows to the largest read and is reused.
+ */
+final class DownmixSource implements AudioSource {
+    private final AudioSource source;
+    private final int channels;
+    private float[] floatInput = new float[0];
+    private short[] shortInput = new short[0];
+    private float[] floatOutput = new float[0];
+
+    DownmixSource(AudioSource source) {
+        this.source = source;
+        this.channels = source.getChannelCount();
+    }
+
+    @Override
+    public int getSampleRate() {
+        return source.getSampleRate();
+    }
+
+    @Override
+    public boolean isFloat() {
+        return true;
+    }
+
+    @Override
+    public void start() throws IOException {
+        source.start();
+    }
+
+    @Override
+    public int read(float[] buffer, int offset, int length) throws IOException {
+        if (channels == 1) {
+            return readMono(buffer, offset, length);
+        }
+
+        int samples = length * channels;
+        int read;
+        if (source.isFloat()) {
+            if (floatInput.length < samples) {
+                floatInput = new float[samples];
+            }
+            read = readFrames(floatInput, samples);
+        } else {
+            if (shortInput.length < samples) {
+                shortInput = new short[samples];
+            }
+            if (floatInput.length < samples) {
+                floatInput = new float[samples];
+            }
+            read = readFrames(shortInput, samples);
+            if (read > 0) {
+                PcmConversion.toFloat(shortInput, 0, floatInput, 0, read);
+            }
+        }
+        if (read < 0) {
+            return -1;
+        }
+
+        int frames = read / channels;
+        mix(floatInput, frames, channels, buffer, offset);
+        return frames;
+    }
+
+    @Override
+    public int read(short[] buffer, int offset, int length) throws IOException {
+        if (floatOutput.length < length) {
+            floatOutput = new float[length];
+        }
+        int read = read(floatOutput, 0, length);
+        if (read > 0) {
+            PcmConversion.toPcm16(floatOutput, 0, buffer, offset, read);
+        }
+        return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    static void mix(float[] in, int frames, int channels, float[] out, int outOffset) {
+        if (channels == 2) {
+            for (int i = 0; i < frames; ++i) {
+                out[outOffset + i] = (in[2 * i] + in[2 * i + 1]) * 0.5f;
+            }
+            return;
+        }
+
+        float scale = 1f / channels;
+        for (int i = 0, j = 0; i < frames; ++i) {
+            float sum = 0;
+            for (int c = 0; c < channels; ++c) {
+                sum += in[j++];
+            }
+            out[outOffset + i] = sum * scale;
+        }
+    }
+
+    private int readMono(float[] buffer, int offset, int length) throws IOException {
+        if (source.isFloat()) {
+            return source.read(buffer, offset, length);
+        }
+        if (shortInput.length < length) {
+            shortInput = new short[length];
+        }
+        int read = source.read(shortInput, 0, length);
+        if (read > 0) {
+            PcmConversion.toFloat(shortInput, 0, buffer, offset, read);
+        }
+        return read;
+    }
+
+    // Reads whole frames, so the channels stay aligned across reads. Returns 0 if the source has
+    // no samples yet; the caller decides how long to wait for them.
+    private int readFrames(float[] in, int samples) throws IOException {
+        int read = 0;
+        do {
+            int n = source.read(in, read, samples - read);
+            if (n < 0) {
+                return read > 0 ? read - read % channels : -1;
+            }
+            if (n == 0) {
+                if (read == 0) {
+                    return 0;
+                }
+                throw new IOException("The source stalled in the middle of a frame");
+            }
+            read += n;
+        } while (read % channels != 0);
+        return read;
+    }
+
+    private int readFrames(short[] in, int samples) throws IOException {
+        int read = 0;
+        do {
+            int n = source.read(in, read, samples - read);
+            if (n < 0) {
+                return read > 0 ? read - read % channels : -1;
+            }
+            if (n == 0) {
+                if (read == 0) {
+                    return 0;
+                }
+                throw new IOException("The source stalled in the middle of a frame");
+            }
+            read += n;
+        } while (read % channels != 0);
+        return read;
+    }
+}
@@ -0,0 +1,165 @@
+package ai.cochl.examples;
+
+/**
+ * Cheap pre-inference gate that lets the stream pipeline skip predictions on quiet audio.
+ * <p>
+ * Every hop is measured before it is released: its RMS and peak level, and optionally the
+ * {@link SpectralFlux spectral flux} of its first channel. A hop is active when its RMS rises
+ * {@code marginDb} above the noise floor, when its peak rises {@code PEAK_MARGIN_DB} further, or
+ * when its flux jumps to {@code FLUX_RATIO} times the usual flux of the room; quieter than
+ * {@code minLevelDb} is never active. The noise floor follows quiet hops quickly and loud ones
+ * slowly: a fan that is switched on stops opening the gate after half a minute or so, while a
+ * short event barely moves the floor.
+ * <p>
+ * {@link #decide()} is called once per window that could be predicted. The gate stays open for
+ * {@code hangoverHops} windows after the last active hop, so the tail of an event is still
+ * predicted, and the onset is kept by the window anyway: it also holds the previous hop. While
+ * closed, every {@code idlePredictInterval}-th window is still predicted (0 never does), which
+ * downsamples predictions instead of stopping them.
+ * <p>
+ * A gate belongs to one inference thread; only the counters may be read from other threads.
+ */
+final class EnergyGate {
+    // Levels are clamped here, so digital silence has a finite level
+    private static final float SILENCE_DB = -120f;
+    // A peak this far above the RMS margin is a click, e.g. breaking glass
+    private static final float PEAK_MARGIN_DB = 12f;
+    // Noise floor smoothing per hop, towards quieter and towards louder hops
+    private static final float FLOOR_FALL = 0.5f;
+    private static final float FLOOR_RISE = 0.02f;
+    private static final float FLUX_RATIO = 2.5f;
+    private static final float FLUX_SMOOTHING = 0.1f;
+    private static final int FLUX_FRAME_SIZE = 512;
+
+    private final float marginDb;
+    private final float minLevelDb;
+    private final int hangoverHops;
+    private final int idlePredictInterval;
+    private final SpectralFlux flux;
+    private float[] floatScratch = null;
+
+    private float noiseFloorDb = Float.NaN;
+    private float meanFlux = Float.NaN;
+    private float lastLevelDb = SILENCE_DB;
+    private boolean active = false;
+    private int hangoverLeft = 0;
+    private int idleWindows = 0;
+
+    private volatile long processedCount = 0;
+    private volatile long skippedCount = 0;
+
+    EnergyGate(float marginDb, float minLevelDb, int hangoverHops, int idlePredictInterval,
+               boolean spectralFlux) {
+        if (hangoverHops < 0 || idlePredictInterval < 0) {
+            throw new IllegalArgumentException("hangoverHops and idlePredictInterval must not be negative");
+        }
+        this.marginDb = marginDb;
+        this.minLevelDb = minLevelDb;
+        this.hangoverHops = hangoverHops;
+        this.idlePredictInterval = idlePredictInterval;
+        this.flux = spectralFlux ? new SpectralFlux(FLUX_FRAME_SIZE) : null;
+    }
+
+    // Measures a hop of interleaved samples
+    void analyze(float[] samples, int length, int channels) {
+        float sum = 0;
+        float peak = 0;
+        for (int i = 0; i < length; ++i) {
+            float sample = samples[i];
+            sum += sample * sample;
+            peak = Math.max(peak, Math.abs(sample));
+        }
+        float levelDb = toDb(length > 0 ? (float) Math.sqrt(sum / length) : 0);
+        float peakDb = toDb(peak);
+        float hopFlux = flux != null ? flux.process(samples, 0, channels, length / channels) : 0;
+        update(levelDb, peakDb, hopFlux);
+    }
+
+    void analyze(short[] samples, int length, int channels) {
+        if (floatScratch == null || floatScratch.length < length) {
+            floatScratch = new float[length];
+        }
+        PcmConversion.toFloat(samples, 0, floatScratch, 0, length);
+        analyze(floatScratch, length, channels);
+    }
+
+    // Whether the window that ends with the hops analyzed since the last call should be
+    // predicted. Counts it as processed or skipped.
+    boolean decide() {
+        boolean predict;
+        if (active) {
+            hangoverLeft = hangoverHops;
+            predict = true;
+        } else if (hangoverLeft > 0) {
+            --hangoverLeft;
+            predict = true;
+        } else {
+            predict = idlePredictInterval > 0 && ++idleWindows >= idlePredictInterval;
+        }
+        active = false;
+
+        if (predict) {
+            idleWindows = 0;
+            ++processedCount;
+        } else {
+            ++skippedCount;
+        }
+        return predict;
+    }
+
+    long getProcessedCount() {
+        return processedCount;
+    }
+
+    long getSkippedCount() {
+        return skippedCount;
+    }
+
+    float getNoiseFloorDb() {
+        return noiseFloorDb;
+    }
+
+    float getLastLevelDb() {
+        return lastLevelDb;
+    }
+
+    void reset() {
+        noiseFloorDb = Float.NaN;
+        meanFlux = Float.NaN;
+        lastLevelDb = SILENCE_DB;
+        active = false;
+        hangoverLeft = 0;
+        idleWindows = 0;
+        if (flux != null) {
+            flux.reset();
+        }
+    }
+
+    private void update(float levelDb, float peakDb, float hopFlux) {
+        lastLevelDb = levelDb;
+        if (Float.isNaN(noiseFloorDb)) {
+            // The first hop only calibrates the floor
+            noiseFloorDb = levelDb;
+            meanFlux = hopFlux;
+            return;
+        }
+
+        float threshold = Math.max(noiseFloorDb + marginDb, minLevelDb);
+        boolean loud = levelDb >= threshold || peakDb >= threshold + PEAK_MARGIN_DB;
+        boolean onset = flux != null && levelDb >= minLevelDb && meanFlux > 0
+                && hopFlux >= FLUX_RATIO * meanFlux;
+        if (loud || onset) {
+            active = true;
+        }
+
+        float rate = levelDb < noiseFloorDb ? FLOOR_FALL : FLOOR_RISE;
+        noiseFloorDb += (levelDb - noiseFloorDb) * rate;
+        if (!onset) {
+            meanFlux += (hopFlux - meanFlux) * FLUX_SMOOTHING;
+        }
+    }
+
+    private static float toDb(float amplitude) {
+        return amplitude > 0 ? Math.max(SILENCE_DB, (float) (20 * Math.log10(amplitude))) : SILENCE_DB;
+    }
+}
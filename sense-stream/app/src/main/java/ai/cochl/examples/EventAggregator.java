@@ -0,0 +1,247 @@
+package ai.cochl.examples;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Merges the per-frame detections of the stream into sound events with an onset and an offset.
+ * <p>
+ * Every tag goes through a small state machine with hysteresis. A tag starts an event once its
+ * probability has reached {@code onThreshold} in {@code onFrames} consecutive frames, and ends it
+ * once it has stayed below the lower {@code offThreshold} for {@code offFrames} consecutive
+ * frames; a tag missing from a frame counts as probability 0. A siren that is detected in forty
+ * frames in a row is therefore one onset and one offset, and a single frame that dips below the
+ * threshold does not split it. The peak and mean probability are taken over the frames of the
+ * event that were at or above {@code offThreshold}.
+ * <p>
+ * Each frame costs O(tags in the frame + events in progress): tags are looked up by name in a
+ * map, and the events in progress are kept in an array. The state of a tag is allocated the
+ * first time the tag is seen and reused for all its later events, so once the vocabulary has
+ * been seen no frame allocates. The {@link TagEvent} passed to the listener is that state; it
+ * must not be kept after the callback.
+ * <p>
+ * An aggregator is not thread-safe; use one per channel and thread.
+ */
+final class EventAggregator {
+    interface Listener {
+        void onOnset(TagEvent event);
+
+        void onOffset(TagEvent event);
+    }
+
+    static final class Config {
+        float onThreshold = 0.5f;
+        float offThreshold = 0.3f;
+        int onFrames = 1;
+        int offFrames = 2;
+        // The catch-all tag is not an event of its own
+        String ignoredTag = "Others";
+    }
+
+    // An event in progress, or the last event of a tag
+    static final class TagEvent {
+        private enum State {
+            IDLE,
+            // Above onThreshold, but not for onFrames yet
+            PENDING,
+            ACTIVE,
+            // Below offThreshold, but not for offFrames yet
+            RELEASING
+        }
+
+        private final String tag;
+        private State state = State.IDLE;
+        private int count = 0;
+        private long lastSeen = -1;
+        private int activeIndex = -1;
+
+        private double onsetTime;
+        private double offsetTime;
+        private float peak;
+        private double sum;
+        private int frames;
+
+        private TagEvent(String tag) {
+            this.tag = tag;
+        }
+
+        String getTag() {
+            return tag;
+        }
+
+        double getOnsetTime() {
+            return onsetTime;
+        }
+
+        // End of the last frame at or above offThreshold
+        double getOffsetTime() {
+            return offsetTime;
+        }
+
+        float getPeakProbability() {
+            return peak;
+        }
+
+        float getMeanProbability() {
+            return frames > 0 ? (float) (sum / frames) : 0;
+        }
+
+        int getFrameCount() {
+            return frames;
+        }
+
+        // e.g. "12.0 s: Siren started, 93%"
+        StringBuilder appendOnset(StringBuilder out) {
+            return out.append(onsetTime).append(" s: ").append(tag).append(" started, ")
+                    .append(Math.round(peak * 100)).append('%');
+        }
+
+        // e.g. "12.0-20.5 s: Siren, peak 93%, mean 81%"
+        StringBuilder appendOffset(StringBuilder out) {
+            return out.append(onsetTime).append('-').append(offsetTime).append(" s: ").append(tag)
+                    .append(", peak ").append(Math.round(peak * 100))
+                    .append("%, mean ").append(Math.round(getMeanProbability() * 100)).append('%');
+        }
+
+        private void begin(double startTime) {
+            onsetTime = startTime;
+            peak = 0;
+            sum = 0;
+            frames = 0;
+        }
+
+        private void add(float probability, double endTime) {
+            peak = Math.max(peak, probability);
+            sum += probability;
+            ++frames;
+            offsetTime = endTime;
+        }
+    }
+
+    private final Config config;
+    private final Map<String, TagEvent> events = new HashMap<>();
+    // Tags that are not IDLE, the only ones that need a look when they are missing from a frame
+    private TagEvent[] active = new TagEvent[8];
+    private int activeCount = 0;
+    private long frameIndex = 0;
+
+    EventAggregator(Config config) {
+        if (config.offThreshold > config.onThreshold) {
+            throw new IllegalArgumentException("offThreshold must not be above onThreshold");
+        }
+        if (config.onFrames < 1 || config.offFrames < 1) {
+            throw new IllegalArgumentException("onFrames and offFrames must be positive");
+        }
+        this.config = config;
+    }
+
+    void update(FrameResult frame, Listener listener) {
+        ++frameIndex;
+        for (int i = 0; i < frame.getTagCount(); ++i) {
+            TagScore score = frame.getTag(i);
+            if (score.name.equals(config.ignoredTag)) {
+                continue;
+            }
+            TagEvent event = events.get(score.name);
+            if (event == null) {
+                if (score.probability < config.onThreshold) {
+                    continue;
+                }
+                event = new TagEvent(score.name);
+                events.put(score.name, event);
+            }
+            event.lastSeen = frameIndex;
+            step(event, score.probability, frame, listener);
+        }
+
+        // Tags in progress that this frame did not mention. Walking down keeps the indices of
+        // the events not visited yet when one is removed.
+        for (int i = activeCount - 1; i >= 0; --i) {
+            TagEvent event = active[i];
+            if (event.lastSeen != frameIndex) {
+                step(event, 0, frame, listener);
+            }
+        }
+    }
+
+    // Ends every event in progress, e.g. when the stream stops
+    void flush(Listener listener) {
+        for (int i = activeCount - 1; i >= 0; --i) {
+            TagEvent event = active[i];
+            if (event.state == TagEvent.State.ACTIVE || event.state == TagEvent.State.RELEASING) {
+                listener.onOffset(event);
+            }
+            deactivate(event);
+        }
+    }
+
+    int getActiveCount() {
+        return activeCount;
+    }
+
+    private void step(TagEvent event, float probability, FrameResult frame, Listener listener) {
+        switch (event.state) {
+            case IDLE:
+                if (probability >= config.onThreshold) {
+                    activate(event);
+                    event.begin(frame.startTime);
+                    event.add(probability, frame.endTime);
+                    event.count = 1;
+                    event.state = TagEvent.State.PENDING;
+                    onsetIfDue(event, listener);
+                }
+                break;
+            case PENDING:
+                if (probability >= config.onThreshold) {
+                    event.add(probability, frame.endTime);
+                    ++event.count;
+                    onsetIfDue(event, listener);
+                } else {
+                    deactivate(event);
+                }
+                break;
+            case ACTIVE:
+            case RELEASING:
+                if (probability >= config.offThreshold) {
+                    event.add(probability, frame.endTime);
+                    event.count = 0;
+                    event.state = TagEvent.State.ACTIVE;
+                } else if (++event.count >= config.offFrames) {
+                    listener.onOffset(event);
+                    deactivate(event);
+                } else {
+                    event.state = TagEvent.State.RELEASING;
+                }
+                break;
+        }
+    }
+
+    private void onsetIfDue(TagEvent event, Listener listener) {
+        if (event.count >= config.onFrames) {
+            event.count = 0;
+            event.state = TagEvent.State.ACTIVE;
+            listener.onOnset(event);
+        }
+    }
+
+    private void activate(TagEvent event) {
+        if (activeCount == active.length) {
+            TagEvent[] grown = new TagEvent[active.length * 2];
+            System.arraycopy(active, 0, grown, 0, activeCount);
+            active = grown;
+        }
+        event.activeIndex = activeCount;
+        active[activeCount++] = event;
+    }
+
+    private void deactivate(TagEvent event) {
+        event.state = TagEvent.State.IDLE;
+        event.count = 0;
+        // Swap with the last one
+        TagEvent last = active[--activeCount];
+        active[event.activeIndex] = last;
+        last.activeIndex = event.activeIndex;
+        active[activeCount] = null;
+        event.activeIndex = -1;
+    }
+}
@@ -0,0 +1,89 @@
+package ai.cochl.examples;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scrolling list of event lines backed by a virtualized {@link RecyclerView}.
+ * <p>
+ * Lines may be appended from any thread. They are collected until the next animation frame
+ * and then handed to the adapter as one batch, so any number of lines arriving within the same
+ * vsync costs a single layout pass. Callers that already batch per frame on the main thread can
+ * render their lines directly with {@link #AppendAll(List)}. The list keeps following new lines
+ * unless the user has scrolled up.
+ */
+class EventLog {
+    private final RecyclerView recyclerView;
+    private final EventLogAdapter adapter;
+
+    private final Object lock = new Object();
+    private List<String> pending = new ArrayList<>();
+    private List<String> flushing = new ArrayList<>();
+    private boolean flushScheduled = false;
+    private final Runnable flush = this::flush;
+
+    EventLog(RecyclerView recyclerView, int maxLines) {
+        this.recyclerView = recyclerView;
+        this.adapter = new EventLogAdapter(maxLines);
+
+        LinearLayoutManager layoutManager = new LinearLayoutManager(recyclerView.getContext(),
+                RecyclerView.VERTICAL, false);
+        layoutManager.setStackFromEnd(true);
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.setItemAnimator(null);
+        recyclerView.setAdapter(adapter);
+    }
+
+    void Append(String line) {
+        synchronized (lock) {
+            pending.add(line);
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+        }
+        recyclerView.postOnAnimation(flush);
+    }
+
+    // Must be called on the main thread
+    void AppendAll(List<String> lines) {
+        // Lines appended from other threads come first, to keep the order
+        flush();
+        render(lines);
+    }
+
+    // Must be called on the main thread
+    void Clear() {
+        synchronized (lock) {
+            pending.clear();
+        }
+        adapter.Clear();
+    }
+
+    private void flush() {
+        synchronized (lock) {
+            // Swap the buffers so producers can keep appending while the batch is rendered
+            List<String> batch = pending;
+            pending = flushing;
+            flushing = batch;
+            flushScheduled = false;
+        }
+        render(flushing);
+        flushing.clear();
+    }
+
+    private void render(List<String> lines) {
+        if (lines.isEmpty()) {
+            return;
+        }
+
+        boolean atBottom = !recyclerView.canScrollVertically(1);
+        adapter.AddLines(lines);
+        if (atBottom) {
+            recyclerView.scrollToPosition(adapter.getItemCount() - 1);
+        }
+    }
+}
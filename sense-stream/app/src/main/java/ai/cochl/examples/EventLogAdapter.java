@@ -0,0 +1,73 @@
+package ai.cochl.examples;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.List;
+
+public class EventLogAdapter extends RecyclerView.Adapter<EventLogAdapter.ViewHolder> {
+    private final LineRingBuffer lines;
+
+    EventLogAdapter(int maxLines) {
+        lines = new LineRingBuffer(maxLines);
+    }
+
+    @Override
+    public int getItemCount() {
+        return lines.size();
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+        View itemView = inflater.inflate(R.layout.event_line, parent, false);
+
+        return new ViewHolder(itemView);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        holder.tv.setText(lines.get(position));
+    }
+
+    // Appends a batch of lines with one removal and one insertion notification
+    void AddLines(List<String> batch) {
+        int before = lines.size();
+        int evicted = 0;
+        for (String line : batch) {
+            evicted += lines.append(line);
+        }
+
+        if (evicted >= before) {
+            // None of the previous lines is left
+            notifyDataSetChanged();
+            return;
+        }
+        int kept = before - evicted;
+        if (evicted > 0) {
+            notifyItemRangeRemoved(0, evicted);
+        }
+        notifyItemRangeInserted(kept, lines.size() - kept);
+    }
+
+    void Clear() {
+        int count = lines.size();
+        lines.clear();
+        notifyItemRangeRemoved(0, count);
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        TextView tv;
+
+        ViewHolder(View itemView) {
+            super(itemView);
+            tv = itemView.findViewById(R.id.event_line);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package ai.cochl.examples;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * UI stage of the stream pipeline.
+ * <p>
+ * Lines are queued from any thread into a bounded queue. Ending a frame schedules a drain on the
+ * next display frame (a {@code Choreographer} callback in the app), and the drain hands every
+ * pending line to the renderer as one batch. Rendering therefore runs at most once per display
+ * frame, however many events were detected in between. When the UI falls behind, the oldest
+ * pending lines are discarded: only the latest lines stay visible anyway.
+ * <p>
+ * Each frame is ended with its capture timestamp, so the render and end-to-end latency can be
+ * recorded when the lines are actually drawn.
+ */
+class EventSink {
+    interface FrameScheduler {
+        // Runs the callback once, on the UI thread, at the start of the next display frame
+        void postFrame(Runnable callback);
+    }
+
+    private final FrameScheduler scheduler;
+    private final BlockingQueue<String> lines;
+    private final Consumer<List<String>> renderer;
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+    private final Runnable drain = this::drain;
+    // Only touched by the drain, on the UI thread
+    private final List<String> batch;
+
+    private final LatencyMetrics metrics;
+    // Pending frame timestamps, a ring guarded by itself. Oldest entries are overwritten.
+    private final long[] frameCaptureNanos;
+    private final long[] frameHandedNanos;
+    private int frameHead = 0;
+    private int frameCount = 0;
+
+    EventSink(FrameScheduler scheduler, int capacity, Consumer<List<String>> renderer,
+              LatencyMetrics metrics) {
+        this.scheduler = scheduler;
+        this.lines = new ArrayBlockingQueue<>(capacity);
+        this.renderer = renderer;
+        this.batch = new ArrayList<>(capacity);
+        this.metrics = metrics;
+        this.frameCaptureNanos = new long[capacity];
+        this.frameHandedNanos = new long[capacity];
+    }
+
+    void offer(String line) {
+        while (!lines.offer(line)) {
+            lines.poll();
+        }
+    }
+
+    // Called after the lines of one frame have been offered; schedules them for rendering.
+    void endFrame(long captureNanos, long handedNanos) {
+        synchronized (frameCaptureNanos) {
+            int index = (frameHead + frameCount) % frameCaptureNanos.length;
+            frameCaptureNanos[index] = captureNanos;
+            frameHandedNanos[index] = handedNanos;
+            if (frameCount < frameCaptureNanos.length) {
+                ++frameCount;
+            } else {
+                frameHead = (frameHead + 1) % frameCaptureNanos.length;
+            }
+        }
+
+        if (drainScheduled.compareAndSet(false, true)) {
+            scheduler.postFrame(drain);
+        }
+    }
+
+    void clear() {
+        lines.clear();
+        synchronized (frameCaptureNanos) {
+            frameHead = 0;
+            frameCount = 0;
+        }
+    }
+
+    private void drain() {
+        drainScheduled.set(false);
+
+        lines.drainTo(batch);
+        if (!batch.isEmpty()) {
+            renderer.accept(batch);
+            batch.clear();
+        }
+
+        long rendered = LatencyMetrics.now();
+        synchronized (frameCaptureNanos) {
+            for (; frameCount > 0; --frameCount) {
+                metrics.record(LatencyMetrics.Stage.RENDER, frameHandedNanos[frameHead], rendered);
+                metrics.record(LatencyMetrics.Stage.END_TO_END, frameCaptureNanos[frameHead], rendered);
+                frameHead = (frameHead + 1) % frameCaptureNanos.length;
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package ai.cochl.examples;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded hand-off between the capture thread and the inference thread.
+ * <p>
+ * What happens when inference falls behind and the queue is full is decided by the
+ * {@link OverloadPolicy}. Apart from {@code BLOCK}, the capture thread never waits, so the
+ * detection latency is bounded by the queue capacity instead of growing with the backlog.
+ * Hops that are discarded are released back to their pool.
+ */
+final class HopQueue {
+    enum OverloadPolicy {
+        // Capture waits for a free slot. No audio is lost, but latency grows while behind.
+        BLOCK,
+        // The oldest queued hop is discarded to make room for the new one.
+        DROP_OLDEST,
+        // The new hop is discarded and the queued ones are kept.
+        DROP_NEWEST,
+        // Like DROP_OLDEST when full. In addition, the consumer appends every pending hop to its
+        // window and predicts once on the latest window instead of once per hop.
+        COALESCE
+    }
+
+    private final BlockingQueue<AudioHop> queue;
+    private final OverloadPolicy policy;
+
+    private final AtomicLong enqueuedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+
+    HopQueue(int capacity, OverloadPolicy policy) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.policy = policy;
+    }
+
+    OverloadPolicy getPolicy() {
+        return policy;
+    }
+
+    // Called by the producer. Ownership of the hop passes to the queue in every case.
+    void put(AudioHop hop) throws InterruptedException {
+        switch (policy) {
+            case BLOCK:
+                queue.put(hop);
+                break;
+            case DROP_NEWEST:
+                if (!queue.offer(hop)) {
+                    hop.release();
+                    droppedCount.incrementAndGet();
+                    return;
+                }
+                break;
+            case DROP_OLDEST:
+            case COALESCE:
+                while (!queue.offer(hop)) {
+                    AudioHop oldest = queue.poll();
+                    if (oldest != null) {
+                        oldest.release();
+                        droppedCount.incrementAndGet();
+                    }
+                }
+                break;
+        }
+        enqueuedCount.incrementAndGet();
+        updateMaxDepth();
+    }
+
+    AudioHop take() throws InterruptedException {
+        return queue.take();
+    }
+
+    /**
+     * Returns the next pending hop without waiting, or null. Only used with {@code COALESCE},
+     * where every hop obtained this way is counted as coalesced into the current prediction.
+     */
+    AudioHop pollCoalesced() {
+        AudioHop hop = queue.poll();
+        if (hop != null) {
+            coalescedCount.incrementAndGet();
+        }
+        return hop;
+    }
+
+    // Releases every queued hop, e.g. when the pipeline stops.
+    void clear() {
+        AudioHop hop;
+        while ((hop = queue.poll()) != null) {
+            hop.release();
+        }
+    }
+
+    int getDepth() {
+        return queue.size();
+    }
+
+    int getMaxDepth() {
+        return maxDepth.get();
+    }
+
+    long getEnqueuedCount() {
+        return enqueuedCount.get();
+    }
+
+    long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    private void updateMaxDepth() {
+        int depth = queue.size();
+        int max;
+        while (depth > (max = maxDepth.get())) {
+            if (maxDepth.compareAndSet(max, depth)) {
+                break;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "HopQueue{policy=" + policy
+                + ", depth=" + getDepth()
+                + ", maxDepth=" + getMaxDepth()
+                + ", enqueued=" + getEnqueuedCount()
+                + ", dropped=" + getDroppedCount()
+                + ", coalesced=" + getCoalescedCount()
+                + "}";
+    }
+}
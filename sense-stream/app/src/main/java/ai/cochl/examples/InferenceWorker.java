@@ -0,0 +1,404 @@
+package ai.cochl.examples;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import ai.cochl.sensesdk.CochlException;
+
+/**
+ * Inference stage of the stream pipeline.
+ * <p>
+ * Takes captured hops from a bounded queue, runs the {@link Predictor} on the sliding window and
+ * hands the rendered lines to the {@link EventSink}. Inference and JSON handling therefore never
+ * run on the main looper; only the final strings do. Results are decoded into pooled
+ * {@link FrameResult frames} by a {@link ResultDecoder}, and the full JSON is only pretty-printed
+ * in verbose mode.
+ * <p>
+ * Each hop is released back to its pool as soon as its samples have been appended to the
+ * window. With the {@code COALESCE} overload policy, all hops that are pending when a prediction
+ * starts are appended first, so a worker that has fallen behind catches up with a single
+ * prediction on the latest window. The timestamps of the latest hop in the window are used for
+ * the latency of that prediction.
+ * <p>
+ * With one predictor per channel, hops hold interleaved samples and every channel gets its own
+ * window. The channels of a window are predicted one after another on the worker thread, as the
+ * SDK runs one prediction at a time anyway, and their lines are prefixed with the channel
+ * index. To predict a single window from several channels, mix them down with a
+ * {@link DownmixSource} before capture instead.
+ * <p>
+ * An optional {@link EnergyGate} measures every hop before it is released and skips the
+ * predictions of quiet windows. An optional {@link PredictScheduler} is told how long each
+ * prediction took and predicts only every n-th hop when predictions would take more than their
+ * share of the CPU.
+ * <p>
+ * With {@link EventAggregator aggregators}, one per channel, the decoded frames are merged into
+ * sound events and only their onsets and offsets are handed to the sink, instead of a line per
+ * frame. A window that is not predicted, because the gate found it quiet or the scheduler skipped
+ * it, counts as a window without detections, so an event ends on time when the sound does.
+ * Events still in progress are ended when the worker stops.
+ * <p>
+ * The SDK times its frames by a clock of its own, which only moves on when a window is
+ * predicted. The decoded frames are therefore moved onto the stream clock, the samples appended
+ * so far, before they are journaled or rendered: the last frame of a prediction ends with the
+ * window. Skipped windows then do not pull the times of later frames and events back.
+ * <p>
+ * An optional {@link ResultJournal} is handed every decoded frame. Appending only encodes the
+ * frame into memory; the journal writes on its own executor.
+ */
+class InferenceWorker implements Runnable {
+    // Sense.predict in the app; a stand-in when the pipeline runs on the JVM
+    interface Predictor {
+        JSONObject predict(float[] samples, int sampleRate);
+
+        JSONObject predict(short[] samples, int sampleRate);
+    }
+
+    // How audio with more than one channel is predicted
+    enum ChannelStrategy {
+        // Average the channels into one window, at the cost of a single prediction
+        DOWNMIX,
+        // Predict a window per channel, e.g. to tell which microphone heard the event
+        PER_CHANNEL
+    }
+
+    interface ErrorListener {
+        void onError(String reason);
+    }
+
+    private static final int HOPS_PER_WINDOW = 2;
+
+    private final HopQueue hopQueue;
+    private final Predictor[] predictors;
+    private final int channels;
+    private final int sampleRate;
+    private final boolean resultAbbreviation;
+    private final boolean verbose;
+    private final ResultDecoder decoder = new ResultDecoder();
+    private final EventSink sink;
+    private final ErrorListener errorListener;
+    private final LatencyMetrics metrics;
+
+    private SlidingAudioWindow.OfFloat[] floatWindows = null;
+    private SlidingAudioWindow.OfShort[] shortWindows = null;
+    // One channel of the latest hop, copied out of the interleaved samples
+    private float[] floatChannel = null;
+    private short[] shortChannel = null;
+    private long windowCaptureNanos;
+
+    private final JSONObject[] results;
+    private EnergyGate gate = null;
+    private PredictScheduler scheduler = null;
+    private EventAggregator[] aggregators = null;
+    private EventAggregator.Listener[] aggregatorListeners = null;
+    private ResultJournal journal = null;
+    private String[] journalSources = null;
+    private final StringBuilder eventLine = new StringBuilder();
+    private int eventLines = 0;
+    // Samples per channel appended so far, the clock that every frame is timed by
+    private long streamFrames = 0;
+    private final FrameResult unscoredFrame = new FrameResult();
+
+    InferenceWorker(HopQueue hopQueue, Predictor predictor, int sampleRate,
+                    boolean resultAbbreviation, boolean verbose, EventSink sink,
+                    ErrorListener errorListener, LatencyMetrics metrics) {
+        this(hopQueue, new Predictor[]{predictor}, sampleRate, resultAbbreviation, verbose, sink,
+                errorListener, metrics);
+    }
+
+    // One predictor per channel of the captured hops
+    InferenceWorker(HopQueue hopQueue, Predictor[] predictors, int sampleRate,
+                    boolean resultAbbreviation, boolean verbose, EventSink sink,
+                    ErrorListener errorListener, LatencyMetrics metrics) {
+        if (predictors.length == 0) {
+            throw new IllegalArgumentException("At least one predictor is required");
+        }
+        this.hopQueue = hopQueue;
+        this.predictors = predictors.clone();
+        this.channels = predictors.length;
+        this.sampleRate = sampleRate;
+        this.resultAbbreviation = resultAbbreviation;
+        this.verbose = verbose;
+        this.sink = sink;
+        this.errorListener = errorListener;
+        this.metrics = metrics;
+
+        results = new JSONObject[channels];
+    }
+
+    // Must be set before the worker runs
+    void setGate(EnergyGate gate) {
+        this.gate = gate;
+    }
+
+    // Must be set before the worker runs
+    void setScheduler(PredictScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    // One aggregator per channel. Must be set before the worker runs.
+    void setAggregators(EventAggregator[] aggregators) {
+        if (aggregators.length != channels) {
+            throw new IllegalArgumentException("Expected " + channels + " aggregators, got "
+                    + aggregators.length);
+        }
+        this.aggregators = aggregators.clone();
+        aggregatorListeners = new EventAggregator.Listener[channels];
+        for (int c = 0; c < channels; ++c) {
+            final int channel = c;
+            aggregatorListeners[c] = new EventAggregator.Listener() {
+                @Override
+                public void onOnset(EventAggregator.TagEvent event) {
+                    eventLine.setLength(0);
+                    offer(channel, event.appendOnset(eventLine).toString());
+                    ++eventLines;
+                }
+
+                @Override
+                public void onOffset(EventAggregator.TagEvent event) {
+                    eventLine.setLength(0);
+                    offer(channel, event.appendOffset(eventLine).toString());
+                    ++eventLines;
+                }
+            };
+        }
+    }
+
+    // Records the decoded frames of every prediction, with a source name per channel. Must be
+    // set before the worker runs.
+    void setJournal(ResultJournal journal, String[] sources) {
+        if (sources.length != channels) {
+            throw new IllegalArgumentException("Expected " + channels + " sources, got "
+                    + sources.length);
+        }
+        this.journal = journal;
+        this.journalSources = sources.clone();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                append(hopQueue.take());
+                int hops = 1;
+                if (hopQueue.getPolicy() == HopQueue.OverloadPolicy.COALESCE) {
+                    AudioHop pending;
+                    while ((pending = hopQueue.pollCoalesced()) != null) {
+                        append(pending);
+                        ++hops;
+                    }
+                }
+                if (scheduler != null) {
+                    scheduler.addHops(hops);
+                }
+
+                if (!isWindowFull()) {  // first frame
+                    continue;
+                }
+                if ((gate != null && !gate.decide()) || (scheduler != null && !scheduler.take())) {
+                    updateUnscored();
+                    continue;
+                }
+
+                long predictStart = LatencyMetrics.now();
+                predictAll();
+                long predictEnd = LatencyMetrics.now();
+                metrics.record(LatencyMetrics.Stage.QUEUE_WAIT, windowCaptureNanos, predictStart);
+                metrics.record(LatencyMetrics.Stage.PREDICT, predictStart, predictEnd);
+                if (scheduler != null) {
+                    scheduler.recordPredict(predictEnd - predictStart);
+                }
+                long wallMillis = journal != null ? System.currentTimeMillis() : 0;
+                int lines = 0;
+                for (int c = 0; c < channels; ++c) {
+                    decoder.decode(results[c]);
+                    toStreamTime();
+                    if (journal != null) {
+                        journal.append(wallMillis, journalSources[c], decoder);
+                    }
+                    lines += render(c, results[c]);
+                }
+                long handled = LatencyMetrics.now();
+                metrics.record(LatencyMetrics.Stage.RESULT, predictEnd, handled);
+                if (lines > 0) {
+                    sink.endFrame(windowCaptureNanos, handled);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (CochlException | JSONException e) {
+            errorListener.onError(e.toString());
+        } finally {
+            if (aggregators != null) {
+                eventLines = 0;
+                for (int c = 0; c < channels; ++c) {
+                    aggregators[c].flush(aggregatorListeners[c]);
+                }
+                if (eventLines > 0) {
+                    sink.endFrame(windowCaptureNanos, LatencyMetrics.now());
+                }
+            }
+        }
+    }
+
+    private void append(AudioHop hop) {
+        // Each window holds the last two hops of its channel. Appending a hop only writes the new
+        // samples, and the contiguous window is assembled once, right before it is passed to
+        // predict.
+        if (hop.isFloat()) {
+            if (floatWindows == null) {
+                floatWindows = new SlidingAudioWindow.OfFloat[channels];
+                for (int c = 0; c < channels; ++c) {
+                    floatWindows[c] = new SlidingAudioWindow.OfFloat(hop.capacity() / channels,
+                            HOPS_PER_WINDOW);
+                }
+            }
+            if (channels == 1) {
+                floatWindows[0].append(hop.floats, 0, hop.length);
+            } else {
+                appendChannels(hop.floats, hop.length / channels);
+            }
+            if (gate != null) {
+                gate.analyze(hop.floats, hop.length, channels);
+            }
+        } else {
+            if (shortWindows == null) {
+                shortWindows = new SlidingAudioWindow.OfShort[channels];
+                for (int c = 0; c < channels; ++c) {
+                    shortWindows[c] = new SlidingAudioWindow.OfShort(hop.capacity() / channels,
+                            HOPS_PER_WINDOW);
+                }
+            }
+            if (channels == 1) {
+                shortWindows[0].append(hop.shorts, 0, hop.length);
+            } else {
+                appendChannels(hop.shorts, hop.length / channels);
+            }
+            if (gate != null) {
+                gate.analyze(hop.shorts, hop.length, channels);
+            }
+        }
+        streamFrames += hop.length / channels;
+        windowCaptureNanos = hop.captureNanos;
+        hop.release();
+    }
+
+    private void appendChannels(float[] interleaved, int frames) {
+        if (floatChannel == null || floatChannel.length < frames) {
+            floatChannel = new float[frames];
+        }
+        for (int c = 0; c < channels; ++c) {
+            for (int i = 0, j = c; i < frames; ++i, j += channels) {
+                floatChannel[i] = interleaved[j];
+            }
+            floatWindows[c].append(floatChannel, 0, frames);
+        }
+    }
+
+    private void appendChannels(short[] interleaved, int frames) {
+        if (shortChannel == null || shortChannel.length < frames) {
+            shortChannel = new short[frames];
+        }
+        for (int c = 0; c < channels; ++c) {
+            for (int i = 0, j = c; i < frames; ++i, j += channels) {
+                shortChannel[i] = interleaved[j];
+            }
+            shortWindows[c].append(shortChannel, 0, frames);
+        }
+    }
+
+    // Hands the aggregators an empty frame for the window that was not predicted
+    private void updateUnscored() {
+        if (aggregators == null) {
+            return;
+        }
+        unscoredFrame.endTime = getStreamTime();
+        unscoredFrame.startTime = unscoredFrame.endTime - getWindowSeconds();
+        eventLines = 0;
+        for (int c = 0; c < channels; ++c) {
+            aggregators[c].update(unscoredFrame, aggregatorListeners[c]);
+        }
+        if (eventLines > 0) {
+            sink.endFrame(windowCaptureNanos, LatencyMetrics.now());
+        }
+    }
+
+    // Shifts the decoded frames so that the last one ends with the window
+    private void toStreamTime() {
+        int count = decoder.getFrameCount();
+        if (count == 0) {
+            return;
+        }
+        double shift = getStreamTime() - decoder.getFrame(count - 1).endTime;
+        for (int i = 0; i < count; ++i) {
+            FrameResult frame = decoder.getFrame(i);
+            frame.startTime += shift;
+            frame.endTime += shift;
+        }
+    }
+
+    // End of the window, in seconds since the first sample
+    private double getStreamTime() {
+        return (double) streamFrames / sampleRate;
+    }
+
+    private double getWindowSeconds() {
+        int windowSize = floatWindows != null ? floatWindows[0].getWindowSize()
+                : shortWindows[0].getWindowSize();
+        return (double) windowSize / sampleRate;
+    }
+
+    private boolean isWindowFull() {
+        return floatWindows != null ? floatWindows[0].isFull() : shortWindows[0].isFull();
+    }
+
+    // Predicts every channel into results. No prediction outlives the call, so the SDK can be
+    // terminated once run() has returned.
+    private void predictAll() {
+        for (int c = 0; c < channels; ++c) {
+            results[c] = predict(c);
+        }
+    }
+
+    private JSONObject predict(int channel) {
+        if (floatWindows != null) {
+            return predictors[channel].predict(floatWindows[channel].view(), sampleRate);
+        } else {
+            return predictors[channel].predict(shortWindows[channel].view(), sampleRate);
+        }
+    }
+
+    // Returns the number of lines handed to the sink. The decoder holds frameResult already.
+    private int render(int channel, JSONObject frameResult) throws JSONException {
+        int lines = 0;
+        if (aggregators != null && decoder.getFrameCount() > 0) {
+            eventLines = 0;
+            for (int i = 0; i < decoder.getFrameCount(); ++i) {
+                aggregators[channel].update(decoder.getFrame(i), aggregatorListeners[channel]);
+            }
+            lines = eventLines;
+        } else if (resultAbbreviation) {
+            for (int i = 0; i < decoder.getAbbreviationCount(); ++i) {
+                offer(channel, decoder.getAbbreviation(i));
+                ++lines;
+            }
+        } else {
+            for (int i = 0; i < decoder.getFrameCount(); ++i) {
+                offer(channel, decoder.formatFrame(i));
+                ++lines;
+            }
+        }
+
+        // Even if you use the result abbreviation, you can still get precise
+        // results like below if necessary
+        if (verbose) {
+            offer(channel, "---------NEW FRAME---------");
+            offer(channel, ResultDecoder.prettyPrint(frameResult));
+            lines += 2;
+        }
+        return lines;
+    }
+
+    private void offer(int channel, String line) {
+        sink.offer(channels == 1 ? line : "[ch " + channel + "] " + line);
+    }
+}
@@ -0,0 +1,80 @@
+package ai.cochl.examples;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Per-stage latency of the stream pipeline, from the moment {@code AudioRecord.read} returns
+ * until the detected events are rendered.
+ * <p>
+ * Timestamps are taken with {@link System#nanoTime()} by the stage that owns the hop at that
+ * point, and only the difference to the previous timestamp is recorded. The report can be
+ * written to logcat or to a file and compared across devices, hop sizes and sensitivity
+ * settings.
+ */
+final class LatencyMetrics {
+    enum Stage {
+        // read returned -> predict started, including the time blocked on a full hop queue. The
+        // hand-off itself is not a stage of its own: the hop cannot be stamped once it is queued.
+        QUEUE_WAIT,
+        // Sense.predict
+        PREDICT,
+        // predict returned -> result turned into lines and handed to the event sink
+        RESULT,
+        // handed to the event sink -> lines rendered on the main thread
+        RENDER,
+        // read returned -> lines rendered
+        END_TO_END
+    }
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+
+    LatencyMetrics() {
+        for (int i = 0; i < histograms.length; ++i) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    static long now() {
+        return System.nanoTime();
+    }
+
+    void record(Stage stage, long startNanos, long endNanos) {
+        histograms[stage.ordinal()].recordNanos(endNanos - startNanos);
+    }
+
+    LatencyHistogram get(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    // One line per stage: count, mean, p50, p95, p99 and max in milliseconds
+    String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US, "%-12s %8s %9s %9s %9s %9s %9s%n",
+                "stage", "count", "mean_ms", "p50_ms", "p95_ms", "p99_ms", "max_ms"));
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram h = get(stage);
+            sb.append(String.format(Locale.US, "%-12s %8d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    stage.name(), h.getCount(),
+                    h.getMeanMicros() / 1000.0,
+                    h.getPercentileMicros(50) / 1000.0,
+                    h.getPercentileMicros(95) / 1000.0,
+                    h.getPercentileMicros(99) / 1000.0,
+                    h.getMaxMicros() / 1000.0));
+        }
+        return sb.toString();
+    }
+
+    void writeReport(Writer writer, String header) throws IOException {
+        writer.write("# " + header + "\n");
+        writer.write(report());
+        writer.flush();
+    }
+}
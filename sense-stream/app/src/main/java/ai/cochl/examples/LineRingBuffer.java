@@ -0,0 +1,58 @@
+package ai.cochl.examples;
+
+/**
+ * Fixed-capacity buffer of the most recent lines.
+ * <p>
+ * Appending is O(1): once the buffer is full, the oldest line is overwritten in place instead of
+ * rebuilding or trimming a growing string.
+ */
+final class LineRingBuffer {
+    private final String[] lines;
+    private int head = 0;  // index of the oldest line
+    private int size = 0;
+
+    LineRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        lines = new String[capacity];
+    }
+
+    int capacity() {
+        return lines.length;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Appends a line and returns the number of old lines it evicted (0 or 1).
+     */
+    int append(String line) {
+        if (size < lines.length) {
+            lines[(head + size) % lines.length] = line;
+            ++size;
+            return 0;
+        }
+        lines[head] = line;
+        head = (head + 1) % lines.length;
+        return 1;
+    }
+
+    // Line at the given position, 0 being the oldest
+    String get(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + " of " + size);
+        }
+        return lines[(head + position) % lines.length];
+    }
+
+    void clear() {
+        for (int i = 0; i < lines.length; ++i) {
+            lines[i] = null;
+        }
+        head = 0;
+        size = 0;
+    }
+}
@@ -0,0 +1,195 @@
+package ai.cochl.examples;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory-mapped access to the samples of a WAV file.
+ * <p>
+ * The data chunk is mapped with {@code FileChannel.map}, so samples are paged in by the kernel
+ * on demand and never copied onto the Java heap as a whole. Windows of frames are returned as
+ * buffer views into the mapping. A mapping is limited to 2 GB, so long recordings are mapped
+ * in overlapping segments: every view of at most {@code MAX_VIEW_BYTES} lies entirely inside
+ * one segment and never needs to be copied.
+ */
+final class MappedWavReader implements Closeable {
+    static final int MIN_SAMPLE_RATE = 8000;
+    static final int MAX_SAMPLE_RATE = 192000;
+    static final int MAX_CHANNELS = 2;
+
+    // Largest view that is guaranteed not to cross a segment boundary
+    static final int MAX_VIEW_BYTES = 16 * 1024 * 1024;
+    private static final long DEFAULT_SEGMENT_BYTES = 512L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final WavHeader header;
+    private final long segmentBytes;
+    private final MappedByteBuffer[] segments;
+
+    private MappedWavReader(FileChannel channel, WavHeader header, long segmentBytes) {
+        this.channel = channel;
+        this.header = header;
+        // Segment starts must be frame aligned so that views always start on a frame
+        this.segmentBytes = segmentBytes - segmentBytes % header.blockAlign;
+        this.segments = new MappedByteBuffer[(int) Math.max(1,
+                (header.dataSize + this.segmentBytes - 1) / this.segmentBytes)];
+    }
+
+    static MappedWavReader open(File file) throws IOException {
+        return open(file, DEFAULT_SEGMENT_BYTES);
+    }
+
+    // Visible for tests, which use small segments to cover the segment boundaries
+    static MappedWavReader open(File file, long segmentBytes) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            WavHeader header = WavHeader.read(channel);
+            validate(header);
+            return new MappedWavReader(channel, header, segmentBytes);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Accepts 16-bit and 32-bit float mono or stereo files, plus 24/32-bit integer PCM, which
+     * can be decoded with {@code readMono} but not viewed as samples.
+     */
+    static void validate(WavHeader header) throws IOException {
+        boolean pcm = header.format == WavHeader.FORMAT_PCM
+                && (header.bitsPerSample == 16 || header.bitsPerSample == 24 || header.bitsPerSample == 32);
+        boolean ieeeFloat = header.format == WavHeader.FORMAT_IEEE_FLOAT && header.bitsPerSample == 32;
+        if (!pcm && !ieeeFloat) {
+            throw new IOException("Unsupported WAV encoding: format " + header.format
+                    + ", " + header.bitsPerSample + " bits");
+        }
+        if (header.channels < 1 || header.channels > MAX_CHANNELS) {
+            throw new IOException("Unsupported channel count: " + header.channels);
+        }
+        if (header.sampleRate < MIN_SAMPLE_RATE || header.sampleRate > MAX_SAMPLE_RATE) {
+            throw new IOException("Unsupported sample rate: " + header.sampleRate);
+        }
+        if (header.blockAlign != header.channels * header.getBytesPerSample()) {
+            throw new IOException("Inconsistent block alignment: " + header);
+        }
+    }
+
+    WavHeader getHeader() {
+        return header;
+    }
+
+    long getFrameCount() {
+        return header.getFrameCount();
+    }
+
+    /**
+     * Returns the raw little-endian interleaved bytes of {@code frameCount} frames starting at
+     * {@code startFrame}, without copying. The view is read-only and independent of other views.
+     */
+    ByteBuffer view(long startFrame, int frameCount) throws IOException {
+        if (startFrame < 0 || frameCount < 0 || startFrame + frameCount > getFrameCount()) {
+            throw new IndexOutOfBoundsException("Frames " + startFrame + "+" + frameCount
+                    + " out of " + getFrameCount());
+        }
+        long byteOffset = startFrame * header.blockAlign;
+        int byteCount = frameCount * header.blockAlign;
+
+        int index = (int) (byteOffset / segmentBytes);
+        long segmentStart = index * segmentBytes;
+        MappedByteBuffer segment = segment(index);
+        int position = (int) (byteOffset - segmentStart);
+        if (position + byteCount > segment.capacity()) {
+            throw new IllegalArgumentException("View of " + byteCount
+                    + " bytes is larger than " + MAX_VIEW_BYTES);
+        }
+
+        ByteBuffer view = segment.duplicate();
+        view.position(position).limit(position + byteCount);
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // Zero-copy view of 16-bit integer samples, interleaved if the file is stereo
+    ShortBuffer viewPcm16(long startFrame, int frameCount) throws IOException {
+        if (header.format != WavHeader.FORMAT_PCM || header.bitsPerSample != 16) {
+            throw new IllegalStateException("Not a 16-bit PCM file");
+        }
+        return view(startFrame, frameCount).asShortBuffer();
+    }
+
+    // Zero-copy view of 32-bit float samples, interleaved if the file is stereo
+    FloatBuffer viewFloat(long startFrame, int frameCount) throws IOException {
+        if (header.format != WavHeader.FORMAT_IEEE_FLOAT) {
+            throw new IllegalStateException("Not a 32-bit float file");
+        }
+        return view(startFrame, frameCount).asFloatBuffer();
+    }
+
+    /**
+     * Decodes up to {@code frameCount} frames from {@code startFrame} into mono floats in
+     * [-1, 1], averaging the channels. Returns the number of frames decoded.
+     */
+    int readMono(long startFrame, float[] out, int frameCount) throws IOException {
+        int frames = (int) Math.max(0, Math.min(frameCount, getFrameCount() - startFrame));
+        if (frames > 0) {
+            decodeMono(view(startFrame, frames), header, out, frames);
+        }
+        return frames;
+    }
+
+    static void decodeMono(ByteBuffer in, WavHeader header, float[] out, int frames) {
+        int channels = header.channels;
+        float scale = 1f / channels;
+        for (int i = 0; i < frames; ++i) {
+            float sum = 0;
+            for (int c = 0; c < channels; ++c) {
+                sum += readSample(in, header);
+            }
+            out[i] = channels == 1 ? sum : sum * scale;
+        }
+    }
+
+    private static float readSample(ByteBuffer in, WavHeader header) {
+        if (header.format == WavHeader.FORMAT_IEEE_FLOAT) {
+            return in.getFloat();
+        }
+        switch (header.bitsPerSample) {
+            case 16:
+                return in.getShort() / 32768f;
+            case 24: {
+                int b0 = in.get() & 0xFF;
+                int b1 = in.get() & 0xFF;
+                int b2 = in.get();  // sign-extended
+                return ((b2 << 16) | (b1 << 8) | b0) / 8388608f;
+            }
+            default:
+                return in.getInt() / 2147483648f;
+        }
+    }
+
+    private MappedByteBuffer segment(int index) throws IOException {
+        MappedByteBuffer segment = segments[index];
+        if (segment == null) {
+            long start = index * segmentBytes;
+            // Segments overlap by MAX_VIEW_BYTES so that a view never crosses a boundary
+            long size = Math.min(segmentBytes + MAX_VIEW_BYTES, header.dataSize - start);
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, header.dataOffset + start, size);
+            segments[index] = segment;
+        }
+        return segment;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Mappings stay valid until they are garbage collected; only the channel is released
+        channel.close();
+    }
+}
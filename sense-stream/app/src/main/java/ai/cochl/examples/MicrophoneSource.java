@@ -0,0 +1,111 @@
+package ai.cochl.examples;
+
+import android.Manifest;
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+
+import androidx.annotation.RequiresPermission;
+
+import java.io.IOException;
+
+/**
+ * Captures audio from the microphone as an {@link AudioSource}: mono, stereo, or the first
+ * channels of a multi-mic input.
+ */
+final class MicrophoneSource implements AudioSource {
+    private final AudioRecord recorder;
+
+    // For good performance, audio encoding allows only two, restricting the use of other
+    // encodings: anything but ENCODING_PCM_FLOAT falls back to ENCODING_PCM_16BIT.
+    @RequiresPermission(Manifest.permission.RECORD_AUDIO)
+    MicrophoneSource(int sampleRate, int channels, int encoding) throws IOException {
+        if (encoding != AudioFormat.ENCODING_PCM_FLOAT) {
+            encoding = AudioFormat.ENCODING_PCM_16BIT;  // default audio encoding
+        }
+        if (channels < 1) {
+            throw new IllegalArgumentException("channels must be positive");
+        }
+
+        int audioSource = MediaRecorder.AudioSource.UNPROCESSED;
+        AudioFormat.Builder format = new AudioFormat.Builder()
+                .setSampleRate(sampleRate)
+                .setEncoding(encoding);
+        int channelConfig;
+        if (channels <= 2) {
+            channelConfig = channels == 1
+                    ? AudioFormat.CHANNEL_IN_MONO
+                    : AudioFormat.CHANNEL_IN_STEREO;
+            format.setChannelMask(channelConfig);
+        } else {
+            // Multi-mic boards expose their inputs by index rather than by position
+            channelConfig = AudioFormat.CHANNEL_IN_STEREO;
+            format.setChannelIndexMask((1 << channels) - 1);
+        }
+        int bufferSizeInBytes = AudioRecord.getMinBufferSize(sampleRate, channelConfig, encoding)
+                * Math.max(1, channels / 2);
+
+        try {
+            recorder = new AudioRecord.Builder()
+                    .setAudioSource(audioSource)
+                    .setAudioFormat(format.build())
+                    .setBufferSizeInBytes(bufferSizeInBytes)
+                    .build();
+        } catch (Exception e) {
+            throw new IOException(e.toString(), e);
+        }
+        if (recorder.getState() != AudioRecord.STATE_INITIALIZED) {
+            recorder.release();
+            throw new IOException("Failed to initialize AudioRecord");
+        }
+    }
+
+    @Override
+    public int getSampleRate() {
+        return recorder.getSampleRate();
+    }
+
+    @Override
+    public int getChannelCount() {
+        return recorder.getChannelCount();
+    }
+
+    @Override
+    public boolean isFloat() {
+        return recorder.getAudioFormat() == AudioFormat.ENCODING_PCM_FLOAT;
+    }
+
+    @Override
+    public void start() throws IOException {
+        recorder.startRecording();
+        if (recorder.getRecordingState() != AudioRecord.RECORDSTATE_RECORDING) {
+            throw new IOException("Failed to start recording");
+        }
+    }
+
+    @Override
+    public int read(float[] buffer, int offset, int length) throws IOException {
+        // This method is a blocking method that reads audio data
+        return checkRead(recorder.read(buffer, offset, length, AudioRecord.READ_BLOCKING));
+    }
+
+    @Override
+    public int read(short[] buffer, int offset, int length) throws IOException {
+        return checkRead(recorder.read(buffer, offset, length, AudioRecord.READ_BLOCKING));
+    }
+
+    @Override
+    public void close() {
+        if (recorder.getRecordingState() == AudioRecord.RECORDSTATE_RECORDING) {
+            recorder.stop();
+        }
+        recorder.release();
+    }
+
+    private int checkRead(int statusRead) throws IOException {
+        if (statusRead <= 0) {
+            throw new IOException("Failed to read audio data (" + statusRead + ")");
+        }
+        return statusRead;
+    }
+}
@@ -0,0 +1,33 @@
+package ai.cochl.examples;
+
+/**
+ * Conversions between 16-bit PCM and float samples in [-1, 1].
+ * <p>
+ * Shorts are scaled by 1/32768, like {@code AudioRecord} does for {@code ENCODING_PCM_FLOAT}, so
+ * a round trip from PCM16 is exact. Floats outside [-1, 1] are clipped when converted back.
+ */
+final class PcmConversion {
+    private static final float SCALE = 32768f;
+
+    private PcmConversion() {
+    }
+
+    static void toFloat(short[] in, int inOffset, float[] out, int outOffset, int length) {
+        for (int i = 0; i < length; ++i) {
+            out[outOffset + i] = in[inOffset + i] / SCALE;
+        }
+    }
+
+    static void toPcm16(float[] in, int inOffset, short[] out, int outOffset, int length) {
+        for (int i = 0; i < length; ++i) {
+            float sample = in[inOffset + i] * SCALE;
+            if (sample >= Short.MAX_VALUE) {
+                out[outOffset + i] = Short.MAX_VALUE;
+            } else if (sample <= Short.MIN_VALUE) {
+                out[outOffset + i] = Short.MIN_VALUE;
+            } else {
+                out[outOffset + i] = (short) Math.round(sample);
+            }
+        }
+    }
+}
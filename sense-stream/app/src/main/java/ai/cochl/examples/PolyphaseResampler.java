@@ -0,0 +1,205 @@
+package ai.cochl.examples;
+
+import java.util.Arrays;
+
+/**
+ * Streaming sample rate converter by a rational factor L/M, e.g. 147/320 from 48000 to 22050 Hz.
+ * <p>
+ * The signal is conceptually upsampled by L, low-pass filtered and downsampled by M. The
+ * polyphase form only evaluates the filter at the output instants: each output sample is a dot
+ * product of the last {@code tapsPerPhase} input samples with one of the L sub-filters. The
+ * prototype is a Kaiser-windowed sinc cut off below the lower of the two Nyquist frequencies.
+ * <p>
+ * Input can be pushed in chunks of any size: the filter state carries over, so the output is the
+ * same as converting the whole signal at once. Nothing is allocated after construction. The
+ * delay added by the filter is {@link #getDelayInputFrames()} input frames.
+ * <p>
+ * A resampler is not thread-safe.
+ */
+final class PolyphaseResampler {
+    static final int DEFAULT_TAPS_PER_PHASE = 32;
+    // Stopband attenuation of about 80 dB
+    private static final double KAISER_BETA = 8.0;
+    // Passband edge relative to the output Nyquist frequency
+    private static final double ROLLOFF = 0.92;
+
+    private final int inputRate;
+    private final int outputRate;
+    private final int up;    // L
+    private final int down;  // M
+    private final int taps;
+    // coefficients[phase * taps + i] weights the i-th oldest sample of the history
+    private final float[] coefficients;
+
+    // The last `taps` input samples, written twice so they are always contiguous at
+    // history[writeIndex .. writeIndex + taps)
+    private final float[] history;
+    private int writeIndex = 0;
+    private int phase = 0;
+
+    PolyphaseResampler(int inputRate, int outputRate) {
+        this(inputRate, outputRate, DEFAULT_TAPS_PER_PHASE);
+    }
+
+    PolyphaseResampler(int inputRate, int outputRate, int tapsPerPhase) {
+        if (inputRate <= 0 || outputRate <= 0) {
+            throw new IllegalArgumentException("Sample rates must be positive");
+        }
+        if (tapsPerPhase <= 0) {
+            throw new IllegalArgumentException("tapsPerPhase must be positive");
+        }
+        int gcd = gcd(inputRate, outputRate);
+        this.inputRate = inputRate;
+        this.outputRate = outputRate;
+        this.up = outputRate / gcd;
+        this.down = inputRate / gcd;
+        this.taps = tapsPerPhase;
+        this.coefficients = designFilter(up, down, tapsPerPhase);
+        this.history = new float[2 * tapsPerPhase];
+    }
+
+    int getInputRate() {
+        return inputRate;
+    }
+
+    int getOutputRate() {
+        return outputRate;
+    }
+
+    int getUpFactor() {
+        return up;
+    }
+
+    int getDownFactor() {
+        return down;
+    }
+
+    // Group delay of the filter, in input frames
+    double getDelayInputFrames() {
+        return (up * taps - 1) / 2.0 / up;
+    }
+
+    // Upper bound of the output produced by process() for the given input length
+    int getMaxOutput(int inputLength) {
+        return (int) (((long) inputLength * up + phase) / down) + 1;
+    }
+
+    // Input length that yields at least the given number of output samples
+    int getInputFor(int outputLength) {
+        return (int) (((long) outputLength * down + up - 1) / up);
+    }
+
+    /**
+     * Converts {@code length} input samples and writes the output at {@code out[outOffset]}, which
+     * must have room for {@link #getMaxOutput(int)} samples. Returns the number written.
+     */
+    int process(float[] in, int offset, int length, float[] out, int outOffset) {
+        return process(in, offset, 1, length, out, outOffset, 1);
+    }
+
+    /**
+     * Converts one channel of interleaved audio: {@code length} samples read every
+     * {@code inStride} elements from {@code in[offset]}, written every {@code outStride} elements
+     * from {@code out[outOffset]}. Use one resampler per channel.
+     */
+    int process(float[] in, int offset, int inStride, int length,
+                float[] out, int outOffset, int outStride) {
+        int written = 0;
+        for (int i = 0; i < length; ++i) {
+            push(in[offset + i * inStride]);
+            written += emit(out, outOffset + written * outStride, outStride);
+        }
+        return written;
+    }
+
+    // Same as process(float[]...) for 16-bit PCM input, scaled like PcmConversion
+    int process(short[] in, int offset, int length, float[] out, int outOffset) {
+        return process(in, offset, 1, length, out, outOffset, 1);
+    }
+
+    int process(short[] in, int offset, int inStride, int length,
+                float[] out, int outOffset, int outStride) {
+        int written = 0;
+        for (int i = 0; i < length; ++i) {
+            push(in[offset + i * inStride] / 32768f);
+            written += emit(out, outOffset + written * outStride, outStride);
+        }
+        return written;
+    }
+
+    void reset() {
+        Arrays.fill(history, 0f);
+        writeIndex = 0;
+        phase = 0;
+    }
+
+    private void push(float sample) {
+        history[writeIndex] = sample;
+        history[writeIndex + taps] = sample;
+        writeIndex = writeIndex + 1 == taps ? 0 : writeIndex + 1;
+    }
+
+    // Emits every output sample that falls on the latest input sample
+    private int emit(float[] out, int outOffset, int outStride) {
+        int written = 0;
+        while (phase < up) {
+            int c = phase * taps;
+            float sum = 0f;
+            // history[writeIndex] is now the oldest sample
+            for (int i = 0; i < taps; ++i) {
+                sum += coefficients[c + i] * history[writeIndex + i];
+            }
+            out[outOffset + written++ * outStride] = sum;
+            phase += down;
+        }
+        phase -= up;
+        return written;
+    }
+
+    private static float[] designFilter(int up, int down, int taps) {
+        int length = up * taps;
+        // Cut-off in cycles per sample of the upsampled signal
+        double cutoff = 0.5 / Math.max(up, down) * ROLLOFF;
+        double center = (length - 1) / 2.0;
+        double i0Beta = besselI0(KAISER_BETA);
+
+        float[] coefficients = new float[length];
+        for (int phase = 0; phase < up; ++phase) {
+            for (int j = 0; j < taps; ++j) {
+                // Tap j of this phase weights the input j samples back
+                int n = phase + j * up;
+                double x = n - center;
+                double sinc = x == 0 ? 2 * cutoff : Math.sin(2 * Math.PI * cutoff * x) / (Math.PI * x);
+                double ratio = 2.0 * n / (length - 1) - 1;
+                double window = besselI0(KAISER_BETA * Math.sqrt(Math.max(0, 1 - ratio * ratio))) / i0Beta;
+                // The gain of L makes up for the zeros inserted by upsampling
+                coefficients[phase * taps + (taps - 1 - j)] = (float) (sinc * window * up);
+            }
+        }
+        return coefficients;
+    }
+
+    // Zeroth-order modified Bessel function of the first kind, by its power series
+    private static double besselI0(double x) {
+        double sum = 1;
+        double term = 1;
+        double halfX = x / 2;
+        for (int k = 1; k < 50; ++k) {
+            term *= (halfX / k) * (halfX / k);
+            sum += term;
+            if (term < sum * 1e-12) {
+                break;
+            }
+        }
+        return sum;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,112 @@
+package ai.cochl.examples;
+
+/**
+ * Adapts how often the stream pipeline predicts to what the device can sustain.
+ * <p>
+ * The window is predicted every {@code stride} hops: every hop on a fast device, every 2nd or
+ * 3rd hop on a slow one. The scheduler keeps the mean of the last {@code LATENCY_HISTORY}
+ * prediction times and picks the smallest stride whose share of real time,
+ * {@code mean / (stride * hop duration)}, stays within the CPU budget. A stride that is too
+ * small is raised at once. It is lowered one step at a time, and only after
+ * {@code RECOVERY_HOLD} predictions at the current stride and with {@code RECOVERY_HEADROOM} to
+ * spare, so a single fast prediction does not make it oscillate.
+ * <p>
+ * A scheduler belongs to one inference thread; only the getters may be used from other threads.
+ */
+final class PredictScheduler {
+    private static final int LATENCY_HISTORY = 8;
+    private static final int RECOVERY_HOLD = 8;
+    // Share of the budget the lower stride may use before the scheduler steps down
+    private static final float RECOVERY_HEADROOM = 0.75f;
+
+    private final long hopNanos;
+    private final float cpuBudget;
+    private final int maxStride;
+
+    private final long[] latencies = new long[LATENCY_HISTORY];
+    private int latencyCount = 0;
+    private int latencyHead = 0;
+    private long latencySum = 0;
+    private volatile long meanNanos = 0;
+
+    private volatile int stride = 1;
+    private int heldPredictions = 0;
+    private int pendingHops = 0;
+
+    private volatile long submittedCount = 0;
+    private volatile long deferredCount = 0;
+
+    // cpuBudget is the share of real time predictions may take, e.g. 0.5 for half a core
+    PredictScheduler(long hopNanos, float cpuBudget, int maxStride) {
+        if (hopNanos <= 0 || cpuBudget <= 0 || maxStride < 1) {
+            throw new IllegalArgumentException("hopNanos, cpuBudget and maxStride must be positive");
+        }
+        this.hopNanos = hopNanos;
+        this.cpuBudget = cpuBudget;
+        this.maxStride = maxStride;
+    }
+
+    // Counts hops appended to the window
+    void addHops(int hops) {
+        pendingHops += hops;
+    }
+
+    // Whether the window is due for a prediction. A due window starts a new stride.
+    boolean take() {
+        if (pendingHops < stride) {
+            ++deferredCount;
+            return false;
+        }
+        pendingHops = 0;
+        ++submittedCount;
+        return true;
+    }
+
+    void recordPredict(long nanos) {
+        if (latencyCount == LATENCY_HISTORY) {
+            latencySum -= latencies[latencyHead];
+        } else {
+            ++latencyCount;
+        }
+        latencies[latencyHead] = nanos;
+        latencySum += nanos;
+        latencyHead = (latencyHead + 1) % LATENCY_HISTORY;
+
+        long mean = latencySum / latencyCount;
+        meanNanos = mean;
+        int needed = (int) Math.min(maxStride, (mean + budgetNanos(1) - 1) / budgetNanos(1));
+        needed = Math.max(1, needed);
+        ++heldPredictions;
+        if (needed > stride) {
+            setStride(needed);
+        } else if (needed < stride && heldPredictions >= RECOVERY_HOLD
+                && mean <= budgetNanos(stride - 1) * RECOVERY_HEADROOM) {
+            setStride(stride - 1);
+        }
+    }
+
+    int getStride() {
+        return stride;
+    }
+
+    float getMeanPredictMillis() {
+        return meanNanos / 1e6f;
+    }
+
+    long getSubmittedCount() {
+        return submittedCount;
+    }
+
+    long getDeferredCount() {
+        return deferredCount;
+    }
+
+    private long budgetNanos(int stride) {
+        return (long) (stride * hopNanos * (double) cpuBudget);
+    }
+
+    private void setStride(int stride) {
+        this.stride = stride;
+        heldPredictions = 0;
+    }
+}
@@ -0,0 +1,41 @@
+package ai.cochl.examples;
+
+import android.view.View;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+// Shows the progress layout while a TaskTracker has open tasks. The spinner is replaced by a bar
+// with a percentage while the open tasks report how far they are.
+final class ProgressOverlay implements TaskTracker.Listener {
+    private final View overlay;
+    private final View spinner;
+    private final ProgressBar bar;
+    private final TextView text;
+
+    ProgressOverlay(View overlay) {
+        this.overlay = overlay;
+        this.spinner = overlay.findViewById(R.id.progress_bar);
+        this.bar = overlay.findViewById(R.id.progress_bar_determinate);
+        this.text = overlay.findViewById(R.id.progress_bar_text);
+    }
+
+    @Override
+    public void onTasksChanged(int activeTasks, long done, long total) {
+        if (activeTasks == 0) {
+            overlay.setVisibility(View.INVISIBLE);
+            return;
+        }
+        overlay.setVisibility(View.VISIBLE);
+        if (total > 0) {
+            int percent = (int) (done * 100 / total);
+            spinner.setVisibility(View.GONE);
+            bar.setVisibility(View.VISIBLE);
+            bar.setProgress(percent);
+            text.setText(overlay.getContext().getString(R.string.wait_progress, percent));
+        } else {
+            spinner.setVisibility(View.VISIBLE);
+            bar.setVisibility(View.GONE);
+            text.setText(R.string.wait_prompt);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package ai.cochl.examples;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Paces a replayed source at the speed of a live capture: the read that ends at a given sample
+ * returns no earlier than that sample would have been recorded.
+ */
+final class ReplayClock {
+    private final int sampleRate;
+    private final boolean realTime;
+    private long startNanos = -1;
+
+    ReplayClock(int sampleRate, AudioSource.Pacing pacing) {
+        this.sampleRate = sampleRate;
+        this.realTime = pacing == AudioSource.Pacing.REAL_TIME;
+    }
+
+    void start() {
+        startNanos = System.nanoTime();
+    }
+
+    // Waits until the given number of samples, counted from start(), have been played out
+    void awaitSample(long samples) throws InterruptedIOException {
+        if (!realTime) {
+            return;
+        }
+        if (startNanos < 0) {
+            start();
+        }
+
+        long due = startNanos + samples * 1_000_000_000L / sampleRate;
+        long remaining;
+        while ((remaining = due - System.nanoTime()) > 0) {
+            try {
+                Thread.sleep(remaining / 1_000_000, (int) (remaining % 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Replay interrupted");
+            }
+        }
+    }
+}
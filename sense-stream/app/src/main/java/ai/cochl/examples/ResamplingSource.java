@@ -0,0 +1,199 @@
+package ai.cochl.examples;
+
+import java.io.IOException;
+
+/**
+ * Converts another {@link AudioSource} to a different sample rate with a
+ * {@link PolyphaseResampler}, so audio can be captured at the device's native rate and fed to the
+ * model at its own rate.
+ * <p>
+ * Each read pulls just enough input for the requested output from the wrapped source; the few
+ * samples produced beyond it are kept for the next read. Samples are delivered as floats. The
+ * buffers grow to the largest read and are reused, so steady-state reads allocate nothing.
+ * <p>
+ * Multi-channel sources get one resampler per channel, which reads and writes the interleaved
+ * samples in place.
+ */
+final class ResamplingSource implements AudioSource {
+    private final AudioSource source;
+    private final PolyphaseResampler[] resamplers;
+    private final int channels;
+
+    private float[] floatInput = new float[0];
+    private short[] shortInput = new short[0];
+    private float[] resampled = new float[0];
+    private float[] floatOutput = new float[0];
+    private int resampledStart = 0;
+    private int resampledEnd = 0;
+    private boolean ended = false;
+
+    ResamplingSource(AudioSource source, int outputRate) {
+        this(source, newResamplers(source, outputRate));
+    }
+
+    ResamplingSource(AudioSource source, PolyphaseResampler resampler) {
+        this(source, new PolyphaseResampler[]{resampler});
+    }
+
+    private ResamplingSource(AudioSource source, PolyphaseResampler[] resamplers) {
+        if (resamplers.length != source.getChannelCount()) {
+            throw new IllegalArgumentException("Source has " + source.getChannelCount()
+                    + " channels, got " + resamplers.length + " resamplers");
+        }
+        for (PolyphaseResampler resampler : resamplers) {
+            if (resampler.getInputRate() != source.getSampleRate()) {
+                throw new IllegalArgumentException("Resampler expects " + resampler.getInputRate()
+                        + " Hz, source delivers " + source.getSampleRate() + " Hz");
+            }
+        }
+        this.source = source;
+        this.resamplers = resamplers;
+        this.channels = resamplers.length;
+    }
+
+    private static PolyphaseResampler[] newResamplers(AudioSource source, int outputRate) {
+        PolyphaseResampler[] resamplers = new PolyphaseResampler[source.getChannelCount()];
+        for (int c = 0; c < resamplers.length; ++c) {
+            resamplers[c] = new PolyphaseResampler(source.getSampleRate(), outputRate);
+        }
+        return resamplers;
+    }
+
+    int getSourceSampleRate() {
+        return source.getSampleRate();
+    }
+
+    @Override
+    public int getSampleRate() {
+        return resamplers[0].getOutputRate();
+    }
+
+    @Override
+    public int getChannelCount() {
+        return channels;
+    }
+
+    @Override
+    public boolean isFloat() {
+        return true;
+    }
+
+    @Override
+    public void start() throws IOException {
+        source.start();
+    }
+
+    @Override
+    public int read(float[] buffer, int offset, int length) throws IOException {
+        int read = 0;
+        while (read < length) {
+            // Stops at the end of the source, and when it has no samples yet
+            if (resampledStart == resampledEnd && resample(length - read) <= 0) {
+                break;
+            }
+            int count = Math.min(length - read, resampledEnd - resampledStart);
+            System.arraycopy(resampled, resampledStart, buffer, offset + read, count);
+            resampledStart += count;
+            read += count;
+        }
+        return read == 0 && ended && length > 0 ? -1 : read;
+    }
+
+    @Override
+    public int read(short[] buffer, int offset, int length) throws IOException {
+        if (floatOutput.length < length) {
+            floatOutput = new float[length];
+        }
+        int read = read(floatOutput, 0, length);
+        if (read > 0) {
+            PcmConversion.toPcm16(floatOutput, 0, buffer, offset, read);
+        }
+        return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    // Reads and converts enough input for the given output. Returns the number of samples read
+    // from the source, 0 if it has none yet, or -1 at its end.
+    private int resample(int outputLength) throws IOException {
+        if (ended) {
+            return -1;
+        }
+
+        PolyphaseResampler first = resamplers[0];
+        int outputFrames = (outputLength + channels - 1) / channels;
+        int inputLength = Math.max(1, first.getInputFor(outputFrames)) * channels;
+        int read;
+        if (source.isFloat()) {
+            if (floatInput.length < inputLength) {
+                floatInput = new float[inputLength];
+            }
+            read = readFrames(floatInput, inputLength);
+        } else {
+            if (shortInput.length < inputLength) {
+                shortInput = new short[inputLength];
+            }
+            read = readFrames(shortInput, inputLength);
+        }
+        if (read <= 0) {
+            ended = read < 0;
+            return read;
+        }
+
+        int frames = read / channels;
+        int maxOutput = first.getMaxOutput(frames) * channels;
+        if (resampled.length < maxOutput) {
+            resampled = new float[maxOutput];
+        }
+        int produced = 0;
+        for (int c = 0; c < channels; ++c) {
+            produced = source.isFloat()
+                    ? resamplers[c].process(floatInput, c, channels, frames, resampled, c, channels)
+                    : resamplers[c].process(shortInput, c, channels, frames, resampled, c, channels);
+        }
+        resampledStart = 0;
+        resampledEnd = produced * channels;
+        return read;
+    }
+
+    // Reads whole frames, so the channels stay aligned across reads. Returns 0 if the source has
+    // no samples yet; the caller decides how long to wait for them.
+    private int readFrames(float[] in, int samples) throws IOException {
+        int read = 0;
+        do {
+            int n = source.read(in, read, samples - read);
+            if (n < 0) {
+                return read > 0 ? read - read % channels : -1;
+            }
+            if (n == 0) {
+                if (read == 0) {
+                    return 0;
+                }
+                throw new IOException("The source stalled in the middle of a frame");
+            }
+            read += n;
+        } while (read % channels != 0);
+        return read;
+    }
+
+    private int readFrames(short[] in, int samples) throws IOException {
+        int read = 0;
+        do {
+            int n = source.read(in, read, samples - read);
+            if (n < 0) {
+                return read > 0 ? read - read % channels : -1;
+            }
+            if (n == 0) {
+                if (read == 0) {
+                    return 0;
+                }
+                throw new IOException("The source stalled in the middle of a frame");
+            }
+            read += n;
+        } while (read % channels != 0);
+        return read;
+    }
+}
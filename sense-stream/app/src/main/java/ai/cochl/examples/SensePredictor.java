@@ -0,0 +1,34 @@
+package ai.cochl.examples;
+
+import org.json.JSONObject;
+
+import ai.cochl.sensesdk.Sense;
+
+// Runs the stream pipeline's predictions on the Sense SDK. Sense is a single instance, so the
+// channels of a per-channel worker take turns rather than predict at the same time. The first
+// prediction is timed into the startup metrics.
+final class SensePredictor implements InferenceWorker.Predictor {
+    private final Sense sense;
+    private final StartupMetrics startupMetrics;
+
+    SensePredictor(Sense sense, StartupMetrics startupMetrics) {
+        this.sense = sense;
+        this.startupMetrics = startupMetrics;
+    }
+
+    @Override
+    public synchronized JSONObject predict(float[] samples, int sampleRate) {
+        long start = LatencyMetrics.now();
+        JSONObject result = sense.predict(samples, sampleRate);
+        startupMetrics.recordPredict(start, LatencyMetrics.now());
+        return result;
+    }
+
+    @Override
+    public synchronized JSONObject predict(short[] samples, int sampleRate) {
+        long start = LatencyMetrics.now();
+        JSONObject result = sense.predict(samples, sampleRate);
+        startupMetrics.recordPredict(start, LatencyMetrics.now());
+        return result;
+    }
+}
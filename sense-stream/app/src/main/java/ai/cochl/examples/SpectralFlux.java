@@ -0,0 +1,126 @@
+package ai.cochl.examples;
+
+/**
+ * Onset detector on the magnitude spectrum of short frames.
+ * <p>
+ * The audio is cut into Hann-windowed frames of a power-of-two size, each frame is transformed
+ * with an in-place radix-2 FFT, and the flux of a frame is the sum of the magnitude increases
+ * over the previous frame divided by the total magnitude. It is 0 for stationary sound, whatever
+ * its level, and jumps towards 1 when a new sound starts. Samples that do not fill a whole frame
+ * are kept for the next call, and the previous spectrum carries over too, so onsets on a hop
+ * boundary are seen.
+ * <p>
+ * All tables and buffers are allocated up front.
+ */
+final class SpectralFlux {
+    private final int frameSize;
+    private final float[] window;
+    private final float[] cos;
+    private final float[] sin;
+    private final int[] bitReversed;
+
+    private final float[] frame;
+    private int frameFill = 0;
+    private final float[] re;
+    private final float[] im;
+    private final float[] magnitude;
+    private final float[] previousMagnitude;
+    private boolean hasPrevious = false;
+
+    SpectralFlux(int frameSize) {
+        if (frameSize < 4 || Integer.bitCount(frameSize) != 1) {
+            throw new IllegalArgumentException("frameSize must be a power of two, at least 4");
+        }
+        this.frameSize = frameSize;
+        window = new float[frameSize];
+        for (int i = 0; i < frameSize; ++i) {
+            window[i] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * i / frameSize));
+        }
+        cos = new float[frameSize / 2];
+        sin = new float[frameSize / 2];
+        for (int i = 0; i < frameSize / 2; ++i) {
+            cos[i] = (float) Math.cos(2 * Math.PI * i / frameSize);
+            sin[i] = (float) -Math.sin(2 * Math.PI * i / frameSize);
+        }
+        int bits = Integer.numberOfTrailingZeros(frameSize);
+        bitReversed = new int[frameSize];
+        for (int i = 0; i < frameSize; ++i) {
+            bitReversed[i] = Integer.reverse(i) >>> (32 - bits);
+        }
+
+        frame = new float[frameSize];
+        re = new float[frameSize];
+        im = new float[frameSize];
+        magnitude = new float[frameSize / 2 + 1];
+        previousMagnitude = new float[frameSize / 2 + 1];
+    }
+
+    int getFrameSize() {
+        return frameSize;
+    }
+
+    // Feeds every stride-th sample from offset on and returns the highest flux of the frames
+    // completed by them, or 0 if none was.
+    float process(float[] samples, int offset, int stride, int length) {
+        float maxFlux = 0;
+        for (int i = 0; i < length; ++i) {
+            frame[frameFill++] = samples[offset + i * stride];
+            if (frameFill == frameSize) {
+                maxFlux = Math.max(maxFlux, analyzeFrame());
+                frameFill = 0;
+            }
+        }
+        return maxFlux;
+    }
+
+    void reset() {
+        frameFill = 0;
+        hasPrevious = false;
+    }
+
+    private float analyzeFrame() {
+        for (int i = 0; i < frameSize; ++i) {
+            int j = bitReversed[i];
+            re[j] = frame[i] * window[i];
+            im[j] = 0;
+        }
+        fft();
+
+        float flux = 0;
+        float total = 0;
+        for (int k = 0; k <= frameSize / 2; ++k) {
+            float m = (float) Math.sqrt(re[k] * re[k] + im[k] * im[k]);
+            if (hasPrevious && m > previousMagnitude[k]) {
+                flux += m - previousMagnitude[k];
+            }
+            total += m;
+            magnitude[k] = m;
+        }
+        System.arraycopy(magnitude, 0, previousMagnitude, 0, magnitude.length);
+        boolean first = !hasPrevious;
+        hasPrevious = true;
+        return first || total == 0 ? 0 : flux / total;
+    }
+
+    // In-place decimation in time; the input is already in bit-reversed order
+    private void fft() {
+        for (int size = 2; size <= frameSize; size <<= 1) {
+            int half = size >> 1;
+            int step = frameSize / size;
+            for (int start = 0; start < frameSize; start += size) {
+                for (int k = 0; k < half; ++k) {
+                    float wr = cos[k * step];
+                    float wi = sin[k * step];
+                    int a = start + k;
+                    int b = a + half;
+                    float tr = re[b] * wr - im[b] * wi;
+                    float ti = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - tr;
+                    im[b] = im[a] - ti;
+                    re[a] += tr;
+                    im[a] += ti;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package ai.cochl.examples;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The capture and inference pipeline of the stream app, independent of any UI.
+ * <p>
+ * The engine is created once the Sense SDK is initialized and lives as long as its owner, the
+ * {@code StreamService} in the app, so an activity that is recreated, e.g. on rotation, just
+ * attaches to the running engine again instead of initializing the SDK and restarting capture.
+ * <p>
+ * {@link #start()} opens the source and starts the capture and inference loops as jobs on the
+ * capture and inference executors of {@link AppExecutors}, {@link #pause()} stops them again but
+ * keeps the predictor warm, and {@link #stop()} ends the engine for good. Pausing and stopping
+ * only interrupt the jobs and return right away, so the UI thread never waits for a blocking
+ * read or a prediction. Both executors must run one task at a time: a restart then runs after
+ * the interrupted jobs have returned, and the owner awaits the executors before it terminates
+ * the SDK. These methods, {@link #setListener(Listener)} and the history are meant to
+ * be used from the UI thread, the thread that the {@link EventSink.FrameScheduler} runs the
+ * rendering on. Errors and the end of the source are reported to the listener from the pipeline
+ * threads; the owner decides whether to stop.
+ * <p>
+ * The latest lines are kept in a {@link LineRingBuffer}, so an activity that attaches later
+ * starts with what was detected while it was away. With a {@link ResultJournal}, every frame
+ * is also recorded on disk, including those predicted while no activity is attached.
+ */
+final class StreamEngine {
+    enum State {
+        IDLE,
+        RUNNING,
+        PAUSED,
+        STOPPED
+    }
+
+    interface SourceFactory {
+        // Called on the capture thread; the source is closed when capture ends
+        AudioSource open() throws IOException;
+    }
+
+    interface Listener {
+        // On the UI thread, once per display frame at most
+        void onLines(List<String> lines);
+
+        // On a pipeline thread
+        void onEnd();
+
+        // On a pipeline thread
+        void onError(String reason);
+    }
+
+    // Pipeline settings. The defaults match the stream app.
+    static final class Config {
+        int sampleRate = 22050;
+        // Sense.getHopSize(), in seconds
+        float hopSeconds = 0.5f;
+        int channels = 1;
+        InferenceWorker.ChannelStrategy channelStrategy = InferenceWorker.ChannelStrategy.DOWNMIX;
+        boolean resultAbbreviation = true;
+        boolean verboseResult = false;
+
+        int hopQueueCapacity = 4;
+        HopQueue.OverloadPolicy overloadPolicy = HopQueue.OverloadPolicy.COALESCE;
+        int eventSinkCapacity = 256;
+        int historyLines = 1000;
+
+        boolean energyGate = true;
+        float gateMarginDb = 6f;
+        float gateMinLevelDb = -60f;
+        int gateHangoverHops = 2;
+        int gateIdlePredictInterval = 10;
+        boolean gateSpectralFlux = true;
+
+        boolean adaptiveScheduling = true;
+        float predictCpuBudget = 0.5f;
+        int maxPredictStride = 4;
+
+        // Show onsets and offsets of sound events instead of a line per frame
+        boolean aggregateEvents = true;
+        EventAggregator.Config events = new EventAggregator.Config();
+
+        // Source name of the frames in the journal; channels are suffixed with "/ch <index>"
+        String journalSource = "mic";
+
+        int getPredictedChannels() {
+            return channelStrategy == InferenceWorker.ChannelStrategy.PER_CHANNEL ? channels : 1;
+        }
+
+        // Samples per hop, interleaved over the predicted channels
+        int getHopSize() {
+            return (int) (sampleRate * hopSeconds) * getPredictedChannels();
+        }
+    }
+
+    private final Config config;
+    private final InferenceWorker.Predictor predictor;
+    private final SourceFactory sourceFactory;
+    private final LatencyMetrics metrics;
+    private final AppExecutors executors;
+    private final EventSink sink;
+    private final LineRingBuffer history;
+
+    private State state = State.IDLE;
+    private volatile Listener listener = null;
+    private HopQueue hopQueue = null;
+    // Set by the capture job, which must not take the engine's lock while pause and stop hold it
+    private volatile AudioHopPool hopPool = null;
+    private EnergyGate energyGate = null;
+    private PredictScheduler predictScheduler = null;
+    private EventAggregator[] aggregators = null;
+    private TrackedExecutor.Job captureJob = null;
+    private TrackedExecutor.Job inferenceJob = null;
+    private ResultJournal journal = null;
+
+    StreamEngine(Config config, InferenceWorker.Predictor predictor, SourceFactory sourceFactory,
+                 EventSink.FrameScheduler frameScheduler, LatencyMetrics metrics,
+                 AppExecutors executors) {
+        this.config = config;
+        this.predictor = predictor;
+        this.sourceFactory = sourceFactory;
+        this.metrics = metrics;
+        this.executors = executors;
+        this.history = new LineRingBuffer(config.historyLines);
+        this.sink = new EventSink(frameScheduler, config.eventSinkCapacity, this::render, metrics);
+    }
+
+    Config getConfig() {
+        return config;
+    }
+
+    LatencyMetrics getMetrics() {
+        return metrics;
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // Takes effect on the next start. The owner closes the journal after stop().
+    synchronized void setJournal(ResultJournal journal) {
+        this.journal = journal;
+    }
+
+    synchronized void start() {
+        if (state == State.RUNNING) {
+            return;
+        }
+        if (state == State.STOPPED) {
+            throw new IllegalStateException("The engine has been stopped");
+        }
+
+        HopQueue queue = new HopQueue(config.hopQueueCapacity, config.overloadPolicy);
+        hopQueue = queue;
+
+        InferenceWorker.Predictor[] predictors = new InferenceWorker.Predictor[config.getPredictedChannels()];
+        Arrays.fill(predictors, predictor);
+        InferenceWorker worker = new InferenceWorker(queue, predictors, config.sampleRate,
+                config.resultAbbreviation, config.verboseResult, sink, this::onError, metrics);
+        if (config.energyGate) {
+            // The noise floor of the previous run still describes the room
+            if (energyGate == null) {
+                energyGate = new EnergyGate(config.gateMarginDb, config.gateMinLevelDb,
+                        config.gateHangoverHops, config.gateIdlePredictInterval,
+                        config.gateSpectralFlux);
+            }
+            worker.setGate(energyGate);
+        }
+        if (config.adaptiveScheduling) {
+            if (predictScheduler == null) {
+                predictScheduler = new PredictScheduler((long) (config.hopSeconds * 1e9),
+                        config.predictCpuBudget, config.maxPredictStride);
+            }
+            worker.setScheduler(predictScheduler);
+        }
+        if (config.aggregateEvents) {
+            // Events in progress are ended when the worker stops, so these start out idle
+            if (aggregators == null) {
+                aggregators = new EventAggregator[predictors.length];
+                for (int c = 0; c < aggregators.length; ++c) {
+                    aggregators[c] = new EventAggregator(config.events);
+                }
+            }
+            worker.setAggregators(aggregators);
+        }
+
+        if (journal != null) {
+            String[] sources = new String[predictors.length];
+            for (int c = 0; c < sources.length; ++c) {
+                sources[c] = sources.length == 1 ? config.journalSource
+                        : config.journalSource + "/ch " + c;
+            }
+            worker.setJournal(journal, sources);
+        }
+
+        inferenceJob = executors.getInference().startJob(() -> {
+            try {
+                worker.run();
+            } finally {
+                queue.clear();
+            }
+        });
+        captureJob = executors.getCapture().startJob(() -> capture(queue));
+        state = State.RUNNING;
+    }
+
+    synchronized void pause() {
+        if (state != State.RUNNING) {
+            return;
+        }
+        cancelJobs();
+        state = State.PAUSED;
+    }
+
+    synchronized void stop() {
+        if (state == State.STOPPED) {
+            return;
+        }
+        cancelJobs();
+        state = State.STOPPED;
+    }
+
+    // A copy of the latest lines, oldest first
+    void copyHistory(List<String> lines) {
+        for (int i = 0; i < history.size(); ++i) {
+            lines.add(history.get(i));
+        }
+    }
+
+    void clearHistory() {
+        sink.clear();
+        history.clear();
+    }
+
+    String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US, "%d Hz, %d channels (%s), hop %.3f s, %s",
+                config.sampleRate, config.channels, config.channelStrategy, config.hopSeconds,
+                config.overloadPolicy));
+        EnergyGate gate = energyGate;
+        if (gate != null) {
+            sb.append(String.format(Locale.US, ", gate: %d windows predicted, %d skipped, floor %.1f dB",
+                    gate.getProcessedCount(), gate.getSkippedCount(), gate.getNoiseFloorDb()));
+        } else {
+            sb.append(", gate off");
+        }
+        PredictScheduler scheduler = predictScheduler;
+        if (scheduler != null) {
+            sb.append(String.format(Locale.US, ", predict stride %d, %.1f ms per prediction, %d windows deferred",
+                    scheduler.getStride(), scheduler.getMeanPredictMillis(),
+                    scheduler.getDeferredCount()));
+        } else {
+            sb.append(", fixed schedule");
+        }
+        return sb.toString();
+    }
+
+    // Queue and pool statistics of the last run
+    synchronized String queueReport() {
+        return hopQueue + ", " + hopPool;
+    }
+
+    private void capture(HopQueue queue) {
+        AudioSource source;
+        try {
+            source = sourceFactory.open();
+        } catch (IOException e) {
+            onError(e.toString());
+            return;
+        }
+
+        CaptureLoop captureLoop = new CaptureLoop(source, config.getHopSize(),
+                config.hopQueueCapacity + 2, queue, new CaptureLoop.Listener() {
+            @Override
+            public void onEnd() {
+                Listener l = listener;
+                if (l != null) {
+                    l.onEnd();
+                }
+            }
+
+            @Override
+            public void onError(String reason) {
+                StreamEngine.this.onError(reason);
+            }
+        });
+        hopPool = captureLoop.getPool();
+        captureLoop.run();
+    }
+
+    // The jobs return on their own threads: the inference job ends the events in progress and
+    // releases the hops left in its queue.
+    private void cancelJobs() {
+        if (captureJob == null) {  // never started
+            return;
+        }
+        captureJob.cancel();
+        inferenceJob.cancel();
+        captureJob = null;
+        inferenceJob = null;
+    }
+
+    private void render(List<String> lines) {
+        for (String line : lines) {
+            history.append(line);
+        }
+        Listener l = listener;
+        if (l != null) {
+            l.onLines(lines);
+        }
+    }
+
+    private void onError(String reason) {
+        Listener l = listener;
+        if (l != null) {
+            l.onError(reason);
+        }
+    }
+}
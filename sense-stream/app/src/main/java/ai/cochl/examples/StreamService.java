@@ -0,0 +1,460 @@
+package ai.cochl.examples;
+
+import android.Manifest;
+import android.annotation.SuppressLint;
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.content.pm.ServiceInfo;
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.os.Binder;
+import android.os.Build;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
+
+import androidx.annotation.Nullable;
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.ServiceCompat;
+import androidx.core.content.ContextCompat;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import ai.cochl.sensesdk.Sense;
+
+/**
+ * Foreground service that owns the Sense SDK and the {@link StreamEngine}.
+ * <p>
+ * The SDK is initialized once, when the service is created, and terminated when it is
+ * destroyed. Initialization and a warm-up prediction run on the inference executor, see
+ * {@link SenseStartup}, and the threads of the service are those of its {@link AppExecutors},
+ * which are shut down with it; the SDK is terminated once they have returned, on a thread of
+ * its own. Activities bind to the service and attach a {@link Client}; rotating the screen or
+ * leaving the app only detaches the client, while capture and inference keep running under the
+ * ongoing notification. The notification's stop action, an error or the end of the audio
+ * source stop the service. The service also owns the {@link ResultJournal} of the frames and
+ * closes it after the engine has stopped.
+ */
+public class StreamService extends Service {
+    private static final String TAG = "SenseStream";
+
+    static final String ACTION_STOP = "ai.cochl.examples.action.STOP";
+    private static final String CHANNEL_ID = "sense-stream";
+    private static final int NOTIFICATION_ID = 1;
+
+    private final String projectKey = "Your project key";
+
+    private static final int SAMPLE_RATE = 22050;
+    // Microphones to record from. Boards with two or more mics can either mix them down to one
+    // prediction or predict every channel on its own.
+    private static final int CAPTURE_CHANNELS = 1;
+    private static final InferenceWorker.ChannelStrategy CHANNEL_STRATEGY =
+            InferenceWorker.ChannelStrategy.DOWNMIX;
+    // Also show the detailed result of every frame as indented JSON
+    private static final boolean VERBOSE_RESULT = false;
+    // Lines kept for the activity while it is away; older lines are dropped
+    private static final int EVENT_LOG_MAX_LINES = 1000;
+    // Predictions on silence after init, so the first detection does not pay for loading the
+    // model. 0 disables the warm-up.
+    private static final int WARM_UP_PREDICTS = 1;
+    // Only the first start of the process is a cold start
+    private static boolean processStarted = false;
+    // The SDK is not terminated if a prediction has not returned by then
+    private static final long TERMINATE_TIMEOUT_MS = 30_000;
+    // Terminates the SDK of the last service; the next one initializes it after that
+    private static volatile Thread shutdownThread = null;
+    // Every frame is also journaled to the app's files directory, also while paused, and can be
+    // exported to CSV and JSON Lines from the activity
+    private static final boolean JOURNAL_RESULTS = true;
+
+    // Per-stage latency from AudioRecord.read to the rendered event, logged periodically and
+    // written to the app's external files directory when the service is destroyed.
+    private static final long METRICS_LOG_PERIOD_MS = 30_000;
+    private final Runnable logMetrics = new Runnable() {
+        @Override
+        public void run() {
+            if (engine != null) {
+                Log.i(TAG, "Latency\n" + engine.getMetrics().report() + engine.report()
+                        + "\nStartup: " + startupMetrics.report() + "\n" + executors.report());
+            }
+            mainHandler.postDelayed(this, METRICS_LOG_PERIOD_MS);
+        }
+    };
+
+    interface ExportListener {
+        // On the main thread; files is null if the export failed
+        void onExported(@Nullable File[] files, @Nullable String reason);
+    }
+
+    // Told about the engine on the main thread
+    interface Client {
+        void onEngineReady(StreamEngine engine);
+
+        void onLines(List<String> lines);
+
+        // reason is null unless the engine stopped because of an error
+        void onEngineStopped(@Nullable String reason);
+    }
+
+    class LocalBinder extends Binder {
+        StreamService getService() {
+            return StreamService.this;
+        }
+    }
+
+    private final IBinder binder = new LocalBinder();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Set on the inference thread once initialized
+    private volatile Sense sense = null;
+    private StreamEngine engine = null;
+    private final StartupMetrics startupMetrics = new StartupMetrics();
+    private AppExecutors executors = null;
+    private ResultJournal journal = null;
+    // Rate of the microphone, SAMPLE_RATE unless the audio is resampled
+    private volatile int captureSampleRate = 0;
+    private Client client = null;
+    private boolean stopped = false;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        createNotificationChannel();
+
+        startupMetrics.begin(processStarted ? 0
+                : SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime());
+        processStarted = true;
+
+        // A single inference thread: the startup runs first, then the engine's inference loop
+        executors = new AppExecutors(1, Process::setThreadPriority, mainHandler::post);
+        if (JOURNAL_RESULTS) {
+            // Written and synced on the io executor, never on the capture or inference thread
+            journal = new ResultJournal(new File(getFilesDir(), "journal"), new ResultJournal.Config(),
+                    executors.getIo(), mainHandler::postDelayed);
+        }
+        new SenseStartup(WARM_UP_PREDICTS, SAMPLE_RATE, startupMetrics).start(executors.getInference(),
+                this::senseInit, (samples, sampleRate) -> sense.predict(samples, sampleRate),
+                new SenseStartup.Listener() {
+                    @Override
+                    public void onReady(float hopSeconds) {
+                        Log.i(TAG, "Startup: " + startupMetrics.report());
+                        StreamEngine.Config config = createConfig(hopSeconds);
+                        executors.getUi().execute(() -> startEngine(config));
+                    }
+
+                    @Override
+                    public void onError(RuntimeException e) {
+                        sense = null;
+                        executors.getUi().execute(() -> stopEngine(e.getMessage()));
+                    }
+                });
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        if (intent != null && ACTION_STOP.equals(intent.getAction())) {
+            stopEngine(null);
+            return START_NOT_STICKY;
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            startForeground(NOTIFICATION_ID, buildNotification(),
+                    ServiceInfo.FOREGROUND_SERVICE_TYPE_MICROPHONE);
+        } else {
+            startForeground(NOTIFICATION_ID, buildNotification());
+        }
+        return START_NOT_STICKY;
+    }
+
+    @Nullable
+    @Override
+    public IBinder onBind(Intent intent) {
+        return binder;
+    }
+
+    // Attaches a client, or detaches it with null. A client that attaches to a running or paused
+    // engine is told right away, and one that attaches after the engine stopped is told so.
+    void setClient(@Nullable Client client) {
+        this.client = client;
+        if (client == null) {
+            return;
+        }
+        if (stopped) {
+            client.onEngineStopped(null);
+        } else if (engine != null && engine.getState() != StreamEngine.State.STOPPED) {
+            client.onEngineReady(engine);
+        }
+    }
+
+    // Whether results are journaled and can be exported; off once the service is destroyed
+    boolean hasJournal() {
+        return journal != null;
+    }
+
+    // Writes the journal to CSV and JSON Lines files in the app's external files directory, on
+    // the io executor
+    void exportJournal(ExportListener listener) {
+        if (journal == null || executors.isShutdown()) {
+            listener.onExported(null, "The journal is off");
+            return;
+        }
+        File directory = getExternalFilesDir("exports");
+        String name = "results-" + System.currentTimeMillis();
+        executors.getIo().execute(() -> {
+            File[] files = {new File(directory, name + ".csv"), new File(directory, name + ".jsonl")};
+            ResultJournal.Format[] formats = {ResultJournal.Format.CSV, ResultJournal.Format.JSONL};
+            try {
+                for (int i = 0; i < files.length; ++i) {
+                    try (Writer writer = new BufferedWriter(new FileWriter(files[i]))) {
+                        journal.export(writer, formats[i]);
+                    }
+                }
+                executors.getUi().execute(() -> listener.onExported(files, null));
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to export the journal", e);
+                executors.getUi().execute(() -> listener.onExported(null, e.toString()));
+            }
+        });
+    }
+
+    // Returns the hop size in seconds
+    private float senseInit() {
+        Thread previous = shutdownThread;
+        if (previous != null) {
+            try {
+                previous.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while the SDK was terminated", e);
+            }
+        }
+        sense = Sense.getInstance();
+
+        Sense.Parameters senseParams = new Sense.Parameters();
+        senseParams.metrics.retentionPeriod = 0;  // days
+        senseParams.metrics.freeDiskSpace = 100;  // MB
+        senseParams.metrics.pushPeriod = 30;      // seconds
+
+        senseParams.deviceName = "Android device.";
+
+        senseParams.logLevel = 0;
+
+        senseParams.sensitivityControl.enable = true;
+        senseParams.resultAbbreviation.enable = true;
+
+        sense.init(projectKey, senseParams);  // throws CochlException
+        // The hop size must be obtained in the following way after calling the init method:
+        return sense.getHopSize();
+    }
+
+    private StreamEngine.Config createConfig(float hopSeconds) {
+        StreamEngine.Config config = new StreamEngine.Config();
+        config.sampleRate = SAMPLE_RATE;
+        config.hopSeconds = hopSeconds;
+        config.channels = CAPTURE_CHANNELS;
+        config.channelStrategy = CHANNEL_STRATEGY;
+        config.resultAbbreviation = sense.getParameters().resultAbbreviation.enable;
+        config.verboseResult = VERBOSE_RESULT;
+        config.historyLines = EVENT_LOG_MAX_LINES;
+        return config;
+    }
+
+    private void startEngine(StreamEngine.Config config) {
+        if (sense == null || stopped) {  // stopped while initializing
+            return;
+        }
+        Choreographer choreographer = Choreographer.getInstance();
+        // Pending lines are rendered together at the start of the next display frame
+        engine = new StreamEngine(config, new SensePredictor(sense, startupMetrics), this::openMicrophone,
+                drain -> choreographer.postFrameCallback(frameTimeNanos -> drain.run()),
+                new LatencyMetrics(), executors);
+        // The service listens for errors even while no activity is attached
+        engine.setListener(engineListener);
+        engine.setJournal(journal);
+        engine.start();
+        mainHandler.postDelayed(logMetrics, METRICS_LOG_PERIOD_MS);
+
+        if (client != null) {
+            client.onEngineReady(engine);
+        }
+    }
+
+    private final StreamEngine.Listener engineListener = new StreamEngine.Listener() {
+        @Override
+        public void onLines(List<String> lines) {
+            if (client != null) {
+                client.onLines(lines);
+            }
+        }
+
+        @Override
+        public void onEnd() {
+            executors.getUi().execute(() -> stopEngine(null));
+        }
+
+        @Override
+        public void onError(String reason) {
+            executors.getUi().execute(() -> stopEngine(reason));
+        }
+    };
+
+    private void stopEngine(@Nullable String reason) {
+        if (stopped) {
+            return;
+        }
+        stopped = true;
+        if (reason != null) {
+            Log.e(TAG, "Stopping: " + reason);
+        }
+        if (engine != null) {
+            engine.stop();
+        }
+        if (client != null) {
+            client.onEngineStopped(reason);
+        }
+        ServiceCompat.stopForeground(this, ServiceCompat.STOP_FOREGROUND_REMOVE);
+        stopSelf();
+    }
+
+    // You can replace this part receiving audio data with what you want to use: any
+    // AudioSource works, e.g. a WavFileSource to replay a recording.
+    private AudioSource openMicrophone() throws IOException {
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.RECORD_AUDIO)
+                != PackageManager.PERMISSION_GRANTED) {
+            throw new IOException("The RECORD_AUDIO permission has not been granted");
+        }
+
+        AudioSource source = openMicrophone(engine.getConfig());
+        captureSampleRate = source instanceof ResamplingSource
+                ? ((ResamplingSource) source).getSourceSampleRate()
+                : source.getSampleRate();
+        return source;
+    }
+
+    // Captures at the device's native rate and resamples to SAMPLE_RATE in the app, which avoids
+    // the HAL resampler and the devices that refuse to record at 22050 Hz. Recording at
+    // SAMPLE_RATE directly is the fallback.
+    @SuppressLint("MissingPermission")
+    private AudioSource openMicrophone(StreamEngine.Config config) throws IOException {
+        int nativeRate = getNativeSampleRate();
+        if (nativeRate > 0 && nativeRate != config.sampleRate) {
+            try {
+                AudioSource source = new MicrophoneSource(nativeRate, config.channels,
+                        AudioFormat.ENCODING_PCM_FLOAT);
+                return new ResamplingSource(mixChannels(source, config), config.sampleRate);
+            } catch (IOException e) {
+                Log.w(TAG, "Capture at " + nativeRate + " Hz failed, trying " + config.sampleRate + " Hz", e);
+            }
+        }
+        return mixChannels(new MicrophoneSource(config.sampleRate, config.channels,
+                AudioFormat.ENCODING_PCM_FLOAT), config);
+    }
+
+    // Mixing down before resampling leaves a single channel to resample
+    private static AudioSource mixChannels(AudioSource source, StreamEngine.Config config) {
+        if (source.getChannelCount() > 1 && config.getPredictedChannels() == 1) {
+            return new DownmixSource(source);
+        }
+        return source;
+    }
+
+    private int getNativeSampleRate() {
+        AudioManager audioManager = (AudioManager) getSystemService(Context.AUDIO_SERVICE);
+        String rate = audioManager.getProperty(AudioManager.PROPERTY_OUTPUT_SAMPLE_RATE);
+        try {
+            return rate != null ? Integer.parseInt(rate) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void createNotificationChannel() {
+        NotificationChannel channel = new NotificationChannel(CHANNEL_ID,
+                getString(R.string.notification_channel), NotificationManager.IMPORTANCE_LOW);
+        getSystemService(NotificationManager.class).createNotificationChannel(channel);
+    }
+
+    private Notification buildNotification() {
+        PendingIntent openApp = PendingIntent.getActivity(this, 0,
+                new Intent(this, MainActivity.class), PendingIntent.FLAG_IMMUTABLE);
+        PendingIntent stop = PendingIntent.getService(this, 0,
+                new Intent(this, StreamService.class).setAction(ACTION_STOP),
+                PendingIntent.FLAG_IMMUTABLE);
+
+        return new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(R.drawable.logo_symbol)
+                .setContentTitle(getString(R.string.app_name))
+                .setContentText(getString(R.string.notification_listening))
+                .setContentIntent(openApp)
+                .addAction(0, getString(R.string.stop), stop)
+                .setOngoing(true)
+                .build();
+    }
+
+    private void dumpLatencyMetrics() {
+        String header = String.format(Locale.US, "%s %s, Android %s, captured at %d Hz, ",
+                Build.MANUFACTURER, Build.MODEL, Build.VERSION.RELEASE, captureSampleRate)
+                + engine.report() + ", startup: " + startupMetrics.report();
+        Log.i(TAG, header + "\n" + engine.getMetrics().report());
+
+        File file = new File(getExternalFilesDir(null), "latency-" + System.currentTimeMillis() + ".txt");
+        try (Writer writer = new FileWriter(file)) {
+            engine.getMetrics().writeReport(writer, header);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write latency metrics", e);
+        }
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        mainHandler.removeCallbacks(logMetrics);
+
+        if (engine != null) {
+            engine.stop();
+            // How often capture had to wait for the inference thread to give a hop back
+            Log.i(TAG, engine.queueReport() + "\n" + executors.report());
+            dumpLatencyMetrics();
+            engine = null;
+        }
+        // The SDK must not be terminated while it is being initialized or predicts, and a
+        // prediction cannot be interrupted, so the main thread does not wait for it. The journal
+        // is closed once the inference thread no longer appends, and writes its last frames on
+        // the shutdown thread, as the io executor is gone by then.
+        ResultJournal closing = journal;
+        journal = null;
+        shutdownThread = executors.shutdownInBackground(TERMINATE_TIMEOUT_MS, TimeUnit.MILLISECONDS,
+                terminated -> {
+                    if (closing != null) {
+                        try {
+                            closing.close();
+                            Log.i(TAG, closing.toString());
+                        } catch (IOException e) {
+                            Log.w(TAG, "Failed to close the journal", e);
+                        }
+                    }
+                    if (!terminated) {
+                        Log.w(TAG, "A prediction is still running, not terminating the SDK");
+                    } else if (sense != null) {
+                        sense.terminate();
+                        sense = null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,111 @@
+package ai.cochl.examples;
+
+import java.io.InterruptedIOException;
+import java.util.Random;
+
+/**
+ * Generates a test signal as an {@link AudioSource}: silence, a sine tone or white noise.
+ * <p>
+ * The signal is deterministic (the noise generator is seeded), so runs can be compared. It is
+ * generated for the given duration, or forever if the duration is not positive.
+ */
+final class SyntheticSource implements AudioSource {
+    enum Waveform {
+        SILENCE,
+        SINE,
+        WHITE_NOISE
+    }
+
+    private final int sampleRate;
+    private final Waveform waveform;
+    private final double phaseIncrement;
+    private final float amplitude;
+    private final long totalSamples;
+    private final ReplayClock clock;
+    private final Random random = new Random(0);
+    private float[] scratch = new float[0];
+
+    private long generated = 0;
+
+    SyntheticSource(int sampleRate, Waveform waveform, double frequencyHz, float amplitude,
+                    double durationSeconds, Pacing pacing) {
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("sampleRate must be positive");
+        }
+        this.sampleRate = sampleRate;
+        this.waveform = waveform;
+        this.phaseIncrement = 2 * Math.PI * frequencyHz / sampleRate;
+        this.amplitude = amplitude;
+        this.totalSamples = durationSeconds > 0 ? (long) (durationSeconds * sampleRate) : -1;
+        this.clock = new ReplayClock(sampleRate, pacing);
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public boolean isFloat() {
+        return true;
+    }
+
+    @Override
+    public void start() {
+        clock.start();
+    }
+
+    @Override
+    public int read(float[] buffer, int offset, int length) throws InterruptedIOException {
+        int count = available(length);
+        for (int i = 0; i < count; ++i) {
+            buffer[offset + i] = sample(generated + i);
+        }
+        return advance(count);
+    }
+
+    @Override
+    public int read(short[] buffer, int offset, int length) throws InterruptedIOException {
+        int count = available(length);
+        if (scratch.length < count) {
+            scratch = new float[count];
+        }
+        for (int i = 0; i < count; ++i) {
+            scratch[i] = sample(generated + i);
+        }
+        PcmConversion.toPcm16(scratch, 0, buffer, offset, Math.max(count, 0));
+        return advance(count);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private int available(int length) {
+        if (totalSamples < 0) {
+            return length;
+        }
+        return (int) Math.min(length, totalSamples - generated);
+    }
+
+    private int advance(int count) throws InterruptedIOException {
+        if (count <= 0) {
+            return -1;
+        }
+        generated += count;
+        clock.awaitSample(generated);
+        return count;
+    }
+
+    private float sample(long position) {
+        switch (waveform) {
+            case SINE:
+                // Phase from the absolute position, so no error accumulates over long runs
+                return amplitude * (float) Math.sin(phaseIncrement * position);
+            case WHITE_NOISE:
+                return amplitude * (random.nextFloat() * 2 - 1);
+            default:
+                return 0f;
+        }
+    }
+}
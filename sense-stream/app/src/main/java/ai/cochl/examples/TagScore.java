@@ -0,0 +1,22 @@
+package ai.cochl.examples;
+
+/**
+ * Probability of one sound tag within a {@link FrameResult}.
+ */
+final class TagScore {
+    String name = "";
+    float probability;
+
+    String getName() {
+        return name;
+    }
+
+    float getProbability() {
+        return probability;
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + probability;
+    }
+}
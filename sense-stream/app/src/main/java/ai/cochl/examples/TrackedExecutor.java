@@ -0,0 +1,194 @@
+package ai.cochl.examples;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed-size thread pool with named threads, a start-up hook for the thread priority and usage
+ * statistics.
+ * <p>
+ * Threads are started on demand and end after {@code keepAliveMillis} without work, so an idle
+ * executor holds no thread. Besides the counts of {@link ThreadPoolExecutor}, it keeps the
+ * longest queue it has seen and the time its threads spent running tasks, from which
+ * {@link #getUtilization()} is computed.
+ * <p>
+ * Long-running loops, e.g. capture, are started with {@link #startJob(Runnable)}, which returns a
+ * handle to interrupt the loop and wait for it to return, much like {@link Thread#join()}.
+ */
+final class TrackedExecutor extends ThreadPoolExecutor {
+    // Runs first on every new thread of the pool, e.g. to set its priority
+    interface ThreadSetup {
+        void onThreadStart();
+    }
+
+    // A task that can be interrupted and waited for
+    final class Job implements Runnable {
+        private final Runnable body;
+        private Thread runner = null;
+        private boolean cancelled = false;
+        private boolean finished = false;
+
+        private Job(Runnable body) {
+            this.body = body;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (cancelled) {
+                    finish();
+                    return;
+                }
+                runner = Thread.currentThread();
+            }
+            try {
+                body.run();
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                    finish();
+                }
+            }
+        }
+
+        // Interrupts the job if it is running, without waiting for it to return; a job that has
+        // not started yet never runs.
+        void cancel() {
+            synchronized (this) {
+                cancelled = true;
+                if (runner != null) {
+                    runner.interrupt();
+                }
+            }
+            if (remove(this)) {
+                synchronized (this) {
+                    finish();
+                }
+            }
+        }
+
+        // Like cancel, but returns only once the job has returned
+        void cancelAndJoin() throws InterruptedException {
+            cancel();
+            synchronized (this) {
+                while (!finished) {
+                    wait();
+                }
+            }
+        }
+
+        synchronized boolean isFinished() {
+            return finished;
+        }
+
+        // Dropped from the queue by shutdownNow
+        private synchronized void drop() {
+            cancelled = true;
+            finish();
+        }
+
+        private void finish() {
+            finished = true;
+            notifyAll();
+        }
+    }
+
+    private final String name;
+    private final long createdNanos = System.nanoTime();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private final AtomicInteger maxQueued = new AtomicInteger();
+    // Start time of the task that each thread is running
+    private final Map<Thread, Long> running = new ConcurrentHashMap<>();
+
+    TrackedExecutor(String name, int threads, long keepAliveMillis, ThreadSetup setup) {
+        super(threads, threads, keepAliveMillis, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        this.name = name;
+        AtomicInteger count = new AtomicInteger();
+        setThreadFactory(runnable -> {
+            Thread thread = new Thread(() -> {
+                setup.onThreadStart();
+                runnable.run();
+            }, threads == 1 ? name : name + "-" + count.incrementAndGet());
+            // The owner shuts the pool down; its threads do not keep the process alive
+            thread.setDaemon(true);
+            return thread;
+        });
+        allowCoreThreadTimeOut(true);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    Job startJob(Runnable body) {
+        Job job = new Job(body);
+        execute(job);
+        return job;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        super.execute(command);
+        int queued = getQueue().size();
+        int max;
+        while (queued > (max = maxQueued.get()) && !maxQueued.compareAndSet(max, queued)) {
+            // retry
+        }
+    }
+
+    int getMaxQueued() {
+        return maxQueued.get();
+    }
+
+    // Share of the pool's thread time spent running tasks since it was created, including the
+    // tasks that are running now
+    float getUtilization() {
+        long now = System.nanoTime();
+        long busy = busyNanos.get();
+        for (long start : running.values()) {
+            busy += now - start;
+        }
+        long capacity = (now - createdNanos) * getMaximumPoolSize();
+        return capacity > 0 ? Math.min(1f, (float) busy / capacity) : 0f;
+    }
+
+    // Jobs that never got to run count as finished, so nobody waits for them
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> dropped = super.shutdownNow();
+        for (Runnable task : dropped) {
+            if (task instanceof Job) {
+                ((Job) task).drop();
+            }
+        }
+        return dropped;
+    }
+
+    @Override
+    protected void beforeExecute(Thread thread, Runnable task) {
+        running.put(thread, System.nanoTime());
+    }
+
+    @Override
+    protected void afterExecute(Runnable task, Throwable error) {
+        Long start = running.remove(Thread.currentThread());
+        if (start != null) {
+            busyNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    // e.g. "inference: 1/2 threads busy, 0 queued (max 3), 14 done, 37% utilized"
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s: %d/%d threads busy, %d queued (max %d), %d done, %.0f%% utilized",
+                name, getActiveCount(), getMaximumPoolSize(), getQueue().size(), getMaxQueued(),
+                getCompletedTaskCount(), getUtilization() * 100);
+    }
+}
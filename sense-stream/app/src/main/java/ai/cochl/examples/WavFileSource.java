@@ -0,0 +1,94 @@
+package ai.cochl.examples;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Replays a WAV file as an {@link AudioSource}.
+ * <p>
+ * Samples are decoded from a {@link MappedWavReader} mapping into mono floats, multi-channel
+ * files being downmixed. The file is replayed once, or over and over when looping, either at
+ * the pace of a live capture or as fast as it can be read.
+ */
+final class WavFileSource implements AudioSource {
+    private final MappedWavReader reader;
+    private final ReplayClock clock;
+    private final boolean loop;
+
+    private long position = 0;  // frame in the file
+    private long delivered = 0;  // frames since start, across loops
+    private float[] scratch = new float[0];
+
+    WavFileSource(File file, Pacing pacing, boolean loop) throws IOException {
+        this.reader = MappedWavReader.open(file);
+        this.clock = new ReplayClock(reader.getHeader().sampleRate, pacing);
+        this.loop = loop;
+    }
+
+    WavHeader getHeader() {
+        return reader.getHeader();
+    }
+
+    @Override
+    public int getSampleRate() {
+        return reader.getHeader().sampleRate;
+    }
+
+    @Override
+    public boolean isFloat() {
+        return true;
+    }
+
+    @Override
+    public void start() {
+        clock.start();
+    }
+
+    @Override
+    public int read(float[] buffer, int offset, int length) throws IOException {
+        if (offset == 0) {
+            return readInto(buffer, length);
+        }
+        int read = readInto(scratch(length), length);
+        if (read > 0) {
+            System.arraycopy(scratch, 0, buffer, offset, read);
+        }
+        return read;
+    }
+
+    @Override
+    public int read(short[] buffer, int offset, int length) throws IOException {
+        int read = readInto(scratch(length), length);
+        if (read > 0) {
+            PcmConversion.toPcm16(scratch, 0, buffer, offset, read);
+        }
+        return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private int readInto(float[] out, int length) throws IOException {
+        if (position >= reader.getFrameCount()) {
+            if (!loop || reader.getFrameCount() == 0) {
+                return -1;
+            }
+            position = 0;
+        }
+
+        int read = reader.readMono(position, out, length);
+        position += read;
+        delivered += read;
+        clock.awaitSample(delivered);
+        return read;
+    }
+
+    private float[] scratch(int length) {
+        if (scratch.length < length) {
+            scratch = new float[length];
+        }
+        return scratch;
+    }
+}
@@ -0,0 +1,195 @@
+package ai.cochl.examples;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class AppExecutorsTest {
+    private final List<Integer> priorities = Collections.synchronizedList(new ArrayList<>());
+    private final List<Runnable> posted = Collections.synchronizedList(new ArrayList<>());
+
+    private AppExecutors newExecutors(int inferenceThreads) {
+        return new AppExecutors(inferenceThreads, priorities::add, posted::add);
+    }
+
+    // Blocks until interrupted, like the capture and inference loops
+    private static void loop(CountDownLatch started) {
+        started.countDown();
+        try {
+            Thread.sleep(Long.MAX_VALUE);
+        } catch (InterruptedException e) {
+            // ends the loop
+        }
+    }
+
+    @Test
+    public void threadsAreNamedAndPrioritized() throws Exception {
+        AppExecutors executors = newExecutors(2);
+        AtomicReference<String> captureName = new AtomicReference<>();
+        executors.getCapture().submit(() -> captureName.set(Thread.currentThread().getName()))
+                .get(5, TimeUnit.SECONDS);
+        executors.getIo().submit(() -> {
+        }).get(5, TimeUnit.SECONDS);
+
+        assertEquals("sense-capture", captureName.get());
+        assertEquals(2, priorities.size());
+        assertTrue(priorities.contains(AppExecutors.PRIORITY_URGENT_AUDIO));
+        assertTrue(priorities.contains(AppExecutors.PRIORITY_BACKGROUND));
+        executors.shutdown();
+    }
+
+    @Test
+    public void cancelAndJoin_interruptsRunningJob() throws Exception {
+        AppExecutors executors = newExecutors(1);
+        CountDownLatch started = new CountDownLatch(1);
+        TrackedExecutor.Job job = executors.getCapture().startJob(() -> loop(started));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        job.cancelAndJoin();
+        assertTrue(job.isFinished());
+
+        // The thread is reused for the next job, not interrupted
+        Future<Boolean> next = executors.getCapture().submit(() -> Thread.currentThread().isInterrupted());
+        assertFalse(next.get(5, TimeUnit.SECONDS));
+        executors.shutdown();
+    }
+
+    @Test
+    public void cancelAndJoin_queuedJobNeverRuns() throws Exception {
+        AppExecutors executors = newExecutors(1);
+        CountDownLatch started = new CountDownLatch(1);
+        TrackedExecutor.Job first = executors.getInference().startJob(() -> loop(started));
+        AtomicBoolean ran = new AtomicBoolean();
+        TrackedExecutor.Job queued = executors.getInference().startJob(() -> ran.set(true));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        queued.cancelAndJoin();
+        first.cancelAndJoin();
+        executors.shutdown();
+        assertTrue(executors.awaitTermination(5, TimeUnit.SECONDS));
+        assertFalse(ran.get());
+    }
+
+    @Test
+    public void shutdown_interruptsJobsAndDropsQueuedOnes() throws Exception {
+        AppExecutors executors = newExecutors(1);
+        CountDownLatch started = new CountDownLatch(1);
+        TrackedExecutor.Job running = executors.getInference().startJob(() -> loop(started));
+        TrackedExecutor.Job queued = executors.getInference().startJob(() -> {
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        executors.shutdown();
+        assertTrue(executors.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(running.isFinished());
+        // Does not wait for a job that will never run
+        queued.cancelAndJoin();
+        assertTrue(queued.isFinished());
+    }
+
+    @Test
+    public void shutdownInBackground_waitsOffTheCallingThread() throws Exception {
+        AppExecutors executors = newExecutors(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // Like a prediction, which ignores the interrupt
+        executors.getInference().execute(() -> {
+            started.countDown();
+            while (true) {
+                try {
+                    release.await();
+                    return;
+                } catch (InterruptedException e) {
+                    // keeps predicting
+                }
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        AtomicReference<Boolean> terminated = new AtomicReference<>();
+        Thread thread = executors.shutdownInBackground(10, TimeUnit.SECONDS, terminated::set);
+        assertTrue(executors.isShutdown());
+        thread.join(100);
+        assertTrue(thread.isAlive());
+
+        release.countDown();
+        thread.join(5000);
+        assertEquals(Boolean.TRUE, terminated.get());
+    }
+
+    @Test
+    public void shutdownInBackground_givesUpAfterTimeout() throws Exception {
+        AppExecutors executors = newExecutors(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executors.getInference().execute(() -> {
+            while (release.getCount() > 0) {
+                Thread.yield();
+            }
+        });
+
+        AtomicReference<Boolean> terminated = new AtomicReference<>();
+        executors.shutdownInBackground(50, TimeUnit.MILLISECONDS, terminated::set).join(5000);
+        release.countDown();
+        assertEquals(Boolean.FALSE, terminated.get());
+    }
+
+    @Test
+    public void ui_dropsPostsAfterShutdown() {
+        AppExecutors executors = newExecutors(1);
+        List<String> ran = new ArrayList<>();
+        executors.getUi().execute(() -> ran.add("before"));
+        executors.getUi().execute(() -> ran.add("pending at shutdown"));
+        assertEquals(2, executors.getUi().getPendingCount());
+
+        posted.get(0).run();
+        executors.shutdown();
+        executors.getUi().execute(() -> ran.add("after"));
+        for (Runnable runnable : new ArrayList<>(posted)) {
+            if (runnable != posted.get(0)) {
+                runnable.run();
+            }
+        }
+
+        assertEquals(Collections.singletonList("before"), ran);
+        assertEquals(2, executors.getUi().getPostedCount());
+        assertEquals(0, executors.getUi().getPendingCount());
+        assertTrue(executors.isShutdown());
+    }
+
+    @Test
+    public void stats_countQueueAndBusyTime() throws Exception {
+        TrackedExecutor executor = new TrackedExecutor("test", 1, 1000, () -> {
+        });
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        for (int i = 0; i < 3; ++i) {
+            executor.execute(() -> {
+            });
+        }
+        // The running task counts while it runs
+        Thread.sleep(50);
+        assertTrue(executor.getUtilization() > 0.5f);
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(3, executor.getMaxQueued());
+        assertEquals(4, executor.getCompletedTaskCount());
+        assertTrue(executor.toString().startsWith("test: 0/1 threads busy, 0 queued (max 3), 4 done"));
+    }
+}
@@ -0,0 +1,65 @@
+package ai.cochl.examples;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class AudioHopPoolTest {
+    @Test
+    public void acquire_reusesPreallocatedHops() throws InterruptedException {
+        AudioHopPool pool = AudioHopPool.ofFloat(1, 8);
+
+        AudioHop first = pool.acquire();
+        assertTrue(first.isFloat());
+        assertEquals(8, first.capacity());
+        first.release();
+
+        assertSame(first, pool.acquire());
+        assertEquals(0, pool.getAvailable());
+        assertEquals(2, pool.getAcquireCount());
+        assertEquals(0, pool.getWaitCount());
+    }
+
+    @Test
+    public void acquire_waitsForRelease_whenPoolIsEmpty() throws InterruptedException {
+        AudioHopPool pool = AudioHopPool.ofShort(1, 4);
+        AudioHop held = pool.acquire();
+        CountDownLatch acquired = new CountDownLatch(1);
+
+        Thread producer = new Thread(() -> {
+            try {
+                pool.acquire();
+                acquired.countDown();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        producer.start();
+
+        while (pool.getWaitCount() == 0) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, acquired.getCount());
+
+        held.release();
+        producer.join(1000);
+        assertEquals(0, acquired.getCount());
+        assertEquals(1, pool.getWaitCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void release_twice_throws() throws InterruptedException {
+        AudioHopPool pool = AudioHopPool.ofFloat(2, 4);
+        AudioHop hop = pool.acquire();
+        hop.release();
+        hop.release();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void release_toOtherPool_throws() throws InterruptedException {
+        AudioHopPool pool = AudioHopPool.ofFloat(1, 4);
+        AudioHopPool other = AudioHopPool.ofFloat(1, 4);
+        other.release(pool.acquire());
+    }
+}
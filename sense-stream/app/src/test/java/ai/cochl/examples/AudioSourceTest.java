@@ -0,0 +1,94 @@
+package ai.cochl.examples;
+
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class AudioSourceTest {
+    static final File GLASS_BREAK = new File("src/test/resources/glassbreak.wav");
+
+    private static long drain(AudioSource source, int bufferSize) throws Exception {
+        float[] buffer = new float[bufferSize];
+        long total = 0;
+        int read;
+        source.start();
+        while ((read = source.read(buffer, 0, buffer.length)) >= 0) {
+            total += read;
+        }
+        return total;
+    }
+
+    @Test
+    public void wavFile_replaysEveryFrameOnce() throws Exception {
+        try (WavFileSource source = new WavFileSource(GLASS_BREAK, AudioSource.Pacing.MAX_SPEED, false)) {
+            assertEquals(22050, source.getSampleRate());
+            assertTrue(source.isFloat());
+            assertEquals(source.getHeader().getFrameCount(), drain(source, 4096));
+        }
+    }
+
+    @Test
+    public void wavFile_loopsBackToStart() throws Exception {
+        try (WavFileSource once = new WavFileSource(GLASS_BREAK, AudioSource.Pacing.MAX_SPEED, false);
+             WavFileSource looped = new WavFileSource(GLASS_BREAK, AudioSource.Pacing.MAX_SPEED, true)) {
+            int frames = (int) once.getHeader().getFrameCount();
+            float[] first = new float[16];
+            assertEquals(16, once.read(first, 0, 16));
+
+            float[] skip = new float[frames];
+            assertEquals(frames, looped.read(skip, 0, frames));
+            float[] again = new float[16];
+            assertEquals(16, looped.read(again, 0, 16));
+            assertArrayEquals(first, again, 0f);
+        }
+    }
+
+    @Test
+    public void wavFile_readsPcm16AtOffset() throws Exception {
+        try (WavFileSource source = new WavFileSource(GLASS_BREAK, AudioSource.Pacing.MAX_SPEED, false)) {
+            float[] floats = new float[64];
+            short[] shorts = new short[72];
+            try (WavFileSource reference = new WavFileSource(GLASS_BREAK, AudioSource.Pacing.MAX_SPEED, false)) {
+                reference.read(floats, 0, 64);
+            }
+
+            assertEquals(64, source.read(shorts, 8, 64));
+            for (int i = 0; i < 64; ++i) {
+                assertEquals(floats[i] * 32768f, shorts[8 + i], 0.5f);
+            }
+        }
+    }
+
+    @Test
+    public void realTimePacing_keepsUpWithTheClock() throws Exception {
+        SyntheticSource source = new SyntheticSource(8000, SyntheticSource.Waveform.SILENCE, 0, 0,
+                0.2, AudioSource.Pacing.REAL_TIME);
+        long start = System.nanoTime();
+        assertEquals(1600, drain(source, 400));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue("took " + elapsedMillis + " ms", elapsedMillis >= 190);
+    }
+
+    @Test
+    public void synthetic_sineIsContinuousAcrossReads() throws Exception {
+        SyntheticSource source = new SyntheticSource(8000, SyntheticSource.Waveform.SINE, 1000, 0.5f,
+                1, AudioSource.Pacing.MAX_SPEED);
+        float[] buffer = new float[12];
+        source.read(buffer, 0, 5);
+        source.read(buffer, 5, 7);
+
+        for (int i = 0; i < buffer.length; ++i) {
+            assertEquals(0.5 * Math.sin(2 * Math.PI * 1000 * i / 8000), buffer[i], 1e-6);
+        }
+    }
+
+    @Test
+    public void synthetic_endsAfterDuration() throws Exception {
+        SyntheticSource source = new SyntheticSource(16000, SyntheticSource.Waveform.WHITE_NOISE, 0,
+                1f, 0.5, AudioSource.Pacing.MAX_SPEED);
+        assertEquals(8000, drain(source, 3000));
+        assertEquals(-1, source.read(new short[10], 0, 10));
+    }
+}
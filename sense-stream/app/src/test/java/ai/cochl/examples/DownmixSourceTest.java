@@ -0,0 +1,172 @@
+package ai.cochl.examples;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class DownmixSourceTest {
+    // Interleaved samples from an array, in reads of at most maxRead samples
+    static class ArraySource implements AudioSource {
+        private final int sampleRate;
+        private final int channels;
+        private final float[] samples;
+        private final int maxRead;
+        private int position = 0;
+
+        ArraySource(int sampleRate, int channels, float[] samples) {
+            this(sampleRate, channels, samples, Integer.MAX_VALUE);
+        }
+
+        ArraySource(int sampleRate, int channels, float[] samples, int maxRead) {
+            this.sampleRate = sampleRate;
+            this.channels = channels;
+            this.samples = samples;
+            this.maxRead = maxRead;
+        }
+
+        @Override
+        public int getSampleRate() {
+            return sampleRate;
+        }
+
+        @Override
+        public int getChannelCount() {
+            return channels;
+        }
+
+        @Override
+        public boolean isFloat() {
+            return true;
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public int read(float[] buffer, int offset, int length) {
+            if (position == samples.length) {
+                return -1;
+            }
+            int count = Math.min(Math.min(length, maxRead), samples.length - position);
+            System.arraycopy(samples, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int read(short[] buffer, int offset, int length) {
+            float[] floats = new float[length];
+            int read = read(floats, 0, length);
+            if (read > 0) {
+                PcmConversion.toPcm16(floats, 0, buffer, offset, read);
+            }
+            return read;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static float[] interleave(float... frame) {
+        float[] samples = new float[frame.length * 100];
+        for (int i = 0; i < samples.length; ++i) {
+            samples[i] = frame[i % frame.length];
+        }
+        return samples;
+    }
+
+    @Test
+    public void averagesStereo() throws Exception {
+        DownmixSource source = new DownmixSource(new ArraySource(22050, 2, interleave(0.5f, -0.1f)));
+        assertEquals(1, source.getChannelCount());
+        assertEquals(22050, source.getSampleRate());
+
+        float[] out = new float[100];
+        assertEquals(100, source.read(out, 0, out.length));
+        for (float sample : out) {
+            assertEquals(0.2f, sample, 1e-6f);
+        }
+        assertEquals(-1, source.read(out, 0, out.length));
+    }
+
+    @Test
+    public void averagesFourChannels() throws Exception {
+        DownmixSource source = new DownmixSource(
+                new ArraySource(22050, 4, interleave(0.4f, 0.2f, 0f, -0.2f)));
+        float[] out = new float[100];
+        assertEquals(100, source.read(out, 0, out.length));
+        assertEquals(0.1f, out[0], 1e-6f);
+        assertEquals(0.1f, out[99], 1e-6f);
+    }
+
+    @Test
+    public void keepsChannelsAligned_whenSourceSplitsFrames() throws Exception {
+        // Reads of 3 samples end in the middle of a stereo frame
+        DownmixSource source = new DownmixSource(
+                new ArraySource(22050, 2, interleave(1f, 0f), 3));
+        float[] out = new float[100];
+        int read = 0;
+        int n;
+        while (read < out.length && (n = source.read(out, read, out.length - read)) > 0) {
+            read += n;
+        }
+        assertEquals(100, read);
+        for (float sample : out) {
+            assertEquals(0.5f, sample, 0f);
+        }
+    }
+
+    @Test
+    public void emptyRead_returnsNoFrames() throws Exception {
+        DownmixSource source = new DownmixSource(new ArraySource(22050, 2, interleave(1f, 0f)) {
+            @Override
+            public int read(float[] buffer, int offset, int length) {
+                return 0;
+            }
+        });
+        float[] out = new float[100];
+        assertEquals(0, source.read(out, 0, out.length));
+    }
+
+    @Test
+    public void stallInTheMiddleOfAFrame_fails() throws Exception {
+        DownmixSource source = new DownmixSource(new ArraySource(22050, 2, interleave(1f, 0f)) {
+            private boolean first = true;
+
+            @Override
+            public int read(float[] buffer, int offset, int length) {
+                if (!first) {
+                    return 0;
+                }
+                first = false;
+                return super.read(buffer, offset, 3);
+            }
+        });
+        try {
+            source.read(new float[100], 0, 100);
+            fail();
+        } catch (IOException expected) {
+            // the channels would no longer be aligned
+        }
+    }
+
+    @Test
+    public void deliversPcm16() throws Exception {
+        DownmixSource source = new DownmixSource(new ArraySource(22050, 2, interleave(0.5f, 0f)));
+        short[] out = new short[10];
+        assertEquals(10, source.read(out, 0, out.length));
+        assertEquals(8192, out[9]);
+    }
+
+    @Test
+    public void passesMonoThrough() throws Exception {
+        DownmixSource source = new DownmixSource(new ArraySource(22050, 1, interleave(0.3f)));
+        float[] out = new float[100];
+        assertEquals(100, source.read(out, 0, out.length));
+        assertEquals(0.3f, out[50], 0f);
+    }
+}
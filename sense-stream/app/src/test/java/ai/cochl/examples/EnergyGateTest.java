@@ -0,0 +1,135 @@
+package ai.cochl.examples;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class EnergyGateTest {
+    private static final int HOP_SIZE = 11025;
+
+    private final Random random = new Random(0);
+
+    private float[] noise(float amplitude) {
+        float[] samples = new float[HOP_SIZE];
+        for (int i = 0; i < samples.length; ++i) {
+            samples[i] = (random.nextFloat() * 2 - 1) * amplitude;
+        }
+        return samples;
+    }
+
+    private static float[] sine(double frequency, float amplitude) {
+        float[] samples = new float[HOP_SIZE];
+        for (int i = 0; i < samples.length; ++i) {
+            samples[i] = (float) (amplitude * Math.sin(2 * Math.PI * frequency * i / 22050));
+        }
+        return samples;
+    }
+
+    private static boolean next(EnergyGate gate, float[] hop) {
+        gate.analyze(hop, hop.length, 1);
+        return gate.decide();
+    }
+
+    @Test
+    public void silence_isSkipped() {
+        EnergyGate gate = new EnergyGate(6, -60, 2, 0, false);
+        for (int i = 0; i < 10; ++i) {
+            assertFalse(next(gate, new float[HOP_SIZE]));
+        }
+        assertEquals(0, gate.getProcessedCount());
+        assertEquals(10, gate.getSkippedCount());
+    }
+
+    @Test
+    public void loudHop_opensGate_forHangover() {
+        EnergyGate gate = new EnergyGate(6, -60, 2, 0, false);
+        for (int i = 0; i < 5; ++i) {
+            next(gate, noise(0.001f));
+        }
+        assertTrue(next(gate, noise(0.3f)));
+        // Hangover
+        assertTrue(next(gate, noise(0.001f)));
+        assertTrue(next(gate, noise(0.001f)));
+        assertFalse(next(gate, noise(0.001f)));
+        assertEquals(3, gate.getProcessedCount());
+    }
+
+    @Test
+    public void idleWindows_areDownsampled() {
+        EnergyGate gate = new EnergyGate(6, -60, 0, 3, false);
+        boolean[] predicted = new boolean[9];
+        for (int i = 0; i < predicted.length; ++i) {
+            predicted[i] = next(gate, new float[HOP_SIZE]);
+        }
+        assertEquals("[false, false, true, false, false, true, false, false, true]",
+                Arrays.toString(predicted));
+    }
+
+    @Test
+    public void noiseFloor_adaptsToSteadyNoise() {
+        EnergyGate gate = new EnergyGate(6, -60, 0, 0, false);
+        // Steady noise at about -15 dBFS is well above the minimum level, but it is the room
+        for (int i = 0; i < 10; ++i) {
+            assertFalse(next(gate, noise(0.3f)));
+        }
+        assertEquals(-15.2f, gate.getNoiseFloorDb(), 1f);
+        assertTrue(next(gate, noise(0.9f)));
+    }
+
+    @Test
+    public void quietRoom_staysBelowMinimumLevel() {
+        EnergyGate gate = new EnergyGate(6, -60, 0, 0, false);
+        next(gate, new float[HOP_SIZE]);
+        // 40 dB above digital silence, still below -60 dBFS
+        assertFalse(next(gate, noise(0.0005f)));
+    }
+
+    @Test
+    public void click_opensGateOnPeak() {
+        EnergyGate gate = new EnergyGate(6, -60, 0, 0, false);
+        for (int i = 0; i < 5; ++i) {
+            next(gate, noise(0.01f));
+        }
+        float[] click = noise(0.01f);
+        click[HOP_SIZE / 2] = 0.9f;
+        assertTrue(next(gate, click));
+    }
+
+    @Test
+    public void spectralFlux_catchesOnsetAtSameLevel() {
+        for (boolean flux : new boolean[]{false, true}) {
+            EnergyGate gate = new EnergyGate(6, -60, 0, 0, flux);
+            for (int i = 0; i < 5; ++i) {
+                next(gate, sine(500, 0.2f));
+            }
+            assertEquals(flux, next(gate, sine(3000, 0.2f)));
+        }
+    }
+
+    @Test
+    public void pcm16Hops_matchFloatHops() {
+        EnergyGate gate = new EnergyGate(6, -60, 0, 0, false);
+        short[] quiet = new short[HOP_SIZE];
+        short[] loud = new short[HOP_SIZE];
+        PcmConversion.toPcm16(noise(0.001f), 0, quiet, 0, HOP_SIZE);
+        PcmConversion.toPcm16(noise(0.3f), 0, loud, 0, HOP_SIZE);
+
+        gate.analyze(quiet, quiet.length, 1);
+        assertFalse(gate.decide());
+        gate.analyze(loud, loud.length, 1);
+        assertTrue(gate.decide());
+    }
+
+    @Test
+    public void pendingActiveHop_isKeptUntilDecided() {
+        // With coalesced hops, an active hop followed by a quiet one still opens the gate
+        EnergyGate gate = new EnergyGate(6, -60, 0, 0, false);
+        next(gate, new float[HOP_SIZE]);
+        gate.analyze(noise(0.3f), HOP_SIZE, 1);
+        gate.analyze(new float[HOP_SIZE], HOP_SIZE, 1);
+        assertTrue(gate.decide());
+    }
+}
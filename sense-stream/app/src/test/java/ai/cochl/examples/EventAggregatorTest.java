@@ -0,0 +1,156 @@
+package ai.cochl.examples;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EventAggregatorTest {
+    private final List<String> events = new ArrayList<>();
+    private final EventAggregator.Listener listener = new EventAggregator.Listener() {
+        @Override
+        public void onOnset(EventAggregator.TagEvent event) {
+            events.add(event.appendOnset(new StringBuilder()).toString());
+        }
+
+        @Override
+        public void onOffset(EventAggregator.TagEvent event) {
+            events.add(event.appendOffset(new StringBuilder()).toString());
+        }
+    };
+    private int frames = 0;
+
+    // Feeds one 1 s frame with the given tags and probabilities, e.g. "Siren", 0.9f
+    private void frame(EventAggregator aggregator, Object... tags) {
+        FrameResult frame = new FrameResult();
+        frame.startTime = frames;
+        frame.endTime = frames + 1;
+        ++frames;
+        for (int i = 0; i < tags.length; i += 2) {
+            TagScore tag = frame.addTag();
+            tag.name = (String) tags[i];
+            tag.probability = (Float) tags[i + 1];
+        }
+        aggregator.update(frame, listener);
+    }
+
+    private static EventAggregator aggregator(int onFrames, int offFrames) {
+        EventAggregator.Config config = new EventAggregator.Config();
+        config.onFrames = onFrames;
+        config.offFrames = offFrames;
+        return new EventAggregator(config);
+    }
+
+    @Test
+    public void continuousDetection_isOneEvent() {
+        EventAggregator aggregator = aggregator(1, 2);
+        frame(aggregator, "Siren", 0.6f);
+        for (int i = 0; i < 20; ++i) {
+            frame(aggregator, "Siren", 0.9f);
+        }
+        frame(aggregator);
+        frame(aggregator);
+
+        assertEquals(2, events.size());
+        assertEquals("0.0 s: Siren started, 60%", events.get(0));
+        assertEquals("0.0-21.0 s: Siren, peak 90%, mean 89%", events.get(1));
+        assertEquals(0, aggregator.getActiveCount());
+    }
+
+    @Test
+    public void shortDip_doesNotSplitEvent() {
+        EventAggregator aggregator = aggregator(1, 2);
+        frame(aggregator, "Siren", 0.9f);
+        // Below the off threshold for one frame only
+        frame(aggregator, "Siren", 0.1f);
+        frame(aggregator, "Siren", 0.8f);
+        // Between the thresholds: the event goes on
+        frame(aggregator, "Siren", 0.4f);
+        frame(aggregator);
+        frame(aggregator);
+
+        assertEquals(2, events.size());
+        assertEquals("0.0-4.0 s: Siren, peak 90%, mean 70%", events.get(1));
+    }
+
+    @Test
+    public void hysteresis_needsOnThresholdToStart() {
+        EventAggregator aggregator = aggregator(1, 1);
+        // Above off but below on: no event
+        frame(aggregator, "Siren", 0.4f);
+        frame(aggregator, "Siren", 0.45f);
+        assertTrue(events.isEmpty());
+        frame(aggregator, "Siren", 0.5f);
+        assertEquals(1, events.size());
+    }
+
+    @Test
+    public void onFrames_debounceSingleFrames() {
+        EventAggregator aggregator = aggregator(2, 1);
+        frame(aggregator, "Dog_bark", 0.9f);
+        frame(aggregator);
+        assertTrue(events.isEmpty());
+        assertEquals(0, aggregator.getActiveCount());
+
+        frame(aggregator, "Dog_bark", 0.9f);
+        frame(aggregator, "Dog_bark", 0.7f);
+        assertEquals(1, events.size());
+        // The onset is the first frame of the run
+        assertEquals("2.0 s: Dog_bark started, 90%", events.get(0));
+    }
+
+    @Test
+    public void tags_areTrackedIndependently() {
+        EventAggregator aggregator = aggregator(1, 1);
+        frame(aggregator, "Siren", 0.9f, "Dog_bark", 0.8f);
+        frame(aggregator, "Siren", 0.9f);
+        frame(aggregator, "Siren", 0.9f);
+        frame(aggregator);
+
+        assertEquals(4, events.size());
+        assertEquals("0.0 s: Siren started, 90%", events.get(0));
+        assertEquals("0.0 s: Dog_bark started, 80%", events.get(1));
+        assertEquals("0.0-1.0 s: Dog_bark, peak 80%, mean 80%", events.get(2));
+        assertEquals("0.0-3.0 s: Siren, peak 90%, mean 90%", events.get(3));
+    }
+
+    @Test
+    public void othersTag_isIgnored() {
+        EventAggregator aggregator = aggregator(1, 1);
+        frame(aggregator, "Others", 0.99f);
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void flush_endsEventsInProgress() {
+        EventAggregator aggregator = aggregator(1, 2);
+        frame(aggregator, "Siren", 0.9f);
+        frame(aggregator, "Glass_break", 0.7f);
+        aggregator.flush(listener);
+
+        assertEquals(4, events.size());
+        assertTrue(events.get(2).startsWith("1.0-2.0 s: Glass_break"));
+        assertTrue(events.get(3).startsWith("0.0-1.0 s: Siren"));
+        assertEquals(0, aggregator.getActiveCount());
+    }
+
+    @Test
+    public void repeatedEvents_reuseTagState() {
+        EventAggregator aggregator = aggregator(1, 1);
+        for (int i = 0; i < 3; ++i) {
+            frame(aggregator, "Knock", 0.9f);
+            frame(aggregator);
+        }
+        assertEquals(6, events.size());
+        assertEquals("4.0-5.0 s: Knock, peak 90%, mean 90%", events.get(5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOffThresholdAboveOnThreshold() {
+        EventAggregator.Config config = new EventAggregator.Config();
+        config.offThreshold = 0.6f;
+        new EventAggregator(config);
+    }
+}
@@ -0,0 +1,70 @@
+package ai.cochl.examples;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EventSinkTest {
+    private final List<Runnable> frames = new ArrayList<>();
+    private final List<List<String>> batches = new ArrayList<>();
+    private LatencyMetrics metrics;
+    private EventSink sink;
+
+    @Before
+    public void setUp() {
+        metrics = new LatencyMetrics();
+        sink = new EventSink(frames::add, 4, lines -> batches.add(new ArrayList<>(lines)), metrics);
+    }
+
+    private void runFrame() {
+        List<Runnable> pending = new ArrayList<>(frames);
+        frames.clear();
+        for (Runnable frame : pending) {
+            frame.run();
+        }
+    }
+
+    @Test
+    public void linesOfSeveralFrames_renderInOneBatch() {
+        sink.offer("a");
+        sink.offer("b");
+        sink.endFrame(0, 0);
+        sink.offer("c");
+        sink.endFrame(0, 0);
+
+        assertEquals(1, frames.size());
+        runFrame();
+        assertEquals(1, batches.size());
+        assertEquals(Arrays.asList("a", "b", "c"), batches.get(0));
+        assertEquals(2, metrics.get(LatencyMetrics.Stage.END_TO_END).getCount());
+    }
+
+    @Test
+    public void nextFrame_isScheduledAfterDrain() {
+        sink.offer("a");
+        sink.endFrame(0, 0);
+        runFrame();
+        sink.offer("b");
+        sink.endFrame(0, 0);
+        runFrame();
+
+        assertEquals(2, batches.size());
+        assertEquals(Arrays.asList("b"), batches.get(1));
+    }
+
+    @Test
+    public void oldestLines_areDropped_whenFull() {
+        for (int i = 0; i < 6; ++i) {
+            sink.offer("line " + i);
+        }
+        sink.endFrame(0, 0);
+        runFrame();
+
+        assertEquals(Arrays.asList("line 2", "line 3", "line 4", "line 5"), batches.get(0));
+    }
+}
@@ -0,0 +1,99 @@
+package ai.cochl.examples;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HopQueueTest {
+    private final AudioHopPool pool = AudioHopPool.ofShort(8, 4);
+
+    private AudioHop hop(int marker) throws InterruptedException {
+        AudioHop hop = pool.acquire();
+        hop.shorts[0] = (short) marker;
+        hop.length = 4;
+        return hop;
+    }
+
+    @Test
+    public void dropOldest_keepsLatestHops() throws InterruptedException {
+        HopQueue queue = new HopQueue(2, HopQueue.OverloadPolicy.DROP_OLDEST);
+        queue.put(hop(1));
+        queue.put(hop(2));
+        queue.put(hop(3));
+
+        assertEquals(2, queue.getDepth());
+        assertEquals(1, queue.getDroppedCount());
+        assertEquals(2, queue.take().shorts[0]);
+        assertEquals(3, queue.take().shorts[0]);
+        // The dropped hop went back to the pool
+        assertEquals(6, pool.getAvailable());
+    }
+
+    @Test
+    public void dropNewest_keepsQueuedHops() throws InterruptedException {
+        HopQueue queue = new HopQueue(2, HopQueue.OverloadPolicy.DROP_NEWEST);
+        queue.put(hop(1));
+        queue.put(hop(2));
+        queue.put(hop(3));
+
+        assertEquals(1, queue.getDroppedCount());
+        assertEquals(1, queue.take().shorts[0]);
+        assertEquals(2, queue.take().shorts[0]);
+        assertEquals(6, pool.getAvailable());
+    }
+
+    @Test
+    public void coalesce_countsHopsMergedIntoOnePrediction() throws InterruptedException {
+        HopQueue queue = new HopQueue(4, HopQueue.OverloadPolicy.COALESCE);
+        queue.put(hop(1));
+        queue.put(hop(2));
+        queue.put(hop(3));
+
+        queue.take().release();
+        int pending = 0;
+        AudioHop hop;
+        while ((hop = queue.pollCoalesced()) != null) {
+            hop.release();
+            ++pending;
+        }
+
+        assertEquals(2, pending);
+        assertEquals(2, queue.getCoalescedCount());
+        assertEquals(0, queue.getDroppedCount());
+        assertEquals(3, queue.getMaxDepth());
+    }
+
+    @Test
+    public void block_waitsForConsumer() throws InterruptedException {
+        HopQueue queue = new HopQueue(1, HopQueue.OverloadPolicy.BLOCK);
+        queue.put(hop(1));
+
+        AudioHop second = hop(2);
+        Thread producer = new Thread(() -> {
+            try {
+                queue.put(second);
+            } catch (InterruptedException ignored) {
+            }
+        });
+        producer.start();
+        producer.join(50);
+        assertTrue(producer.isAlive());
+
+        assertEquals(1, queue.take().shorts[0]);
+        producer.join(1000);
+        assertFalse(producer.isAlive());
+        assertEquals(2, queue.take().shorts[0]);
+        assertEquals(0, queue.getDroppedCount());
+    }
+
+    @Test
+    public void clear_releasesQueuedHops() throws InterruptedException {
+        HopQueue queue = new HopQueue(4, HopQueue.OverloadPolicy.BLOCK);
+        queue.put(hop(1));
+        queue.put(hop(2));
+        queue.clear();
+
+        assertEquals(0, queue.getDepth());
+        assertEquals(8, pool.getAvailable());
+    }
+}
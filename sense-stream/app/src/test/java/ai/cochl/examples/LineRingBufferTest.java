@@ -0,0 +1,59 @@
+package ai.cochl.examples;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LineRingBufferTest {
+    @Test
+    public void keepsLinesInOrder_untilFull() {
+        LineRingBuffer buffer = new LineRingBuffer(3);
+        assertEquals(0, buffer.append("a"));
+        assertEquals(0, buffer.append("b"));
+
+        assertEquals(2, buffer.size());
+        assertEquals("a", buffer.get(0));
+        assertEquals("b", buffer.get(1));
+    }
+
+    @Test
+    public void evictsOldest_whenFull() {
+        LineRingBuffer buffer = new LineRingBuffer(3);
+        for (int i = 0; i < 3; ++i) {
+            assertEquals(0, buffer.append("line " + i));
+        }
+        for (int i = 3; i < 10; ++i) {
+            assertEquals(1, buffer.append("line " + i));
+        }
+
+        assertEquals(3, buffer.size());
+        assertEquals("line 7", buffer.get(0));
+        assertEquals("line 8", buffer.get(1));
+        assertEquals("line 9", buffer.get(2));
+    }
+
+    @Test
+    public void clear_restartsFromEmpty() {
+        LineRingBuffer buffer = new LineRingBuffer(2);
+        buffer.append("a");
+        buffer.append("b");
+        buffer.append("c");
+        buffer.clear();
+
+        assertEquals(0, buffer.size());
+        buffer.append("d");
+        assertEquals("d", buffer.get(0));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void get_rejectsPositionPastSize() {
+        LineRingBuffer buffer = new LineRingBuffer(4);
+        buffer.append("a");
+        buffer.get(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyCapacity() {
+        new LineRingBuffer(0);
+    }
+}
@@ -0,0 +1,39 @@
+package ai.cochl.examples;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PcmConversionTest {
+    @Test
+    public void pcm16RoundTrip_isExact() {
+        short[] in = {Short.MIN_VALUE, -12345, -1, 0, 1, 12345, Short.MAX_VALUE};
+        float[] floats = new float[in.length];
+        short[] out = new short[in.length];
+
+        PcmConversion.toFloat(in, 0, floats, 0, in.length);
+        PcmConversion.toPcm16(floats, 0, out, 0, in.length);
+
+        assertEquals(-1f, floats[0], 0f);
+        assertArrayEquals(in, out);
+    }
+
+    @Test
+    public void toPcm16_clipsOutOfRangeSamples() {
+        float[] in = {-2f, -1f, 1f, 1.5f, Float.NaN};
+        short[] out = new short[in.length];
+        PcmConversion.toPcm16(in, 0, out, 0, in.length);
+
+        assertArrayEquals(new short[]{Short.MIN_VALUE, Short.MIN_VALUE, Short.MAX_VALUE,
+                Short.MAX_VALUE, 0}, out);
+    }
+
+    @Test
+    public void honoursOffsets() {
+        short[] in = {0, 0, 16384, -16384};
+        float[] out = new float[5];
+        PcmConversion.toFloat(in, 2, out, 3, 2);
+
+        assertArrayEquals(new float[]{0, 0, 0, 0.5f, -0.5f}, out, 0f);
+    }
+}
@@ -0,0 +1,184 @@
+package ai.cochl.examples;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PolyphaseResamplerTest {
+    private static float[] sine(int sampleRate, double frequency, int length) {
+        float[] samples = new float[length];
+        for (int i = 0; i < length; ++i) {
+            samples[i] = (float) (0.5 * Math.sin(2 * Math.PI * frequency * i / sampleRate));
+        }
+        return samples;
+    }
+
+    private static float[] resample(PolyphaseResampler resampler, float[] in) {
+        float[] out = new float[resampler.getMaxOutput(in.length)];
+        int written = resampler.process(in, 0, in.length, out, 0);
+        float[] result = new float[written];
+        System.arraycopy(out, 0, result, 0, written);
+        return result;
+    }
+
+    private static double rms(float[] samples, int from, int to) {
+        double sum = 0;
+        for (int i = from; i < to; ++i) {
+            sum += samples[i] * samples[i];
+        }
+        return Math.sqrt(sum / (to - from));
+    }
+
+    @Test
+    public void reducesRatesToSmallestFactors() {
+        PolyphaseResampler from48k = new PolyphaseResampler(48000, 22050);
+        assertEquals(147, from48k.getUpFactor());
+        assertEquals(320, from48k.getDownFactor());
+
+        PolyphaseResampler from44k = new PolyphaseResampler(44100, 22050);
+        assertEquals(1, from44k.getUpFactor());
+        assertEquals(2, from44k.getDownFactor());
+    }
+
+    @Test
+    public void outputLength_followsRateRatio() {
+        for (int inputRate : new int[]{16000, 44100, 48000}) {
+            PolyphaseResampler resampler = new PolyphaseResampler(inputRate, 22050);
+            float[] out = resample(resampler, new float[inputRate]);
+            assertEquals("from " + inputRate, 22050, out.length, 1);
+        }
+    }
+
+    @Test
+    public void sine_isPreservedWithin60dB() {
+        int inputRate = 48000;
+        int outputRate = 22050;
+        double frequency = 1000;
+        PolyphaseResampler resampler = new PolyphaseResampler(inputRate, outputRate);
+        float[] out = resample(resampler, sine(inputRate, frequency, inputRate));
+
+        double delaySeconds = resampler.getDelayInputFrames() / inputRate;
+        float[] error = new float[out.length];
+        // Skip the filter's warm-up at the start
+        int from = 200;
+        for (int k = from; k < out.length; ++k) {
+            double t = (double) k / outputRate - delaySeconds;
+            error[k] = (float) (out[k] - 0.5 * Math.sin(2 * Math.PI * frequency * t));
+        }
+        double snr = 20 * Math.log10(rms(out, from, out.length) / rms(error, from, out.length));
+        assertTrue("SNR " + snr + " dB", snr > 60);
+    }
+
+    @Test
+    public void toneAboveOutputNyquist_isRejected() {
+        PolyphaseResampler resampler = new PolyphaseResampler(48000, 22050);
+        // Would alias to 7050 Hz without filtering
+        float[] out = resample(resampler, sine(48000, 15000, 48000));
+
+        double attenuation = 20 * Math.log10(rms(out, 200, out.length) / (0.5 / Math.sqrt(2)));
+        assertTrue("attenuation " + attenuation + " dB", attenuation < -60);
+    }
+
+    @Test
+    public void dcGain_isUnity() {
+        PolyphaseResampler resampler = new PolyphaseResampler(44100, 22050);
+        float[] in = new float[4410];
+        java.util.Arrays.fill(in, 0.25f);
+        float[] out = resample(resampler, in);
+
+        for (int k = 100; k < out.length; ++k) {
+            assertEquals(0.25f, out[k], 1e-3f);
+        }
+    }
+
+    @Test
+    public void chunkedInput_matchesOneShot() {
+        float[] in = sine(48000, 440, 20000);
+        float[] expected = resample(new PolyphaseResampler(48000, 22050), in);
+
+        PolyphaseResampler resampler = new PolyphaseResampler(48000, 22050);
+        float[] out = new float[expected.length + 16];
+        Random random = new Random(0);
+        int written = 0;
+        for (int offset = 0; offset < in.length; ) {
+            int length = Math.min(in.length - offset, 1 + random.nextInt(700));
+            assertTrue(resampler.getMaxOutput(length) + written <= out.length);
+            written += resampler.process(in, offset, length, out, written);
+            offset += length;
+        }
+
+        assertEquals(expected.length, written);
+        for (int i = 0; i < written; ++i) {
+            assertEquals("sample " + i, expected[i], out[i], 0f);
+        }
+    }
+
+    @Test
+    public void stridedChannels_matchSeparateChannels() {
+        float[] left = sine(48000, 440, 4800);
+        float[] right = sine(48000, 3000, 4800);
+        float[] interleaved = new float[2 * left.length];
+        for (int i = 0; i < left.length; ++i) {
+            interleaved[2 * i] = left[i];
+            interleaved[2 * i + 1] = right[i];
+        }
+        float[] expectedLeft = resample(new PolyphaseResampler(48000, 22050), left);
+        float[] expectedRight = resample(new PolyphaseResampler(48000, 22050), right);
+
+        PolyphaseResampler leftResampler = new PolyphaseResampler(48000, 22050);
+        PolyphaseResampler rightResampler = new PolyphaseResampler(48000, 22050);
+        float[] out = new float[2 * leftResampler.getMaxOutput(left.length)];
+        assertEquals(expectedLeft.length,
+                leftResampler.process(interleaved, 0, 2, left.length, out, 0, 2));
+        assertEquals(expectedRight.length,
+                rightResampler.process(interleaved, 1, 2, right.length, out, 1, 2));
+        for (int i = 0; i < expectedLeft.length; ++i) {
+            assertEquals(expectedLeft[i], out[2 * i], 0f);
+            assertEquals(expectedRight[i], out[2 * i + 1], 0f);
+        }
+    }
+
+    @Test
+    public void pcm16Input_matchesFloatInput() {
+        short[] shorts = new short[4800];
+        float[] floats = new float[shorts.length];
+        Random random = new Random(1);
+        for (int i = 0; i < shorts.length; ++i) {
+            shorts[i] = (short) random.nextInt();
+        }
+        PcmConversion.toFloat(shorts, 0, floats, 0, shorts.length);
+
+        float[] expected = resample(new PolyphaseResampler(48000, 22050), floats);
+        PolyphaseResampler resampler = new PolyphaseResampler(48000, 22050);
+        float[] out = new float[resampler.getMaxOutput(shorts.length)];
+        assertEquals(expected.length, resampler.process(shorts, 0, shorts.length, out, 0));
+        for (int i = 0; i < expected.length; ++i) {
+            assertEquals(expected[i], out[i], 0f);
+        }
+    }
+
+    @Test
+    public void throughput_isFarAboveRealTime() {
+        PolyphaseResampler resampler = new PolyphaseResampler(48000, 22050);
+        float[] hop = sine(48000, 1000, 24000);
+        float[] out = new float[resampler.getMaxOutput(hop.length)];
+
+        // 60 s of audio, after a warm-up for the JIT
+        for (int i = 0; i < 20; ++i) {
+            resampler.process(hop, 0, hop.length, out, 0);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < 120; ++i) {
+            resampler.process(hop, 0, hop.length, out, 0);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        assertTrue("60 s of audio took " + seconds + " s", seconds < 6);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveRate() {
+        new PolyphaseResampler(0, 22050);
+    }
+}
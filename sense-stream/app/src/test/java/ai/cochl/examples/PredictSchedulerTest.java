@@ -0,0 +1,101 @@
+package ai.cochl.examples;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class PredictSchedulerTest {
+    private static final long HOP_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    // Feeds one hop, predicts if due and reports the given prediction time
+    private static boolean hop(PredictScheduler scheduler, long predictMillis) {
+        scheduler.addHops(1);
+        if (!scheduler.take()) {
+            return false;
+        }
+        scheduler.recordPredict(TimeUnit.MILLISECONDS.toNanos(predictMillis));
+        return true;
+    }
+
+    @Test
+    public void fastDevice_predictsEveryHop() {
+        PredictScheduler scheduler = new PredictScheduler(HOP_NANOS, 0.5f, 4);
+        for (int i = 0; i < 20; ++i) {
+            assertTrue(hop(scheduler, 50));
+        }
+        assertEquals(1, scheduler.getStride());
+        assertEquals(20, scheduler.getSubmittedCount());
+        assertEquals(0, scheduler.getDeferredCount());
+        assertEquals(50f, scheduler.getMeanPredictMillis(), 0.01f);
+    }
+
+    @Test
+    public void slowDevice_predictsEveryNthHop() {
+        // 600 ms per prediction within 250 ms per hop takes a stride of 3
+        PredictScheduler scheduler = new PredictScheduler(HOP_NANOS, 0.5f, 4);
+        hop(scheduler, 600);
+        assertEquals(3, scheduler.getStride());
+
+        int predicted = 0;
+        for (int i = 0; i < 30; ++i) {
+            if (hop(scheduler, 600)) {
+                ++predicted;
+            }
+        }
+        assertEquals(10, predicted);
+        assertEquals(20, scheduler.getDeferredCount());
+    }
+
+    @Test
+    public void stride_isCappedAtMaximum() {
+        PredictScheduler scheduler = new PredictScheduler(HOP_NANOS, 0.5f, 4);
+        hop(scheduler, 5000);
+        assertEquals(4, scheduler.getStride());
+    }
+
+    @Test
+    public void recoversToFullRate_stepByStep() {
+        PredictScheduler scheduler = new PredictScheduler(HOP_NANOS, 0.5f, 4);
+        for (int i = 0; i < 8; ++i) {
+            scheduler.recordPredict(TimeUnit.MILLISECONDS.toNanos(900));
+        }
+        assertEquals(4, scheduler.getStride());
+
+        // Headroom returns: the stride steps down once enough fast predictions were seen
+        int previous = scheduler.getStride();
+        int hops = 0;
+        while (scheduler.getStride() > 1 && hops < 500) {
+            hop(scheduler, 50);
+            assertTrue(scheduler.getStride() >= previous - 1);
+            previous = scheduler.getStride();
+            ++hops;
+        }
+        assertEquals(1, scheduler.getStride());
+    }
+
+    @Test
+    public void singleFastPrediction_doesNotLowerStride() {
+        PredictScheduler scheduler = new PredictScheduler(HOP_NANOS, 0.5f, 4);
+        for (int i = 0; i < 8; ++i) {
+            scheduler.recordPredict(TimeUnit.MILLISECONDS.toNanos(400));
+        }
+        assertEquals(2, scheduler.getStride());
+        scheduler.recordPredict(TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(2, scheduler.getStride());
+    }
+
+    @Test
+    public void coalescedHops_countTowardsStride() {
+        PredictScheduler scheduler = new PredictScheduler(HOP_NANOS, 0.5f, 4);
+        scheduler.recordPredict(TimeUnit.MILLISECONDS.toNanos(600));
+        scheduler.addHops(3);
+        assertTrue(scheduler.take());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveBudget() {
+        new PredictScheduler(HOP_NANOS, 0, 4);
+    }
+}
@@ -0,0 +1,150 @@
+package ai.cochl.examples;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ResamplingSourceTest {
+    @Test
+    public void deliversFullHopsAtOutputRate() throws Exception {
+        SyntheticSource input = new SyntheticSource(48000, SyntheticSource.Waveform.SINE, 1000,
+                0.5f, 1, AudioSource.Pacing.MAX_SPEED);
+        ResamplingSource source = new ResamplingSource(input, 22050);
+        assertEquals(22050, source.getSampleRate());
+        assertEquals(48000, source.getSourceSampleRate());
+        assertTrue(source.isFloat());
+
+        source.start();
+        float[] hop = new float[11025];
+        assertEquals(11025, source.read(hop, 0, hop.length));
+        assertEquals(11025, source.read(hop, 0, hop.length));
+        assertEquals(-1, source.read(hop, 0, hop.length));
+    }
+
+    @Test
+    public void keepsFrequencyOfTone() throws Exception {
+        SyntheticSource input = new SyntheticSource(44100, SyntheticSource.Waveform.SINE, 1000,
+                0.5f, 1, AudioSource.Pacing.MAX_SPEED);
+        ResamplingSource source = new ResamplingSource(input, 22050);
+        source.start();
+
+        float[] samples = new float[22050];
+        int read = 0;
+        int n;
+        while (read < samples.length && (n = source.read(samples, read, 1000)) > 0) {
+            read += n;
+        }
+
+        int crossings = 0;
+        for (int i = 1000; i < read; ++i) {
+            if (samples[i - 1] < 0 && samples[i] >= 0) {
+                ++crossings;
+            }
+        }
+        // 1 kHz over the last (read - 1000) samples at 22050 Hz
+        assertEquals(1000.0 * (read - 1000) / 22050, crossings, 2);
+    }
+
+    @Test
+    public void emptyRead_returnsNothingYet() throws Exception {
+        AudioSource stalled = new DownmixSourceTest.ArraySource(44100, 1, new float[4410]) {
+            @Override
+            public int read(float[] buffer, int offset, int length) {
+                return 0;
+            }
+        };
+        ResamplingSource source = new ResamplingSource(stalled, 22050);
+        // 0 is not the end of the source
+        assertEquals(0, source.read(new float[100], 0, 100));
+    }
+
+    @Test
+    public void convertsPcm16Source() throws Exception {
+        AudioSource shortSource = new AudioSource() {
+            private int remaining = 4800;
+
+            @Override
+            public int getSampleRate() {
+                return 48000;
+            }
+
+            @Override
+            public boolean isFloat() {
+                return false;
+            }
+
+            @Override
+            public void start() {
+            }
+
+            @Override
+            public int read(float[] buffer, int offset, int length) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int read(short[] buffer, int offset, int length) {
+                if (remaining == 0) {
+                    return -1;
+                }
+                int count = Math.min(length, remaining);
+                java.util.Arrays.fill(buffer, offset, offset + count, (short) 8192);
+                remaining -= count;
+                return count;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        ResamplingSource source = new ResamplingSource(shortSource, 22050);
+        short[] out = new short[2000];
+        assertEquals(2000, source.read(out, 0, out.length));
+        // DC level of 0.25 once the filter has settled
+        assertEquals(8192, out[1999], 40);
+    }
+
+    @Test
+    public void keepsStereoChannelsApart() throws Exception {
+        // A 1 kHz tone on the left channel, silence on the right
+        float[] interleaved = new float[2 * 48000];
+        for (int i = 0; i < 48000; ++i) {
+            interleaved[2 * i] = (float) (0.5 * Math.sin(2 * Math.PI * 1000 * i / 48000));
+        }
+        ResamplingSource source = new ResamplingSource(
+                new DownmixSourceTest.ArraySource(48000, 2, interleaved), 22050);
+        assertEquals(2, source.getChannelCount());
+        source.start();
+
+        float[] out = new float[2 * 22050];
+        int read = 0;
+        int n;
+        while (read < out.length && (n = source.read(out, read, 999)) > 0) {
+            read += n;
+        }
+        assertEquals(out.length, read);
+
+        double left = 0;
+        double right = 0;
+        for (int i = 2000; i < read; i += 2) {
+            left += out[i] * out[i];
+            right += out[i + 1] * out[i + 1];
+        }
+        assertEquals(0.5 / Math.sqrt(2), Math.sqrt(left / ((read - 2000) / 2)), 0.01);
+        assertEquals(0, right, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsSingleResamplerForStereo() {
+        new ResamplingSource(new DownmixSourceTest.ArraySource(48000, 2, new float[2]),
+                new PolyphaseResampler(48000, 22050));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsResamplerForOtherRate() {
+        SyntheticSource input = new SyntheticSource(48000, SyntheticSource.Waveform.SILENCE, 0, 0,
+                1, AudioSource.Pacing.MAX_SPEED);
+        new ResamplingSource(input, new PolyphaseResampler(44100, 22050));
+    }
+}
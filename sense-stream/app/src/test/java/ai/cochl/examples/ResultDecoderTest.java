@@ -0,0 +1,103 @@
+package ai.cochl.examples;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ResultDecoderTest {
+    private static final String RESULT = "{"
+            + "\"abbreviations\":[\"Siren was detected\",\"Car_horn was detected\"],"
+            + "\"result\":{\"frame_result\":["
+            + "{\"tags\":[{\"name\":\"Siren\",\"probability\":0.93},"
+            + "{\"name\":\"Car_horn\",\"probability\":0.41}],\"start_time\":0.0,\"end_time\":1.0},"
+            + "{\"tags\":[{\"name\":\"Others\",\"probability\":0.0}],\"start_time\":0.5,\"end_time\":1.5}"
+            + "]}}";
+
+    @Test
+    public void decodesFramesTagsAndAbbreviations() throws Exception {
+        ResultDecoder decoder = new ResultDecoder();
+        decoder.decode(new JSONObject(RESULT));
+
+        assertEquals(2, decoder.getAbbreviationCount());
+        assertEquals("Car_horn was detected", decoder.getAbbreviation(1));
+
+        assertEquals(2, decoder.getFrameCount());
+        FrameResult first = decoder.getFrame(0);
+        assertEquals(0.0, first.getStartTime(), 0);
+        assertEquals(1.0, first.getEndTime(), 0);
+        assertEquals(2, first.getTagCount());
+        assertEquals("Siren", first.getTag(0).getName());
+        assertEquals(0.93f, first.getTag(0).getProbability(), 1e-6f);
+        assertSame(first.getTag(0), first.getTopTag());
+
+        assertEquals("0.5-1.5 s: Others 0%", decoder.formatFrame(1));
+    }
+
+    @Test
+    public void decodesFrameWithoutResultWrapper() throws Exception {
+        ResultDecoder decoder = new ResultDecoder();
+        decoder.decode(new JSONObject("{\"tags\":[{\"name\":\"Dog_bark\",\"probability\":0.8}],"
+                + "\"start_time\":2.0,\"end_time\":3.0}"));
+
+        assertEquals(0, decoder.getAbbreviationCount());
+        assertEquals(1, decoder.getFrameCount());
+        assertEquals("2.0-3.0 s: Dog_bark 80%", decoder.formatFrame(0));
+    }
+
+    @Test
+    public void reusesPooledFramesAndTags() throws Exception {
+        ResultDecoder decoder = new ResultDecoder();
+        JSONObject json = new JSONObject(RESULT);
+        decoder.decode(json);
+        FrameResult frame = decoder.getFrame(0);
+        TagScore tag = frame.getTag(1);
+
+        decoder.decode(json);
+        assertSame(frame, decoder.getFrame(0));
+        assertSame(tag, decoder.getFrame(0).getTag(1));
+        assertEquals(2, decoder.getFrame(0).getTagCount());
+    }
+
+    @Test
+    public void smallerResult_hidesStaleEntries() throws Exception {
+        ResultDecoder decoder = new ResultDecoder();
+        decoder.decode(new JSONObject(RESULT));
+        decoder.decode(new JSONObject("{\"result\":{\"frame_result\":[{\"tags\":[]}]}}"));
+
+        assertEquals(0, decoder.getAbbreviationCount());
+        assertEquals(1, decoder.getFrameCount());
+        assertEquals(0, decoder.getFrame(0).getTagCount());
+        assertNull(decoder.getFrame(0).getTopTag());
+    }
+
+    @Test
+    public void malformedResult_decodesAsEmpty() throws Exception {
+        ResultDecoder decoder = new ResultDecoder();
+        decoder.decode(new JSONObject("{\"abbreviations\":\"none\",\"result\":{\"frame_result\":[1]}}"));
+
+        assertEquals(0, decoder.getAbbreviationCount());
+        assertEquals(0, decoder.getFrameCount());
+    }
+
+    @Test
+    public void prettyPrint_leavesResultUntouched() throws Exception {
+        JSONObject json = new JSONObject(RESULT);
+        String printed = ResultDecoder.prettyPrint(json);
+
+        assertFalse(printed.contains("abbreviations"));
+        assertTrue(printed.contains("\"frame_result\""));
+        assertTrue(json.has("abbreviations"));
+
+        JSONObject flat = new JSONObject("{\"abbreviations\":[],\"frame_result\":[]}");
+        assertFalse(ResultDecoder.prettyPrint(flat).contains("abbreviations"));
+        assertTrue(flat.has("abbreviations"));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getFrame_rejectsIndexPastCount() throws Exception {
+        ResultDecoder decoder = new ResultDecoder();
+        decoder.decode(new JSONObject("{}"));
+        decoder.getFrame(0);
+    }
+}
@@ -0,0 +1,119 @@
+package ai.cochl.examples;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SlidingAudioWindowTest {
+    private static float[] floatHop(int hopSize, int first) {
+        float[] hop = new float[hopSize];
+        for (int i = 0; i < hopSize; ++i) {
+            hop[i] = first + i;
+        }
+        return hop;
+    }
+
+    private static short[] shortHop(int hopSize, int first) {
+        short[] hop = new short[hopSize];
+        for (int i = 0; i < hopSize; ++i) {
+            hop[i] = (short) (first + i);
+        }
+        return hop;
+    }
+
+    // Reference implementation: the copy-shift used by MainActivity before the ring buffer
+    private static void copyShift(float[] window, float[] hop) {
+        System.arraycopy(window, hop.length, window, 0, window.length - hop.length);
+        System.arraycopy(hop, 0, window, window.length - hop.length, hop.length);
+    }
+
+    @Test
+    public void firstHop_isZeroPadded() {
+        SlidingAudioWindow.OfFloat window = new SlidingAudioWindow.OfFloat(4, 2);
+        window.append(floatHop(4, 1));
+
+        assertFalse(window.isFull());
+        assertEquals(4, window.size());
+        assertArrayEquals(new float[]{0, 0, 0, 0, 1, 2, 3, 4}, window.view(), 0f);
+    }
+
+    @Test
+    public void matchesCopyShift_overManyHops() {
+        int hopSize = 5;
+        SlidingAudioWindow.OfFloat window = new SlidingAudioWindow.OfFloat(hopSize, 2);
+        float[] expected = new float[hopSize * 2];
+
+        for (int n = 0; n < 50; ++n) {
+            float[] hop = floatHop(hopSize, n * hopSize);
+            window.append(hop);
+            copyShift(expected, hop);
+            assertArrayEquals("hop " + n, expected, window.view(), 0f);
+        }
+        assertTrue(window.isFull());
+    }
+
+    @Test
+    public void matchesCopyShift_withThreeHopWindow() {
+        int hopSize = 3;
+        SlidingAudioWindow.OfFloat window = new SlidingAudioWindow.OfFloat(hopSize, 3);
+        float[] expected = new float[hopSize * 3];
+
+        for (int n = 0; n < 20; ++n) {
+            float[] hop = floatHop(hopSize, n * 100);
+            window.append(hop);
+            copyShift(expected, hop);
+            assertArrayEquals("hop " + n, expected, window.view(), 0f);
+        }
+    }
+
+    @Test
+    public void shortWindow_keepsLatestSamples() {
+        SlidingAudioWindow.OfShort window = new SlidingAudioWindow.OfShort(3, 2);
+        window.append(shortHop(3, 1));
+        window.append(shortHop(3, 4));
+        assertArrayEquals(new short[]{1, 2, 3, 4, 5, 6}, window.view());
+
+        window.append(shortHop(3, 7));
+        assertArrayEquals(new short[]{4, 5, 6, 7, 8, 9}, window.view());
+    }
+
+    @Test
+    public void partialAndOversizedAppends_wrapAround() {
+        SlidingAudioWindow.OfShort window = new SlidingAudioWindow.OfShort(2, 2);
+        window.append(shortHop(3, 1), 0, 3);
+        window.append(shortHop(2, 4), 0, 2);
+        assertArrayEquals(new short[]{2, 3, 4, 5}, window.view());
+
+        window.append(shortHop(6, 10));
+        assertArrayEquals(new short[]{12, 13, 14, 15}, window.view());
+    }
+
+    @Test
+    public void view_isReusedBetweenAppends() {
+        SlidingAudioWindow.OfFloat window = new SlidingAudioWindow.OfFloat(2, 2);
+        window.append(floatHop(2, 1));
+        window.append(floatHop(2, 3));
+        window.append(floatHop(2, 5));
+
+        float[] first = window.view();
+        assertSame(first, window.view());
+        assertArrayEquals(new float[]{3, 4, 5, 6}, first, 0f);
+    }
+
+    @Test
+    public void reset_clearsSamples() {
+        SlidingAudioWindow.OfFloat window = new SlidingAudioWindow.OfFloat(2, 2);
+        window.append(floatHop(2, 1));
+        window.append(floatHop(2, 3));
+        window.reset();
+
+        assertEquals(0, window.size());
+        window.append(floatHop(2, 7));
+        assertArrayEquals(new float[]{0, 0, 7, 8}, window.view(), 0f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyHop() {
+        new SlidingAudioWindow.OfFloat(0, 2);
+    }
+}
@@ -0,0 +1,67 @@
+package ai.cochl.examples;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SpectralFluxTest {
+    private static float[] sine(double frequency, int length) {
+        float[] samples = new float[length];
+        for (int i = 0; i < length; ++i) {
+            samples[i] = (float) (0.5 * Math.sin(2 * Math.PI * frequency * i / 22050));
+        }
+        return samples;
+    }
+
+    @Test
+    public void steadyTone_hasLowFlux() {
+        SpectralFlux flux = new SpectralFlux(512);
+        float[] tone = sine(1000, 11025);
+        flux.process(tone, 0, 1, tone.length);
+        assertTrue(flux.process(tone, 0, 1, tone.length) < 0.1f);
+    }
+
+    @Test
+    public void toneAfterSilence_hasFullFlux() {
+        SpectralFlux flux = new SpectralFlux(512);
+        assertEquals(0f, flux.process(new float[2048], 0, 1, 2048), 0f);
+        assertEquals(1f, flux.process(sine(1000, 512), 0, 1, 512), 1e-6f);
+    }
+
+    @Test
+    public void newTone_hasHighFlux() {
+        SpectralFlux flux = new SpectralFlux(512);
+        flux.process(sine(500, 4096), 0, 1, 4096);
+        assertTrue(flux.process(sine(3000, 4096), 0, 1, 4096) > 0.5f);
+    }
+
+    @Test
+    public void partialFrames_carryOver() {
+        SpectralFlux flux = new SpectralFlux(512);
+        assertEquals(0f, flux.process(new float[300], 0, 1, 300), 0f);
+        // Completes the silent first frame and a second frame, which is mostly tone
+        float[] tone = sine(1000, 724);
+        float[] samples = new float[724];
+        System.arraycopy(tone, 0, samples, 212, 512);
+        assertTrue(flux.process(samples, 0, 1, samples.length) > 0.9f);
+    }
+
+    @Test
+    public void stride_picksOneChannel() {
+        float[] tone = sine(1000, 1024);
+        float[] stereo = new float[2 * tone.length];
+        for (int i = 0; i < tone.length; ++i) {
+            stereo[2 * i] = tone[i];
+            stereo[2 * i + 1] = (i & 1) == 0 ? 1f : -1f;
+        }
+        SpectralFlux mono = new SpectralFlux(512);
+        SpectralFlux left = new SpectralFlux(512);
+        assertEquals(mono.process(tone, 0, 1, tone.length),
+                left.process(stereo, 0, 2, tone.length), 0f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsFrameSizeOtherThanPowerOfTwo() {
+        new SpectralFlux(500);
+    }
+}
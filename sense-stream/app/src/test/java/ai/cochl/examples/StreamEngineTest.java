@@ -0,0 +1,279 @@
+package ai.cochl.examples;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class StreamEngineTest {
+    private final List<String> lines = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch ended = new CountDownLatch(1);
+    private final AtomicInteger predictions = new AtomicInteger();
+    private final AtomicInteger opened = new AtomicInteger();
+
+    private volatile boolean frameResults = false;
+    private final AppExecutors executors = new AppExecutors(1, priority -> {
+    }, Runnable::run);
+
+    private final InferenceWorker.Predictor predictor = new InferenceWorker.Predictor() {
+        @Override
+        public JSONObject predict(float[] samples, int sampleRate) {
+            int n = predictions.incrementAndGet();
+            JSONObject json = new JSONObject();
+            json.put("abbreviations", Collections.singletonList("Siren " + n));
+            if (frameResults) {
+                JSONObject tag = new JSONObject().put("name", "Siren").put("probability", 0.9);
+                JSONObject frame = new JSONObject()
+                        .put("start_time", n * 0.5)
+                        .put("end_time", n * 0.5 + 1)
+                        .put("tags", Collections.singletonList(tag));
+                json.put("result", new JSONObject().put("frame_result", Collections.singletonList(frame)));
+            }
+            return json;
+        }
+
+        @Override
+        public JSONObject predict(short[] samples, int sampleRate) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    private StreamEngine newEngine(StreamEngine.SourceFactory sourceFactory) {
+        StreamEngine.Config config = new StreamEngine.Config();
+        config.energyGate = false;
+        config.adaptiveScheduling = false;
+        config.aggregateEvents = frameResults;
+        config.overloadPolicy = HopQueue.OverloadPolicy.BLOCK;
+        // Frames are drained right away, on the inference thread
+        StreamEngine engine = new StreamEngine(config, predictor, () -> {
+            opened.incrementAndGet();
+            return sourceFactory.open();
+        }, Runnable::run, new LatencyMetrics(), executors);
+        engine.setListener(new StreamEngine.Listener() {
+            @Override
+            public void onLines(List<String> batch) {
+                lines.addAll(batch);
+            }
+
+            @Override
+            public void onEnd() {
+                ended.countDown();
+            }
+
+            @Override
+            public void onError(String reason) {
+                errors.add(reason);
+            }
+        });
+        return engine;
+    }
+
+    private static AudioSource liveSource() {
+        return new SyntheticSource(22050, SyntheticSource.Waveform.SINE, 440, 0.5f, 60,
+                AudioSource.Pacing.REAL_TIME);
+    }
+
+    private void awaitPredictions(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (lines.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void replaysSourceToEnd_andKeepsHistory() throws Exception {
+        StreamEngine engine = newEngine(() -> new SyntheticSource(22050,
+                SyntheticSource.Waveform.SINE, 440, 0.5f, 2, AudioSource.Pacing.MAX_SPEED));
+        engine.start();
+        assertEquals(StreamEngine.State.RUNNING, engine.getState());
+        assertTrue(ended.await(10, TimeUnit.SECONDS));
+        // 4 hops, the first one only fills the window
+        awaitPredictions(3);
+        engine.stop();
+
+        assertTrue(errors.toString(), errors.isEmpty());
+        assertEquals(StreamEngine.State.STOPPED, engine.getState());
+        List<String> history = new ArrayList<>();
+        engine.copyHistory(history);
+        assertEquals(lines, history);
+        assertEquals("Siren 1", history.get(0));
+        assertEquals(3, history.size());
+
+        engine.clearHistory();
+        history.clear();
+        engine.copyHistory(history);
+        assertTrue(history.isEmpty());
+    }
+
+    // Waits for the interrupted jobs to return
+    private void awaitIdle() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while ((executors.getCapture().getActiveCount() > 0
+                || executors.getInference().getActiveCount() > 0)
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void stopWhileSourceOpens_returnsRightAway() throws Exception {
+        CountDownLatch opening = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        StreamEngine engine = newEngine(() -> {
+            opening.countDown();
+            // Like an AudioRecord that takes its time to start and ignores the interrupt
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    if (release.await(10, TimeUnit.SECONDS)) {
+                        break;
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return liveSource();
+        });
+        engine.start();
+        assertTrue(opening.await(5, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        engine.stop();
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        assertEquals(StreamEngine.State.STOPPED, engine.getState());
+
+        release.countDown();
+        awaitIdle();
+        assertEquals(0, executors.getCapture().getActiveCount());
+        assertEquals(0, predictions.get());
+        assertTrue(errors.toString(), errors.isEmpty());
+    }
+
+    @Test
+    public void pauseAndResume_reopenSource() throws Exception {
+        StreamEngine engine = newEngine(StreamEngineTest::liveSource);
+        engine.start();
+        awaitPredictions(1);
+
+        engine.pause();
+        assertEquals(StreamEngine.State.PAUSED, engine.getState());
+        // A prediction that was under way when pause returned still completes
+        awaitIdle();
+        int paused = predictions.get();
+        Thread.sleep(1200);
+        assertEquals(paused, predictions.get());
+
+        engine.start();
+        assertEquals(StreamEngine.State.RUNNING, engine.getState());
+        awaitPredictions(lines.size() + 1);
+        engine.stop();
+
+        assertTrue(errors.toString(), errors.isEmpty());
+        assertTrue(predictions.get() > paused);
+        assertEquals(2, opened.get());
+    }
+
+    @Test
+    public void aggregatesFramesIntoOneEvent() throws Exception {
+        frameResults = true;
+        StreamEngine engine = newEngine(() -> new SyntheticSource(22050,
+                SyntheticSource.Waveform.SINE, 440, 0.5f, 4, AudioSource.Pacing.MAX_SPEED));
+        engine.start();
+        assertTrue(ended.await(10, TimeUnit.SECONDS));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (predictions.get() < 7 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        // Ends the siren, which is still going on
+        engine.stop();
+        awaitIdle();
+
+        assertTrue(errors.toString(), errors.isEmpty());
+        assertEquals(7, predictions.get());
+        // The predictor's clock is a hop ahead; the event is timed by the 4 s of the stream
+        assertEquals(Arrays.asList("0.0 s: Siren started, 90%",
+                "0.0-4.0 s: Siren, peak 90%, mean 90%"), lines);
+    }
+
+    @Test
+    public void journalsEveryFrame() throws Exception {
+        frameResults = true;
+        File directory = Files.createTempDirectory("engine-journal").toFile();
+        ResultJournal journal = new ResultJournal(directory, new ResultJournal.Config(), Runnable::run,
+                (task, delayMillis) -> {
+                });
+        StreamEngine engine = newEngine(() -> new SyntheticSource(22050,
+                SyntheticSource.Waveform.SINE, 440, 0.5f, 2, AudioSource.Pacing.MAX_SPEED));
+        engine.setJournal(journal);
+        engine.start();
+        assertTrue(ended.await(10, TimeUnit.SECONDS));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (predictions.get() < 3 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        engine.stop();
+        awaitIdle();
+
+        StringWriter csv = new StringWriter();
+        journal.export(csv, ResultJournal.Format.CSV);
+        journal.close();
+        for (File file : Objects.requireNonNull(directory.listFiles())) {
+            assertTrue(file.delete());
+        }
+        assertTrue(directory.delete());
+
+        String[] rows = csv.toString().split("\n");
+        assertEquals(4, rows.length);
+        assertTrue(rows[1], rows[1].endsWith(",mic,0.0,1.0,Siren,0.9"));
+        assertTrue(rows[3], rows[3].endsWith(",mic,1.0,2.0,Siren,0.9"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void stoppedEngine_cannotRestart() {
+        StreamEngine engine = newEngine(StreamEngineTest::liveSource);
+        engine.stop();
+        engine.start();
+    }
+
+    @Test
+    public void sourceThatFailsToOpen_isReported() throws Exception {
+        StreamEngine engine = newEngine(() -> {
+            throw new IOException("no microphone");
+        });
+        engine.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (errors.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        engine.stop();
+
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).contains("no microphone"));
+    }
+
+    @Test
+    public void report_describesConfig() {
+        StreamEngine.Config config = new StreamEngine.Config();
+        StreamEngine engine = new StreamEngine(config, predictor, StreamEngineTest::liveSource,
+                Runnable::run, new LatencyMetrics(), executors);
+        assertTrue(engine.report().startsWith("22050 Hz, 1 channels (DOWNMIX), hop 0.500 s, COALESCE"));
+        assertEquals(11025, config.getHopSize());
+    }
+}
@@ -0,0 +1,292 @@
+package ai.cochl.examples;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+// Runs the stream pipeline end to end on the JVM, fed by a file replay instead of the microphone
+public class StreamPipelineTest {
+    private static final int HOP_SIZE = 11025;  // 0.5 s at 22050 Hz
+
+    private final List<String> lines = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+    private final LatencyMetrics metrics = new LatencyMetrics();
+    private Thread captureThread;
+    private Thread inferenceThread;
+    private EventAggregator[] aggregators = null;
+
+    // Counts predictions and reports one abbreviation per window
+    private static class CountingPredictor implements InferenceWorker.Predictor {
+        final AtomicInteger predictions = new AtomicInteger();
+        final CountDownLatch done;
+        volatile int lastWindowSize;
+
+        CountingPredictor(int expected) {
+            done = new CountDownLatch(expected);
+        }
+
+        @Override
+        public JSONObject predict(float[] samples, int sampleRate) {
+            lastWindowSize = samples.length;
+            return result();
+        }
+
+        @Override
+        public JSONObject predict(short[] samples, int sampleRate) {
+            lastWindowSize = samples.length;
+            return result();
+        }
+
+        private JSONObject result() {
+            JSONObject json = new JSONObject();
+            json.put("abbreviations", Collections.singletonList("Glass_break " + predictions.incrementAndGet()));
+            done.countDown();
+            return json;
+        }
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        for (Thread thread : new Thread[]{captureThread, inferenceThread}) {
+            if (thread != null) {
+                thread.interrupt();
+                thread.join(5000);
+            }
+        }
+    }
+
+    private CountDownLatch start(AudioSource source, HopQueue hopQueue, InferenceWorker.Predictor... predictors) {
+        return start(source, hopQueue, null, predictors);
+    }
+
+    private CountDownLatch start(AudioSource source, HopQueue hopQueue, EnergyGate gate,
+                                 InferenceWorker.Predictor... predictors) {
+        // Frames are drained right away, on the inference thread
+        EventSink sink = new EventSink(Runnable::run, 64, lines::addAll, metrics);
+        InferenceWorker worker = new InferenceWorker(hopQueue, predictors, source.getSampleRate(),
+                true, false, sink, errors::add, metrics);
+        worker.setGate(gate);
+        if (aggregators != null) {
+            worker.setAggregators(aggregators);
+        }
+        CountDownLatch ended = new CountDownLatch(1);
+        CaptureLoop captureLoop = new CaptureLoop(source, HOP_SIZE * predictors.length, 6, hopQueue,
+                new CaptureLoop.Listener() {
+                    @Override
+                    public void onEnd() {
+                        ended.countDown();
+                    }
+
+                    @Override
+                    public void onError(String reason) {
+                        errors.add(reason);
+                    }
+                });
+
+        inferenceThread = new Thread(worker, "test-inference");
+        captureThread = new Thread(captureLoop, "test-capture");
+        inferenceThread.setDaemon(true);
+        captureThread.setDaemon(true);
+        inferenceThread.start();
+        captureThread.start();
+        return ended;
+    }
+
+    @Test
+    public void replaysGlassBreak_throughEveryStage() throws Exception {
+        WavFileSource source = new WavFileSource(AudioSourceTest.GLASS_BREAK,
+                AudioSource.Pacing.MAX_SPEED, false);
+        long frames = source.getHeader().getFrameCount();
+        int hops = (int) ((frames + HOP_SIZE - 1) / HOP_SIZE);
+        // The first hop only fills the window
+        CountingPredictor predictor = new CountingPredictor(hops - 1);
+
+        CountDownLatch ended = start(source, new HopQueue(4, HopQueue.OverloadPolicy.BLOCK), predictor);
+        assertTrue(ended.await(10, TimeUnit.SECONDS));
+        assertTrue(predictor.done.await(10, TimeUnit.SECONDS));
+        // The last prediction is still being rendered when the predictor returns
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((lines.size() < hops - 1
+                || metrics.get(LatencyMetrics.Stage.END_TO_END).getCount() < hops - 1)
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(errors.toString(), errors.isEmpty());
+        assertEquals(hops - 1, predictor.predictions.get());
+        assertEquals(2 * HOP_SIZE, predictor.lastWindowSize);
+        assertEquals(hops - 1, lines.size());
+        assertEquals("Glass_break 1", lines.get(0));
+        assertEquals(hops - 1, metrics.get(LatencyMetrics.Stage.PREDICT).getCount());
+        assertEquals(hops - 1, metrics.get(LatencyMetrics.Stage.END_TO_END).getCount());
+    }
+
+    @Test
+    public void slowPredictor_coalescesLiveHops() throws Exception {
+        // 3 s of audio captured in real time, predicted in 1.2 s per window: the worker falls
+        // behind and must catch up by skipping windows rather than queueing without bound.
+        SyntheticSource source = new SyntheticSource(22050, SyntheticSource.Waveform.SINE, 440,
+                0.5f, 3, AudioSource.Pacing.REAL_TIME);
+        CountingPredictor slow = new CountingPredictor(1) {
+            @Override
+            public JSONObject predict(float[] samples, int sampleRate) {
+                try {
+                    Thread.sleep(1200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.predict(samples, sampleRate);
+            }
+        };
+        HopQueue hopQueue = new HopQueue(4, HopQueue.OverloadPolicy.COALESCE);
+
+        CountDownLatch ended = start(source, hopQueue, slow);
+        assertTrue(ended.await(10, TimeUnit.SECONDS));
+        Thread.sleep(2000);
+
+        assertTrue(errors.toString(), errors.isEmpty());
+        assertTrue(hopQueue.getCoalescedCount() > 0);
+        assertTrue(slow.predictions.get() < 5);
+    }
+
+    @Test
+    public void perChannel_predictsEveryChannel() throws Exception {
+        // 2 s of stereo: 4 hops per channel, 3 full windows
+        float[] interleaved = new float[2 * 4 * HOP_SIZE];
+        for (int i = 0; i < interleaved.length; i += 2) {
+            interleaved[i] = 0.5f;
+        }
+        CountingPredictor left = new CountingPredictor(3);
+        CountingPredictor right = new CountingPredictor(3) {
+            @Override
+            public JSONObject predict(float[] samples, int sampleRate) {
+                // The right channel is silent, the left one is not
+                assertEquals(0f, samples[samples.length - 1], 0f);
+                return super.predict(samples, sampleRate);
+            }
+        };
+
+        CountDownLatch ended = start(new DownmixSourceTest.ArraySource(22050, 2, interleaved),
+                new HopQueue(4, HopQueue.OverloadPolicy.BLOCK), left, right);
+        assertTrue(ended.await(10, TimeUnit.SECONDS));
+        assertTrue(left.done.await(10, TimeUnit.SECONDS));
+        assertTrue(right.done.await(10, TimeUnit.SECONDS));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (lines.size() < 6 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(errors.toString(), errors.isEmpty());
+        assertEquals(2 * HOP_SIZE, left.lastWindowSize);
+        assertEquals(2 * HOP_SIZE, right.lastWindowSize);
+        assertEquals(6, lines.size());
+        assertEquals("[ch 0] Glass_break 1", lines.get(0));
+        assertEquals("[ch 1] Glass_break 1", lines.get(1));
+    }
+
+    @Test
+    public void stalledSource_endsCaptureInsteadOfSpinning() throws Exception {
+        // Like an AudioRecord that never delivers, the source returns no samples at all
+        AudioSource stalled = new DownmixSourceTest.ArraySource(22050, 1, new float[HOP_SIZE]) {
+            @Override
+            public int read(float[] buffer, int offset, int length) {
+                return 0;
+            }
+        };
+        CountingPredictor predictor = new CountingPredictor(1);
+
+        CountDownLatch ended = start(stalled, new HopQueue(4, HopQueue.OverloadPolicy.BLOCK), predictor);
+        assertTrue(ended.await(10, TimeUnit.SECONDS));
+        captureThread.join(5000);
+
+        assertFalse(captureThread.isAlive());
+        assertTrue(errors.toString(), errors.isEmpty());
+        assertEquals(0, predictor.predictions.get());
+    }
+
+    @Test
+    public void energyGate_skipsSilence() throws Exception {
+        // 3 s of silence, then 1 s of noise: 7 full windows, of which the last 2 hold noise
+        float[] samples = new float[8 * HOP_SIZE];
+        Random random = new Random(0);
+        for (int i = 6 * HOP_SIZE; i < samples.length; ++i) {
+            samples[i] = random.nextFloat() - 0.5f;
+        }
+        EnergyGate gate = new EnergyGate(6, -60, 0, 0, false);
+        CountingPredictor predictor = new CountingPredictor(2);
+
+        CountDownLatch ended = start(new DownmixSourceTest.ArraySource(22050, 1, samples),
+                new HopQueue(8, HopQueue.OverloadPolicy.BLOCK), gate, predictor);
+        assertTrue(ended.await(10, TimeUnit.SECONDS));
+        assertTrue(predictor.done.await(10, TimeUnit.SECONDS));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (gate.getProcessedCount() + gate.getSkippedCount() < 7 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(errors.toString(), errors.isEmpty());
+        assertEquals(2, predictor.predictions.get());
+        assertEquals(2, gate.getProcessedCount());
+        assertEquals(5, gate.getSkippedCount());
+    }
+
+    @Test
+    public void gatedSilence_endsEventBeforeStop() throws Exception {
+        // 2 s of silence, 1 s of noise, then 3 s of silence: the siren is heard in the 2
+        // windows that end with noise, from 1.5 to 2.5 s and from 2.0 to 3.0 s
+        float[] samples = new float[12 * HOP_SIZE];
+        Random random = new Random(0);
+        for (int i = 4 * HOP_SIZE; i < 6 * HOP_SIZE; ++i) {
+            samples[i] = random.nextFloat() - 0.5f;
+        }
+        EnergyGate gate = new EnergyGate(6, -60, 0, 0, false);
+        AtomicInteger predictions = new AtomicInteger();
+        InferenceWorker.Predictor predictor = new InferenceWorker.Predictor() {
+            @Override
+            public JSONObject predict(float[] window, int sampleRate) {
+                // The SDK's clock only counts the predicted windows
+                int n = predictions.incrementAndGet();
+                JSONObject tag = new JSONObject().put("name", "Siren").put("probability", 0.9);
+                JSONObject frame = new JSONObject()
+                        .put("start_time", (n - 1) * 0.5)
+                        .put("end_time", (n - 1) * 0.5 + 1)
+                        .put("tags", Collections.singletonList(tag));
+                return new JSONObject().put("result",
+                        new JSONObject().put("frame_result", Collections.singletonList(frame)));
+            }
+
+            @Override
+            public JSONObject predict(short[] window, int sampleRate) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        aggregators = new EventAggregator[]{new EventAggregator(new EventAggregator.Config())};
+
+        CountDownLatch ended = start(new DownmixSourceTest.ArraySource(22050, 1, samples),
+                new HopQueue(8, HopQueue.OverloadPolicy.BLOCK), gate, predictor);
+        assertTrue(ended.await(10, TimeUnit.SECONDS));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (lines.size() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // The worker is still running, so the offset came from the gated windows. The times are
+        // those of the stream, not of the SDK, which would say 0.0-1.5 s.
+        assertTrue(inferenceThread.isAlive());
+        assertTrue(errors.toString(), errors.isEmpty());
+        assertEquals(2, predictions.get());
+        assertEquals(Arrays.asList("1.5 s: Siren started, 90%",
+                "1.5-3.0 s: Siren, peak 90%, mean 90%"), lines);
+    }
+}
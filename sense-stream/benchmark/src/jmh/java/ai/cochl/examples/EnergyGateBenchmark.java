@@ -0,0 +1,55 @@
+package ai.cochl.examples;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gates one 0.5 s hop at 22050 Hz. The gate runs on every hop, so its cost should stay a small
+ * fraction of a prediction, which is what it saves on quiet hops.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EnergyGateBenchmark {
+    private static final int HOP_SIZE = 11025;
+
+    @Param({"false", "true"})
+    public boolean spectralFlux;
+
+    private EnergyGate gate;
+    private float[] floatHop;
+    private short[] shortHop;
+
+    @Setup
+    public void setUp() {
+        gate = new EnergyGate(6, -60, 2, 10, spectralFlux);
+        Random random = new Random(0);
+        floatHop = new float[HOP_SIZE];
+        shortHop = new short[HOP_SIZE];
+        for (int i = 0; i < HOP_SIZE; ++i) {
+            floatHop[i] = (random.nextFloat() * 2 - 1) * 0.01f;
+            shortHop[i] = (short) (floatHop[i] * 32767);
+        }
+    }
+
+    @Benchmark
+    public boolean gateFloat() {
+        gate.analyze(floatHop, HOP_SIZE, 1);
+        return gate.decide();
+    }
+
+    @Benchmark
+    public boolean gatePcm16() {
+        gate.analyze(shortHop, HOP_SIZE, 1);
+        return gate.decide();
+    }
+}
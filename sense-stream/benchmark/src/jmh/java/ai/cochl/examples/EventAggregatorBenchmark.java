@@ -0,0 +1,71 @@
+package ai.cochl.examples;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feeds decoded frames to the event aggregator. The frames cycle through a fixed set, in which
+ * tags come and go, so events start and end all the time; gc.alloc.rate.norm should stay at 0.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EventAggregatorBenchmark {
+    private static final String[] TAGS = {"Siren", "Dog_bark", "Glass_break", "Baby_cry",
+            "Knock", "Scream", "Gunshot", "Others"};
+    private static final int FRAMES = 64;
+
+    @Param({"3", "8"})
+    public int tagsPerFrame;
+
+    private EventAggregator aggregator;
+    private FrameResult[] frames;
+    private int next = 0;
+    private Blackhole blackhole;
+    private final EventAggregator.Listener listener = new EventAggregator.Listener() {
+        @Override
+        public void onOnset(EventAggregator.TagEvent event) {
+            blackhole.consume(event.getPeakProbability());
+        }
+
+        @Override
+        public void onOffset(EventAggregator.TagEvent event) {
+            blackhole.consume(event.getMeanProbability());
+        }
+    };
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        aggregator = new EventAggregator(new EventAggregator.Config());
+        Random random = new Random(0);
+        frames = new FrameResult[FRAMES];
+        for (int i = 0; i < FRAMES; ++i) {
+            frames[i] = new FrameResult();
+            frames[i].startTime = i * 0.5;
+            frames[i].endTime = i * 0.5 + 1;
+            for (int t = 0; t < tagsPerFrame; ++t) {
+                TagScore tag = frames[i].addTag();
+                tag.name = TAGS[(i + t) % TAGS.length];
+                tag.probability = random.nextFloat();
+            }
+        }
+    }
+
+    @Benchmark
+    public int update() {
+        aggregator.update(frames[next], listener);
+        next = (next + 1) % FRAMES;
+        return aggregator.getActiveCount();
+    }
+}
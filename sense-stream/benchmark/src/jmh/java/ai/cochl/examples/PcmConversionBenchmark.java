@@ -0,0 +1,101 @@
+package ai.cochl.examples;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converts one hop between 16-bit PCM and floats, and decodes one hop of a PCM16 WAV file as
+ * done by the file replay.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PcmConversionBenchmark {
+    // 0.25, 0.5 and 1 s at 22050 Hz
+    @Param({"5512", "11025", "22050"})
+    public int hopSize;
+
+    private short[] shorts;
+    private float[] floats;
+    private File wavFile;
+    private WavHeader wavHeader;
+    private ByteBuffer wavData;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(0);
+        shorts = new short[hopSize];
+        floats = new float[hopSize];
+        for (int i = 0; i < hopSize; ++i) {
+            shorts[i] = (short) random.nextInt();
+            floats[i] = random.nextFloat() * 2 - 1;
+        }
+
+        wavFile = File.createTempFile("pcm16", ".wav");
+        writeMonoPcm16(wavFile, shorts, 22050);
+        wavHeader = WavHeader.read(wavFile);
+        wavData = ByteBuffer.allocate(hopSize * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (short sample : shorts) {
+            wavData.putShort(sample);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        //noinspection ResultOfMethodCallIgnored
+        wavFile.delete();
+    }
+
+    @Benchmark
+    public void pcm16ToFloat(Blackhole bh) {
+        PcmConversion.toFloat(shorts, 0, floats, 0, hopSize);
+        bh.consume(floats);
+    }
+
+    @Benchmark
+    public void floatToPcm16(Blackhole bh) {
+        PcmConversion.toPcm16(floats, 0, shorts, 0, hopSize);
+        bh.consume(shorts);
+    }
+
+    // Sample by sample from a little-endian buffer, as MappedWavReader decodes mapped files
+    @Benchmark
+    public void decodeWavPcm16(Blackhole bh) {
+        wavData.rewind();
+        MappedWavReader.decodeMono(wavData, wavHeader, floats, hopSize);
+        bh.consume(floats);
+    }
+
+    private static void writeMonoPcm16(File file, short[] samples, int sampleRate) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[]{'R', 'I', 'F', 'F'}).putInt(36 + samples.length * 2)
+                .put(new byte[]{'W', 'A', 'V', 'E', 'f', 'm', 't', ' '}).putInt(16)
+                .putShort((short) 1).putShort((short) 1).putInt(sampleRate).putInt(sampleRate * 2)
+                .putShort((short) 2).putShort((short) 16)
+                .put(new byte[]{'d', 'a', 't', 'a'}).putInt(samples.length * 2);
+        ByteBuffer data = ByteBuffer.allocate(samples.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (short sample : samples) {
+            data.putShort(sample);
+        }
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.write(header.array());
+            out.write(data.array());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package ai.cochl.examples;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resamples 0.5 s of native-rate capture to the model rate of 22050 Hz. One operation per second
+ * of throughput is two hops; anything above 2 ops/s keeps up with a live microphone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ResamplerBenchmark {
+    @Param({"44100", "48000"})
+    public int inputRate;
+
+    @Param({"16", "32"})
+    public int tapsPerPhase;
+
+    private PolyphaseResampler resampler;
+    private float[] floatHop;
+    private short[] shortHop;
+    private float[] out;
+
+    @Setup
+    public void setUp() {
+        resampler = new PolyphaseResampler(inputRate, 22050, tapsPerPhase);
+        int hopSize = inputRate / 2;
+        Random random = new Random(0);
+        floatHop = new float[hopSize];
+        shortHop = new short[hopSize];
+        for (int i = 0; i < hopSize; ++i) {
+            floatHop[i] = random.nextFloat() * 2 - 1;
+            shortHop[i] = (short) random.nextInt();
+        }
+        out = new float[resampler.getMaxOutput(hopSize) + 1];
+    }
+
+    @Benchmark
+    public int resampleFloat(Blackhole bh) {
+        bh.consume(out);
+        return resampler.process(floatHop, 0, floatHop.length, out, 0);
+    }
+
+    @Benchmark
+    public int resamplePcm16(Blackhole bh) {
+        bh.consume(out);
+        return resampler.process(shortHop, 0, shortHop.length, out, 0);
+    }
+}
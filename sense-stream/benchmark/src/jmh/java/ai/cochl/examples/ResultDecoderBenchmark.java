@@ -0,0 +1,66 @@
+package ai.cochl.examples;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handles the result of one prediction: walking the org.json tree as the tutorials did, against
+ * decoding it into pooled {@link FrameResult frames} with {@link ResultDecoder}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ResultDecoderBenchmark {
+    @Param({"1", "10", "50"})
+    public int tags;
+
+    private JSONObject result;
+    private ResultDecoder decoder;
+
+    @Setup
+    public void setUp() {
+        result = FakeSense.result(tags, true);
+        decoder = new ResultDecoder();
+    }
+
+    @Benchmark
+    public void legacyAbbreviations(Blackhole bh) {
+        JSONArray abbreviations = result.getJSONArray("abbreviations");
+        for (int i = 0; i < abbreviations.length(); ++i) {
+            bh.consume(abbreviations.getString(i));
+        }
+    }
+
+    // Without abbreviations, every frame was pretty-printed
+    @Benchmark
+    public void legacyPrettyPrint(Blackhole bh) {
+        bh.consume(result.getJSONObject("result").toString(2));
+    }
+
+    @Benchmark
+    public void decodeAbbreviations(Blackhole bh) {
+        decoder.decode(result);
+        for (int i = 0; i < decoder.getAbbreviationCount(); ++i) {
+            bh.consume(decoder.getAbbreviation(i));
+        }
+    }
+
+    @Benchmark
+    public void decodeAndFormatFrames(Blackhole bh) {
+        decoder.decode(result);
+        for (int i = 0; i < decoder.getFrameCount(); ++i) {
+            bh.consume(decoder.formatFrame(i));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package ai.cochl.examples;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends frames to a journal the way the inference thread does, with the flushes and fsyncs on
+ * a writer thread of their own. The score is the cost to the appending thread only;
+ * gc.alloc.rate.norm should stay at 0 and the dropped count in the log at 0 too.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ResultJournalBenchmark {
+    private static final String[] TAGS = {"Siren", "Dog_bark", "Glass_break", "Baby_cry",
+            "Knock", "Scream", "Gunshot", "Others"};
+    private static final int FRAMES = 64;
+
+    @Param({"1", "8"})
+    public int tagsPerFrame;
+
+    private File directory;
+    private ScheduledExecutorService writer;
+    private ResultJournal journal;
+    private FrameResult[] frames;
+    private int next = 0;
+    private long time = 1_700_000_000_000L;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("journal-benchmark").toFile();
+        writer = Executors.newSingleThreadScheduledExecutor();
+        journal = new ResultJournal(directory, new ResultJournal.Config(), writer,
+                (task, delayMillis) -> writer.schedule(task, delayMillis, TimeUnit.MILLISECONDS));
+        Random random = new Random(0);
+        frames = new FrameResult[FRAMES];
+        for (int i = 0; i < FRAMES; ++i) {
+            frames[i] = new FrameResult();
+            frames[i].startTime = i * 0.5;
+            frames[i].endTime = i * 0.5 + 1;
+            for (int t = 0; t < tagsPerFrame; ++t) {
+                TagScore tag = frames[i].addTag();
+                tag.name = TAGS[(i + t) % TAGS.length];
+                tag.probability = random.nextFloat();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException, InterruptedException {
+        journal.close();
+        writer.shutdown();
+        writer.awaitTermination(10, TimeUnit.SECONDS);
+        System.out.println(journal);
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        directory.delete();
+    }
+
+    @Benchmark
+    public boolean append() {
+        time += 500;
+        boolean added = journal.append(time, "mic", frames[next]);
+        next = (next + 1) % FRAMES;
+        return added;
+    }
+}
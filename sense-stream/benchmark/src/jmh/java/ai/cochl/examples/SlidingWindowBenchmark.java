@@ -0,0 +1,98 @@
+package ai.cochl.examples;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the copy-shift window used by the original stream tutorial with
+ * {@link SlidingAudioWindow} for one hop: append the hop and produce the window passed to predict.
+ * For a predicted hop both copy about the same amount, so expect similar scores there; the ring
+ * only comes out ahead in {@code *RingAppendOnly}, for the hops that are not predicted.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SlidingWindowBenchmark {
+    @Param({"16000", "22050", "44100", "48000"})
+    public int sampleRate;
+
+    // Hop size in seconds, as returned by Sense.getHopSize()
+    @Param({"0.25", "0.5", "1.0"})
+    public double hopSeconds;
+
+    private float[] floatHop;
+    private short[] shortHop;
+    private float[] floatCopyShift;
+    private short[] shortCopyShift;
+    private SlidingAudioWindow.OfFloat floatWindow;
+    private SlidingAudioWindow.OfShort shortWindow;
+
+    @Setup
+    public void setUp() {
+        int hopSize = (int) (sampleRate * hopSeconds);
+        Random random = new Random(0);
+
+        floatHop = new float[hopSize];
+        shortHop = new short[hopSize];
+        for (int i = 0; i < hopSize; ++i) {
+            floatHop[i] = random.nextFloat() * 2 - 1;
+            shortHop[i] = (short) random.nextInt();
+        }
+
+        floatCopyShift = new float[hopSize * 2];
+        shortCopyShift = new short[hopSize * 2];
+        floatWindow = new SlidingAudioWindow.OfFloat(hopSize, 2);
+        shortWindow = new SlidingAudioWindow.OfShort(hopSize, 2);
+    }
+
+    @Benchmark
+    public void floatCopyShift(Blackhole bh) {
+        int hop = floatHop.length;
+        System.arraycopy(floatCopyShift, hop, floatCopyShift, 0, hop);
+        System.arraycopy(floatHop, 0, floatCopyShift, hop, hop);
+        bh.consume(floatCopyShift);
+    }
+
+    @Benchmark
+    public void floatRingAppendAndView(Blackhole bh) {
+        floatWindow.append(floatHop);
+        bh.consume(floatWindow.view());
+    }
+
+    // Hops that are not predicted (e.g. skipped while inference catches up) only pay for the append
+    @Benchmark
+    public void floatRingAppendOnly(Blackhole bh) {
+        floatWindow.append(floatHop);
+        bh.consume(floatWindow);
+    }
+
+    @Benchmark
+    public void shortCopyShift(Blackhole bh) {
+        int hop = shortHop.length;
+        System.arraycopy(shortCopyShift, hop, shortCopyShift, 0, hop);
+        System.arraycopy(shortHop, 0, shortCopyShift, hop, hop);
+        bh.consume(shortCopyShift);
+    }
+
+    @Benchmark
+    public void shortRingAppendAndView(Blackhole bh) {
+        shortWindow.append(shortHop);
+        bh.consume(shortWindow.view());
+    }
+
+    @Benchmark
+    public void shortRingAppendOnly(Blackhole bh) {
+        shortWindow.append(shortHop);
+        bh.consume(shortWindow);
+    }
+}
@@ -0,0 +1,94 @@
+package ai.cochl.examples;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams 10 s of audio through capture, hop queue, inference and event sink as fast as the
+ * pipeline allows, with {@link FakeSense} in place of the SDK. The time per operation is the time
+ * to process the whole clip; subtracting the predict latency times the number of windows leaves
+ * the overhead of the pipeline itself.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StreamPipelineBenchmark {
+    private static final int SAMPLE_RATE = 22050;
+    private static final double CLIP_SECONDS = 10;
+
+    @Param({"0", "1000", "5000"})
+    public long predictLatencyMicros;
+
+    @Param({"0.5", "1.0"})
+    public double hopSeconds;
+
+    private FakeSense sense;
+    private int hopSize;
+    private int windows;
+
+    @Setup
+    public void setUp() {
+        sense = new FakeSense(predictLatencyMicros, FakeSense.result(3, true));
+        hopSize = (int) (SAMPLE_RATE * hopSeconds);
+        int hops = (int) Math.ceil(SAMPLE_RATE * CLIP_SECONDS / hopSize);
+        // The first hop only fills the window
+        windows = hops - 1;
+    }
+
+    @Benchmark
+    public long streamClip() throws InterruptedException {
+        AudioSource source = new SyntheticSource(SAMPLE_RATE, SyntheticSource.Waveform.WHITE_NOISE,
+                0, 0.5f, CLIP_SECONDS, AudioSource.Pacing.MAX_SPEED);
+        LatencyMetrics metrics = new LatencyMetrics();
+        HopQueue hopQueue = new HopQueue(4, HopQueue.OverloadPolicy.BLOCK);
+
+        // Every window yields one line per abbreviation; count windows, not lines
+        CountDownLatch rendered = new CountDownLatch(windows);
+        EventSink sink = new EventSink(Runnable::run, 64, batch -> {
+        }, metrics) {
+            @Override
+            void endFrame(long captureNanos, long handedNanos) {
+                super.endFrame(captureNanos, handedNanos);
+                rendered.countDown();
+            }
+        };
+        InferenceWorker worker = new InferenceWorker(hopQueue, sense, SAMPLE_RATE, true, false,
+                sink, reason -> {
+        }, metrics);
+        CaptureLoop capture = new CaptureLoop(source, hopSize, 6, hopQueue, new CaptureLoop.Listener() {
+            @Override
+            public void onEnd() {
+            }
+
+            @Override
+            public void onError(String reason) {
+                throw new IllegalStateException(reason);
+            }
+        });
+
+        Thread inferenceThread = new Thread(worker, "bench-inference");
+        Thread captureThread = new Thread(capture, "bench-capture");
+        inferenceThread.start();
+        captureThread.start();
+        try {
+            if (!rendered.await(1, TimeUnit.MINUTES)) {
+                throw new IllegalStateException("Pipeline stalled");
+            }
+        } finally {
+            captureThread.interrupt();
+            inferenceThread.interrupt();
+            captureThread.join();
+            inferenceThread.join();
+        }
+        return metrics.get(LatencyMetrics.Stage.PREDICT).getCount();
+    }
+}
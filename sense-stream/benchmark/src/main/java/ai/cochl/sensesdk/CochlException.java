@@ -0,0 +1,11 @@
+package ai.cochl.sensesdk;
+
+/**
+ * Stand-in for the exception of the Sense SDK, whose AAR cannot be used by a JVM module. It only
+ * lets the app sources that catch it compile; the benchmarks never call the real SDK.
+ */
+public class CochlException extends RuntimeException {
+    public CochlException(String message) {
+        super(message);
+    }
+}